@@ -0,0 +1,147 @@
+package sg.edu.nus.comp.cs4218.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+
+/**
+ * BenchmarkData generates the inputs of the benchmarks: lines of text, command
+ * lines and directory trees of a given size. The same seed always generates
+ * the same data, so that runs of a benchmark can be compared.
+ */
+public final class BenchmarkData {
+	public static final long SEED = 4218;
+
+	private static final String[] WORDS = { "shell", "pipe", "grep", "file", "line", "quote", "echo", "cat",
+			"directory", "command", "stream", "output", "input", "pattern", "test", "system" };
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Returns a line of the specified number of words separated by spaces.
+	 *
+	 * @param random
+	 *            Random choosing the words.
+	 * @param wordCount
+	 *            Number of words in the line.
+	 */
+	public static String createLine(Random random, int wordCount) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < wordCount; i++) {
+			if (i > 0) {
+				line.append(' ');
+			}
+			line.append(WORDS[random.nextInt(WORDS.length)]);
+			if (random.nextInt(4) == 0) {
+				line.append(random.nextInt(1000));
+			}
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Writes a text file of the specified number of lines of 8 to 15 words.
+	 *
+	 * @param file
+	 *            Path of the file to be written.
+	 * @param lineCount
+	 *            Number of lines in the file.
+	 * @param seed
+	 *            Long seed of the words, files written with the same seed and
+	 *            number of lines are identical.
+	 */
+	public static Path createTextFile(Path file, int lineCount, long seed) throws IOException {
+		Random random = new Random(seed);
+		BufferedWriter writer = Files.newBufferedWriter(file);
+		try {
+			for (int i = 0; i < lineCount; i++) {
+				writer.write(createLine(random, 8 + random.nextInt(8)));
+				writer.write(OSUtil.NEWLINE);
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Returns a copy of a text file written by createTextFile in which one line
+	 * out of every specified number is replaced, as input to diff and cmp.
+	 */
+	public static Path createModifiedCopy(Path source, Path file, int interval) throws IOException {
+		Random random = new Random(SEED + 1);
+		String[] lines = new String(Files.readAllBytes(source)).split(OSUtil.NEWLINE);
+		BufferedWriter writer = Files.newBufferedWriter(file);
+		try {
+			for (int i = 0; i < lines.length; i++) {
+				writer.write(i % interval == interval - 1 ? createLine(random, 10) : lines[i]);
+				writer.write(OSUtil.NEWLINE);
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Returns a command line of the specified number of echo commands joined by
+	 * pipes and semicolons, with quoted arguments.
+	 */
+	public static String createCommandLine(int commandCount) {
+		Random random = new Random(SEED);
+		StringBuilder cmdline = new StringBuilder();
+		for (int i = 0; i < commandCount; i++) {
+			if (i > 0) {
+				cmdline.append(i % 3 == 0 ? "; " : " | ");
+			}
+			cmdline.append("echo ").append(createLine(random, 3));
+			cmdline.append(" \"").append(createLine(random, 2)).append("\" '").append(createLine(random, 2))
+					.append('\'');
+		}
+		return cmdline.toString();
+	}
+
+	/**
+	 * Creates the specified number of empty files in each of the specified
+	 * number of sub-directories of the directory.
+	 */
+	public static void createTree(Path directory, int directoryCount, int fileCount) throws IOException {
+		for (int i = 0; i < directoryCount; i++) {
+			Path subDirectory = Files.createDirectories(directory.resolve("dir" + i));
+			for (int j = 0; j < fileCount; j++) {
+				Files.createFile(subDirectory.resolve("file" + j + (j % 2 == 0 ? ".txt" : ".log")));
+			}
+		}
+	}
+
+	/**
+	 * Deletes the directory and everything in it.
+	 */
+	public static void delete(Path directory) throws IOException {
+		if (directory == null || !new File(directory.toString()).exists()) {
+			return;
+		}
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,145 @@
+package sg.edu.nus.comp.cs4218.impl.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.benchmark.BenchmarkData;
+
+/**
+ * Benchmarks of the core method of each application on generated text files of
+ * the specified number of lines, in a temporary directory that is the current
+ * directory while the benchmarks run. The second file differs from the first
+ * one in one line out of every 10, so that diff and cmp find differences all
+ * over the files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AppBenchmark {
+	private static final String FILE_A = "a.txt";
+	private static final String FILE_B = "b.txt";
+	private static final String SPLIT_DIR = "split";
+
+	@Param({ "1000", "100000" })
+	public int lines;
+
+	private Path directory;
+	private String previousDir;
+
+	private GrepApplication grepApp;
+	private SedApplication sedApp;
+	private DiffApplication diffApp;
+	private CmpApplication cmpApp;
+	private PasteApplication pasteApp;
+	private SplitApplication splitApp;
+	private LsApplication lsApp;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("app-benchmark");
+		Path fileA = BenchmarkData.createTextFile(directory.resolve(FILE_A), lines, BenchmarkData.SEED);
+		BenchmarkData.createModifiedCopy(fileA, directory.resolve(FILE_B), 10);
+		BenchmarkData.createTree(directory.resolve("tree"), 10, lines / 100);
+		previousDir = Environment.currentDirectory;
+		Environment.currentDirectory = directory.toString();
+
+		grepApp = new GrepApplication();
+		sedApp = new SedApplication();
+		diffApp = new DiffApplication();
+		cmpApp = new CmpApplication();
+		pasteApp = new PasteApplication();
+		splitApp = new SplitApplication();
+		lsApp = new LsApplication();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Environment.currentDirectory = previousDir;
+		BenchmarkData.delete(directory);
+	}
+
+	@Setup(Level.Iteration)
+	public void createSplitDirectory() throws IOException {
+		Files.createDirectories(directory.resolve(SPLIT_DIR));
+	}
+
+	@TearDown(Level.Iteration)
+	public void deleteSplitFiles() throws IOException {
+		BenchmarkData.delete(directory.resolve(SPLIT_DIR));
+	}
+
+	@Benchmark
+	public String grepLiteral() throws Exception {
+		return grepApp.grepFromMultipleFiles("pattern", false, FILE_A, FILE_B);
+	}
+
+	@Benchmark
+	public String grepRegex() throws Exception {
+		return grepApp.grepFromMultipleFiles("(pipe|grep)[0-9]+ [a-z]+", false, FILE_A, FILE_B);
+	}
+
+	@Benchmark
+	public String grepInvert() throws Exception {
+		return grepApp.grepFromMultipleFiles("echo", true, FILE_A);
+	}
+
+	@Benchmark
+	public String sedFirstOccurrence() throws Exception {
+		return sedApp.replaceSubstringInFile("line", "row", 1, FILE_A);
+	}
+
+	@Benchmark
+	public String diffFiles() throws Exception {
+		return diffApp.diffTwoFiles(FILE_A, FILE_B, false, false, false);
+	}
+
+	@Benchmark
+	public String diffSimple() throws Exception {
+		return diffApp.diffTwoFiles(FILE_A, FILE_B, false, false, true);
+	}
+
+	@Benchmark
+	public String cmpFiles() throws Exception {
+		return cmpApp.cmpTwoFiles(FILE_A, FILE_B, false, false, false);
+	}
+
+	@Benchmark
+	public String cmpAllDifferences() throws Exception {
+		return cmpApp.cmpTwoFiles(FILE_A, FILE_B, true, false, true);
+	}
+
+	@Benchmark
+	public String pasteFiles() throws Exception {
+		return pasteApp.mergeFile(FILE_A, FILE_B);
+	}
+
+	@Benchmark
+	public void splitByLines() throws Exception {
+		splitApp.splitFileByLines(FILE_A, SPLIT_DIR + "/x", 1000);
+	}
+
+	@Benchmark
+	public String lsRecursive() throws Exception {
+		return lsApp.listFolderContent(false, true, "tree");
+	}
+}
@@ -0,0 +1,73 @@
+package sg.edu.nus.comp.cs4218.impl.cmd;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sg.edu.nus.comp.cs4218.benchmark.BenchmarkData;
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+
+/**
+ * Benchmarks of the parsing of sequence and pipe commands of the specified
+ * number of call commands, on quote processed command lines. The command cache
+ * of the shell is not involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParserBenchmark {
+	@Param({ "1", "10", "100" })
+	public int commands;
+
+	private ShellImpl shell;
+	private String cmdline;
+	private CommandString seqCmdline;
+	private CommandString pipeCmdline;
+
+	@Setup
+	public void setUp() throws AbstractApplicationException, ShellException {
+		shell = new ShellImpl();
+		cmdline = BenchmarkData.createCommandLine(commands);
+		seqCmdline = new CommandString(cmdline);
+		shell.processQuotes(seqCmdline);
+		pipeCmdline = new CommandString(cmdline.replace(';', '|'));
+		shell.processQuotes(pipeCmdline);
+	}
+
+	@Benchmark
+	public ParsedCommand parseSeq() throws ShellException {
+		SeqCommand seqCmd = new SeqCommand(shell, seqCmdline);
+		seqCmd.parse();
+		return seqCmd.getParsedCommand();
+	}
+
+	@Benchmark
+	public CommandString[] parsePipe() throws ShellException {
+		PipeCommand pipeCmd = new PipeCommand(shell, pipeCmdline);
+		pipeCmd.parse();
+		return pipeCmd.getCallCommands();
+	}
+
+	@Benchmark
+	public ParsedCommand quoteAndParse() throws AbstractApplicationException, ShellException {
+		CommandString cmd = new CommandString(cmdline);
+		shell.processQuotes(cmd);
+		return ParsedCommand.parse(shell, cmd);
+	}
+}
@@ -0,0 +1,85 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sg.edu.nus.comp.cs4218.benchmark.BenchmarkData;
+
+/**
+ * Benchmarks of the CommandString operations used by the operators and the
+ * parser, on a command line of the specified number of words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommandStringBenchmark {
+	@Param({ "10", "100", "1000" })
+	public int words;
+
+	private String text;
+	private CommandString cmd;
+
+	@Setup
+	public void setUp() {
+		text = BenchmarkData.createLine(new Random(BenchmarkData.SEED), words);
+		cmd = new CommandString(text);
+		cmd.setCharEscapedRange(0, text.length() / 2, true);
+	}
+
+	@Benchmark
+	public CommandString create() {
+		return new CommandString(text);
+	}
+
+	@Benchmark
+	public Integer[] getIndicesOfCharNotEscaped() {
+		return cmd.getIndicesOfCharNotEscaped(' ');
+	}
+
+	@Benchmark
+	public int getFirstIndexOfCharNotEscaped() {
+		return cmd.getFirstIndexOfCharNotEscaped(0, '|');
+	}
+
+	@Benchmark
+	public String substringToString() {
+		return cmd.substring(cmd.length() / 4, cmd.length() * 3 / 4).toString();
+	}
+
+	@Benchmark
+	public CommandString trim() {
+		return cmd.trim();
+	}
+
+	/**
+	 * Inserts a string in the middle of the command and removes it again, so that
+	 * the command is the same for every invocation.
+	 */
+	@Benchmark
+	public int insertAndRemove() {
+		int index = cmd.length() / 2;
+		cmd.insertStringAt(index, "inserted");
+		cmd.removeRange(index, index + "inserted".length());
+		return cmd.length();
+	}
+
+	@Benchmark
+	public CommandToken[] tokenize() {
+		return CommandLexer.tokenize(cmd);
+	}
+}
@@ -0,0 +1,98 @@
+package sg.edu.nus.comp.cs4218.impl.optr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.benchmark.BenchmarkData;
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+
+/**
+ * Benchmarks of the quote, glob and command substitution operators. Quoting
+ * runs on a generated command line of the specified number of commands, and
+ * globbing on a generated tree of the specified number of files per
+ * directory. Each invocation operates on a new CommandString, since the
+ * operators modify the command they evaluate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OperatorBenchmark {
+	@Param({ "10", "100" })
+	public int size;
+
+	private Path directory;
+	private String previousDir;
+	private String cmdline;
+	private QuoteOperator quoteOptr;
+	private GlobOperator globOptr;
+	private CmdSubOperator cmdSubOptr;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("operator-benchmark");
+		BenchmarkData.createTree(directory, 10, size);
+		previousDir = Environment.currentDirectory;
+		Environment.currentDirectory = directory.toString();
+
+		cmdline = BenchmarkData.createCommandLine(size);
+		quoteOptr = new QuoteOperator();
+		globOptr = new GlobOperator();
+		cmdSubOptr = new CmdSubOperator(new ShellImpl());
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Environment.currentDirectory = previousDir;
+		BenchmarkData.delete(directory);
+	}
+
+	@Benchmark
+	public CommandString quote() throws AbstractApplicationException, ShellException {
+		CommandString cmd = new CommandString(cmdline);
+		quoteOptr.evaluate(cmd);
+		return cmd;
+	}
+
+	@Benchmark
+	public CommandString globOneDirectory() throws AbstractApplicationException, ShellException {
+		CommandString cmd = new CommandString("ls dir0/*.txt");
+		globOptr.evaluate(cmd);
+		return cmd;
+	}
+
+	@Benchmark
+	public CommandString globAllDirectories() throws AbstractApplicationException, ShellException {
+		CommandString cmd = new CommandString("ls */file1*");
+		globOptr.evaluate(cmd);
+		return cmd;
+	}
+
+	@Benchmark
+	public CommandString cmdSub() throws AbstractApplicationException, ShellException {
+		CommandString cmd = new CommandString("echo `echo shell pipe grep` `echo file line`");
+		cmdSubOptr.evaluate(cmd);
+		return cmd;
+	}
+}
@@ -0,0 +1,54 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+
+public class BatchRunnerIT {
+	private static final String NEW_LINE = OSUtil.NEWLINE;
+
+	private ByteArrayOutputStream output;
+	private BatchRunner runner;
+
+	@Before
+	public void setUp() {
+		output = new ByteArrayOutputStream();
+		runner = new BatchRunner(new ShellImpl(), output);
+	}
+
+	@Test
+	public void testRunToPrintEachOutputOnItsLineUsingScript() throws IOException {
+		String script = "echo first" + NEW_LINE + NEW_LINE + "unknown" + NEW_LINE + "echo a | cat";
+
+		runner.run(new BufferedReader(new StringReader(script)));
+		assertEquals("first" + NEW_LINE + "shell: unknown: Invalid app." + NEW_LINE + "a" + NEW_LINE,
+				output.toString());
+		assertEquals(3, runner.getCommandCount());
+		assertEquals(1, runner.getFailureCount());
+	}
+
+	@Test
+	public void testEvaluateToBufferOutputUntilFlushUsingSuccessfulCmd() throws IOException {
+		assertTrue(runner.evaluate("echo buffered"));
+		assertEquals("", output.toString());
+
+		runner.flush();
+		assertEquals("buffered" + NEW_LINE, output.toString());
+	}
+
+	@Test
+	public void testEvaluateToReturnFalseUsingInvalidCmd() throws IOException {
+		assertFalse(runner.evaluate("echo a | | cat"));
+		assertTrue(runner.getSummary().startsWith("batch: 1 commands, 1 failed"));
+	}
+}
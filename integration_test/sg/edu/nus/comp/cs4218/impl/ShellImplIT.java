@@ -1,20 +1,32 @@
 package sg.edu.nus.comp.cs4218.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import sg.edu.nus.comp.cs4218.CommandExecutor;
 import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.cmd.ParsedCommand;
+import sg.edu.nus.comp.cs4218.impl.cmd.PipeCommand;
+import sg.edu.nus.comp.cs4218.impl.commons.LruCache;
 import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.PlatformThreadExecutor;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Counter;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Phase;
 
 public class ShellImplIT {
 	private static final String TEST_DIR = System.getProperty("user.dir") + OSUtil.SEP + "test_system" + OSUtil.SEP
@@ -42,6 +54,30 @@ public class ShellImplIT {
 		output = new ByteArrayOutputStream();
 	}
 
+	@Test
+	public void testNewInstanceToShareExecutorUsingShellWithExecutor() {
+		CommandExecutor executor = new PlatformThreadExecutor();
+		ShellImpl shellWithExecutor = new ShellImpl(executor);
+		assertSame(executor, shellWithExecutor.newInstance().getExecutor());
+	}
+
+	@Test
+	public void testCreateExecutorToThrowsIllegalArgExpUsingUnknownName() {
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("shell: unknown: Invalid executor");
+		ShellImpl.createExecutor("unknown");
+	}
+
+	@Test
+	public void testParseAndEvalToEvalCmdSubUsingVirtualExecutor() throws ShellException, AbstractApplicationException {
+		expected = "sub shell";
+		cmdline = "echo `echo sub shell`";
+
+		shell = new ShellImpl(ShellImpl.createExecutor("virtual"));
+		shell.parseAndEvaluate(cmdline, output);
+		assertEquals(expected, output.toString());
+	}
+
 	@Test
 	public void testParseAndEvalToEvalSeqOfCmdUsingSeqInNoQuotes() throws ShellException, AbstractApplicationException {
 		expected = "seq1" + NEW_LINE + "seq2";
@@ -211,6 +247,122 @@ public class ShellImplIT {
 		assertEquals(expected, output.toString());
 	}
 
+	@Test
+	public void testParseAndEvalToHitCacheUsingRepeatedCmd() throws ShellException, AbstractApplicationException {
+		LruCache<String, ParsedCommand> cache = ShellImpl.getCommandCache();
+		cache.clear();
+		expected = "'a  b' c";
+		cmdline = "echo \"'a  b'\"   c";
+
+		shell.parseAndEvaluate(cmdline, output);
+		assertEquals(expected, output.toString());
+		output.reset();
+		shell.newInstance().parseAndEvaluate(cmdline, output);
+		assertEquals(expected, output.toString());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testParseAndEvalToSubAgainUsingCachedCmdSub()
+			throws ShellException, AbstractApplicationException, IOException {
+		cmdline = "cat `echo name`";
+		shell.parseAndEvaluate(cmdline, output);
+		assertEquals(NAME_CONTENT, output.toString());
+
+		PrintWriter writer = new PrintWriter(TEST_DIR + OSUtil.SEP + "name");
+		writer.print(FILE_CONTENT);
+		writer.close();
+		output.reset();
+		shell.parseAndEvaluate(cmdline, output);
+		assertEquals(FILE_CONTENT, output.toString());
+	}
+
+	@Test
+	public void testParseAndEvalToEvalCmdsBeforeInvalidPipeUsingCachedCmd()
+			throws ShellException, AbstractApplicationException {
+		cmdline = "echo first; echo a || echo b";
+		for (int i = 0; i < 2; i++) {
+			output.reset();
+			String message = "";
+			try {
+				shell.parseAndEvaluate(cmdline, output);
+			} catch (ShellException e) {
+				message = e.getMessage();
+			}
+			assertEquals("shell: " + PipeCommand.EXP_INVALID_PIPE, message);
+			assertEquals("first" + NEW_LINE, output.toString());
+		}
+	}
+
+	@Test
+	public void testParseAndEvalToChangeOwnDirOnlyUsingShellWithContext()
+			throws ShellException, AbstractApplicationException {
+		ShellContext context = new ShellContext(TEST_DIR);
+		ShellImpl contextShell = new ShellImpl(ShellImpl.getDefaultExecutor(), ApplicationRegistry.getDefault(),
+				context);
+
+		contextShell.parseAndEvaluate("cd ..", output);
+		assertEquals(new File(TEST_DIR).getParent(), context.getCurrentDirectory());
+		assertEquals(TEST_DIR, Environment.currentDirectory);
+		assertSame(context, contextShell.newInstance().getContext());
+	}
+
+	@Test
+	public void testParseAndEvalToSeeFolderMadeByRightCmdSubUsingMkdirAndLs()
+			throws ShellException, AbstractApplicationException, IOException {
+		File directory = Files.createTempDirectory("cmdsub").toFile();
+		ShellImpl contextShell = new ShellImpl(ShellImpl.getDefaultExecutor(), ApplicationRegistry.getDefault(),
+				new ShellContext(directory.getPath()));
+		try {
+			contextShell.parseAndEvaluate("echo `ls` `mkdir d`", output);
+		} finally {
+			new File(directory, "d").delete();
+			directory.delete();
+		}
+		assertEquals("d", output.toString());
+	}
+
+	@Test
+	public void testParseAndEvalToReadContextDirInAllStagesUsingStreamingPipe()
+			throws ShellException, AbstractApplicationException {
+		ShellImpl contextShell = new ShellImpl(ShellImpl.getDefaultExecutor(), ApplicationRegistry.getDefault(),
+				new ShellContext(TEST_DIR));
+		Environment.currentDirectory = System.getProperty("user.dir");
+		Environment.isPipeStreaming = true;
+		try {
+			contextShell.parseAndEvaluate("cat file | cat - name", output);
+		} finally {
+			Environment.isPipeStreaming = false;
+		}
+		assertEquals(FILE_CONTENT + NEW_LINE + NAME_CONTENT, output.toString());
+	}
+
+	@Test
+	public void testParseAndEvalToRecordMetricsUsingEnabledMetrics()
+			throws ShellException, AbstractApplicationException {
+		MetricsRegistry registry = MetricsRegistry.getDefault();
+		registry.reset();
+		MetricsRegistry.setEnabled(true);
+		try {
+			shell.parseAndEvaluate("echo hello | cat; echo na*", output);
+		} finally {
+			MetricsRegistry.setEnabled(false);
+		}
+		assertEquals("hello" + NEW_LINE + "name", output.toString());
+		assertEquals(1, registry.getPhase(Phase.SEQ).getCount());
+		assertEquals(2, registry.getPhase(Phase.PIPE).getCount());
+		assertEquals(3, registry.getPhase(Phase.RUN_APP).getCount());
+		assertEquals(2, registry.getApp("echo").getCount());
+		assertEquals(5, registry.getBytesIn().getSum());
+		assertEquals(14, registry.getBytesOut().getSum());
+		assertEquals(1, registry.getCounter(Counter.GLOB_PATTERNS));
+		assertEquals(1, registry.getCounter(Counter.GLOB_MATCHES));
+
+		shell.parseAndEvaluate("echo hello | cat", new ByteArrayOutputStream());
+		assertEquals(3, registry.getPhase(Phase.RUN_APP).getCount());
+	}
+
 	@Test
 	public void testParseAndEvalToNotEvalInputRedirUsingInputRedirInSingleQuotes()
 			throws ShellException, AbstractApplicationException {
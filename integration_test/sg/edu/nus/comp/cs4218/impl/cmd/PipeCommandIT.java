@@ -3,16 +3,21 @@ package sg.edu.nus.comp.cs4218.impl.cmd;
 import static org.junit.Assert.assertEquals;
 
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.GrepException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.ShellImpl;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+import sg.edu.nus.comp.cs4218.impl.commons.SpillBuffer;
 
 public class PipeCommandIT {
 	private PipeCommand pipeCmd;
@@ -30,6 +35,12 @@ public class PipeCommandIT {
 		output = new ByteArrayOutputStream();
 	}
 
+	@After
+	public void tearDown() {
+		Environment.isPipeStreaming = false;
+		Environment.pipeBufferLimit = SpillBuffer.DEFAULT_LIMIT;
+	}
+
 	@Test
 	public void testEvalToDoNothingUsingEmptyArgsWithoutRunParse() throws ShellException, AbstractApplicationException {
 		cmdLine = new CommandString("echo no parse");
@@ -226,4 +237,110 @@ public class PipeCommandIT {
 		pipeCmd.parse();
 		pipeCmd.evaluate(System.in, output);
 	}
+
+	@Test
+	public void testEvalToEvalCmdsUsingStrWithMultiPipeAndSpilledBuffers()
+			throws ShellException, AbstractApplicationException {
+		Environment.pipeBufferLimit = 4;
+		cmdLine = new CommandString("echo mutiple pipes | cat | sed s/pipes/Pipes/");
+		expected = "mutiple Pipes";
+
+		pipeCmd = new PipeCommand(new ShellImpl(), cmdLine);
+		pipeCmd.parse();
+		pipeCmd.evaluate(System.in, output);
+		assertEquals(expected, output.toString());
+	}
+
+	@Test
+	public void testEvalStreamingToEvalCmdsUsingStrWithMultiPipe() throws ShellException, AbstractApplicationException {
+		Environment.isPipeStreaming = true;
+		cmdLine = new CommandString("echo mutiple pipes | cat | sed s/pipes/Pipes/");
+		expected = "mutiple Pipes";
+
+		pipeCmd = new PipeCommand(new ShellImpl(), cmdLine);
+		pipeCmd.parse();
+		pipeCmd.evaluate(System.in, output);
+		assertEquals(expected, output.toString());
+	}
+
+	@Test
+	public void testEvalStreamingToIgnoreUnreadInputUsingCmdNotReadingStdin()
+			throws ShellException, AbstractApplicationException {
+		Environment.isPipeStreaming = true;
+		cmdLine = new CommandString("echo unread input | echo last stage");
+		expected = "last stage";
+
+		pipeCmd = new PipeCommand(new ShellImpl(), cmdLine);
+		pipeCmd.parse();
+		pipeCmd.evaluate(System.in, output);
+		assertEquals(expected, output.toString());
+	}
+
+	@Test
+	public void testEvalStreamingToThrowsShellExpUsingExpAtMiddleOfPipe()
+			throws ShellException, AbstractApplicationException {
+		Environment.isPipeStreaming = true;
+		cmdLine = new CommandString("echo pipe1 | ct | sed s/pipe1/sed-replacement/");
+
+		thrown.expect(ShellException.class);
+		thrown.expectMessage("shell: ct: Invalid app");
+
+		pipeCmd = new PipeCommand(new ShellImpl(), cmdLine);
+		pipeCmd.parse();
+		pipeCmd.evaluate(System.in, output);
+	}
+
+	@Test(timeout = 10000)
+	public void testEvalStreamingToTerminateUpstreamUsingEndlessInputNotRead()
+			throws ShellException, AbstractApplicationException {
+		Environment.isPipeStreaming = true;
+		cmdLine = new CommandString("cat | echo done");
+		expected = "done";
+		InputStream endlessInput = new InputStream() {
+			@Override
+			public int read() {
+				return 'a';
+			}
+		};
+
+		pipeCmd = new PipeCommand(new ShellImpl(), cmdLine);
+		pipeCmd.parse();
+		pipeCmd.evaluate(endlessInput, output);
+		assertEquals(expected, output.toString());
+	}
+
+	@Test(timeout = 10000)
+	public void testEvalStreamingToStopUpstreamUsingEndlessInputWithoutMatchNotRead()
+			throws ShellException, AbstractApplicationException {
+		Environment.isPipeStreaming = true;
+		cmdLine = new CommandString("grep b | echo done");
+		expected = "done";
+		InputStream endlessInput = new InputStream() {
+			private int count;
+
+			@Override
+			public int read() {
+				return count++ % 2 == 0 ? 'a' : '\n';
+			}
+		};
+
+		pipeCmd = new PipeCommand(new ShellImpl(), cmdLine);
+		pipeCmd.parse();
+		pipeCmd.evaluate(endlessInput, output);
+		assertEquals(expected, output.toString());
+	}
+
+	@Test
+	public void testEvalStreamingToThrowsAppExpUsingFailingCmdBeforeCmdNotReadingStdin()
+			throws ShellException, AbstractApplicationException {
+		Environment.isPipeStreaming = true;
+		cmdLine = new CommandString("grep pattern nonExistentFile | echo done");
+
+		thrown.expect(GrepException.class);
+		thrown.expectMessage("grep: nonExistentFile: No such file or directory");
+
+		pipeCmd = new PipeCommand(new ShellImpl(), cmdLine);
+		pipeCmd.parse();
+		pipeCmd.evaluate(System.in, output);
+	}
 }
@@ -0,0 +1,118 @@
+package sg.edu.nus.comp.cs4218.impl.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+
+public class ShellEventsIT {
+	private static final String TEST_DIR = System.getProperty("user.dir") + OSUtil.SEP + "test_system" + OSUtil.SEP
+			+ "quote_test_system";
+	private static final String PREFIX = "sg.edu.nus.comp.cs4218.";
+
+	private Recording recording;
+	private Path dumpFile;
+	private String previousDir;
+
+	@Before
+	public void setUp() throws IOException {
+		previousDir = Environment.currentDirectory;
+		Environment.currentDirectory = TEST_DIR;
+		dumpFile = Files.createTempFile("shell-events", ".jfr");
+		recording = new Recording();
+		String[] names = { "CommandLine", "PipeCommand", "CallCommand", "Glob", "CommandSubstitution" };
+		for (int i = 0; i < names.length; i++) {
+			recording.enable(PREFIX + names[i]).withoutThreshold();
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		recording.close();
+		Files.deleteIfExists(dumpFile);
+		Environment.currentDirectory = previousDir;
+	}
+
+	@Test
+	public void testIsSupportedToReturnTrueUsingJvmWithJfr() {
+		assertTrue(ShellEvents.isSupported());
+		assertTrue(ShellEvents.newCallCommandEvent() instanceof CallCommandEvent);
+	}
+
+	@Test(timeout = 30000)
+	public void testParseAndEvalToEmitEventsUsingPipeGlobAndCmdSub()
+			throws IOException, ShellException, AbstractApplicationException {
+		recording.start();
+		new ShellImpl().parseAndEvaluate("echo `echo na*` | cat", new ByteArrayOutputStream());
+		recording.stop();
+		recording.dump(dumpFile);
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dumpFile);
+		List<RecordedEvent> commandLines = filter(events, "CommandLine");
+		assertEquals(2, commandLines.size());
+		assertTrue(hasString(commandLines, "commandLine", "echo `echo na*` | cat"));
+		assertTrue(hasString(commandLines, "commandLine", "echo na*"));
+		assertFalse(commandLines.get(0).getBoolean("isFailed"));
+
+		List<RecordedEvent> pipes = filter(events, "PipeCommand");
+		assertTrue(hasString(pipes, "command", "echo `echo na*` | cat"));
+
+		List<RecordedEvent> calls = filter(events, "CallCommand");
+		assertEquals(3, calls.size());
+		for (int i = 0; i < calls.size(); i++) {
+			if ("cat".equals(calls.get(i).getString("app"))) {
+				assertEquals(4, calls.get(i).getLong("bytesIn"));
+				assertEquals(4, calls.get(i).getLong("bytesOut"));
+			}
+		}
+
+		List<RecordedEvent> globs = filter(events, "Glob");
+		assertEquals(1, globs.size());
+		assertEquals("na*", globs.get(0).getString("pattern"));
+		assertEquals(1, globs.get(0).getInt("directoryCount"));
+		assertEquals(1, globs.get(0).getInt("matchCount"));
+
+		List<RecordedEvent> cmdSubs = filter(events, "CommandSubstitution");
+		assertEquals(1, cmdSubs.size());
+		assertEquals("echo na*", cmdSubs.get(0).getString("command"));
+		assertEquals(4, cmdSubs.get(0).getLong("outputBytes"));
+	}
+
+	private static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+		List<RecordedEvent> matches = new Vector<RecordedEvent>();
+		for (int i = 0; i < events.size(); i++) {
+			if ((PREFIX + name).equals(events.get(i).getEventType().getName())) {
+				matches.add(events.get(i));
+			}
+		}
+		return matches;
+	}
+
+	private static boolean hasString(List<RecordedEvent> events, String field, String value) {
+		for (int i = 0; i < events.size(); i++) {
+			if (value.equals(events.get(i).getString(field))) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
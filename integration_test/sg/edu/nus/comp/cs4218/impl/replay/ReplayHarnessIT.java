@@ -0,0 +1,69 @@
+package sg.edu.nus.comp.cs4218.impl.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import sg.edu.nus.comp.cs4218.ShellContext;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.server.ShellServer;
+
+public class ReplayHarnessIT {
+	private static final String ROOT_DIR = System.getProperty("user.dir") + OSUtil.SEP + "test_system";
+	private static final String TEST_DIR = ROOT_DIR + OSUtil.SEP + "quote_test_system";
+
+	@Test(timeout = 30000)
+	public void testRunToReportLatencyAndMismatchesUsingQueries() throws IOException, InterruptedException {
+		String text = "//1. echo\necho hello\nhello\n//2. cat\ncat name\nThis file is named \"name\" in quote_test_system."
+				+ "\n//3. wrong\necho right\nwrong\n//4. mkdir\nmkdir created; ls created\n";
+		ReplayHarness harness = new ReplayHarness(ShellImpl.getDefaultExecutor(), 2, 3, true);
+		harness.add(QueryFile.parse("query-test.txt", new StringReader(text)), TEST_DIR);
+
+		ReplayHarness.Report report = harness.run();
+
+		assertEquals(12, report.getCommandCount());
+		assertEquals(4, report.getCheckedCount());
+		assertEquals(1, report.getMismatchCount());
+		assertTrue(report.getMismatches()[0].startsWith("query-test.txt: 3. wrong"));
+		assertEquals(3, report.getTypes().length);
+		assertTrue(report.getPercentile("echo", 99) >= report.getPercentile("echo", 50));
+		assertTrue(report.toText(OSUtil.NEWLINE).contains("checked: 4 commands, 1 mismatches"));
+		assertTrue(!new File(TEST_DIR, "created").exists());
+	}
+
+	@Test(timeout = 30000)
+	public void testRunToKeepFolderNamesUsingQueryListingParentFolder() throws Exception {
+		ByteArrayOutputStream listing = new ByteArrayOutputStream();
+		new ShellImpl(ShellImpl.getDefaultExecutor(), ShellServer.createSessionRegistry(), new ShellContext(TEST_DIR))
+				.parseAndEvaluate("cd ..; ls", listing);
+		String text = "//1. parent\ncd ..; ls\n" + listing.toString();
+		ReplayHarness harness = new ReplayHarness(ShellImpl.getDefaultExecutor(), 1, 1, true);
+		harness.add(QueryFile.parse("query-quote.txt", new StringReader(text)), ROOT_DIR, TEST_DIR);
+
+		ReplayHarness.Report report = harness.run();
+
+		assertEquals(1, report.getCheckedCount());
+		assertEquals(0, report.getMismatchCount());
+	}
+
+	@Test
+	public void testRunToCreateFolderInCopyOnlyUsingMissingTestSystem() throws Exception {
+		String directory = ROOT_DIR + OSUtil.SEP + "replay_test_system";
+		String text = "//1. parent\ncd ..; ls\nnot the listing\n";
+		ReplayHarness harness = new ReplayHarness(ShellImpl.getDefaultExecutor(), 1, 1, true);
+		harness.add(QueryFile.parse("query-replay.txt", new StringReader(text)), ROOT_DIR, directory);
+
+		ReplayHarness.Report report = harness.run();
+
+		assertEquals(1, report.getMismatchCount());
+		assertTrue(report.getMismatches()[0].contains("replay_test_system"));
+		assertTrue(!new File(directory).exists());
+	}
+}
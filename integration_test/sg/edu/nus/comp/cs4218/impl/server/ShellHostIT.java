@@ -0,0 +1,182 @@
+package sg.edu.nus.comp.cs4218.impl.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sg.edu.nus.comp.cs4218.Application;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+
+public class ShellHostIT {
+	private static final String TEST_DIR = System.getProperty("user.dir") + OSUtil.SEP + "test_system";
+	private static final String BLOCK = "block";
+
+	private ShellHost host;
+	private CountDownLatch started;
+	private CountDownLatch released;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Before
+	public void setUp() {
+		host = new ShellHost(1, 1, ShellImpl.getDefaultExecutor());
+		started = new CountDownLatch(1);
+		released = new CountDownLatch(1);
+		host.getApplicationRegistry().register(BLOCK, new Application() {
+			@Override
+			public void run(String[] args, InputStream stdin, OutputStream stdout) {
+				started.countDown();
+				try {
+					released.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		released.countDown();
+		host.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testSubmitToRunInOrderUsingOneSession() throws InterruptedException, ExecutionException {
+		host.close();
+		host = new ShellHost(4, 100, ShellImpl.getDefaultExecutor());
+		ShellHost.Session session = host.openSession(TEST_DIR);
+
+		Vector<Future<ShellHost.Result>> results = new Vector<Future<ShellHost.Result>>();
+		results.add(session.submit("cd glob_test_system"));
+		for (int i = 0; i < 20; i++) {
+			results.add(session.submit("echo " + i));
+		}
+		results.add(session.submit("cd .."));
+		results.add(session.submit("ls"));
+
+		assertTrue(results.get(0).get().isSuccessful());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(String.valueOf(i), results.get(i + 1).get().getOutputString());
+		}
+		assertTrue(results.get(22).get().getOutputString().contains("glob_test_system"));
+		assertEquals(TEST_DIR, session.getContext().getCurrentDirectory());
+		assertEquals(23, host.getMetrics().getCompletedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testSubmitToKeepDirPerSessionUsingCdInOneSession() throws InterruptedException, ExecutionException {
+		String hostDir = Environment.currentDirectory;
+		ShellHost.Session first = host.openSession(TEST_DIR);
+		ShellHost.Session second = host.openSession(TEST_DIR);
+
+		first.submit("cd glob_test_system").get();
+		String firstOutput = first.submit("ls").get().getOutputString();
+		String secondOutput = second.submit("ls").get().getOutputString();
+
+		assertFalse(firstOutput.contains("glob_test_system"));
+		assertTrue(secondOutput.contains("glob_test_system"));
+		assertEquals(hostDir, Environment.currentDirectory);
+	}
+
+	@Test(timeout = 10000)
+	public void testSubmitToRejectUsingFullQueue() throws InterruptedException, ExecutionException {
+		ShellHost.Session first = host.openSession(TEST_DIR);
+		ShellHost.Session second = host.openSession(TEST_DIR);
+		Future<ShellHost.Result> blocked = first.submit(BLOCK);
+		started.await();
+		Future<ShellHost.Result> queued = second.submit("echo queued");
+
+		try {
+			second.submit("echo rejected");
+			throw new AssertionError("Expected the queue to be full");
+		} catch (RejectedExecutionException e) {
+			assertEquals(ShellHost.EXP_QUEUE_FULL, e.getMessage());
+		}
+		assertEquals(1, host.getMetrics().getQueuedCount());
+
+		released.countDown();
+		assertTrue(blocked.get().isSuccessful());
+		assertEquals("queued", queued.get().getOutputString());
+		assertTrue(queued.get().getQueueWaitNanos() > 0);
+
+		ShellHost.Metrics metrics = host.getMetrics();
+		assertEquals(2, metrics.getSubmittedCount());
+		assertEquals(1, metrics.getRejectedCount());
+		assertEquals(2, metrics.getCompletedCount());
+		assertEquals(0, metrics.getQueuedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testSubmitToReturnMessageUsingInvalidApp() throws InterruptedException, ExecutionException {
+		ShellHost.Result result = host.openSession(TEST_DIR).submit("unknown").get();
+
+		assertFalse(result.isSuccessful());
+		assertEquals("shell: unknown: Invalid app.", result.getMessage());
+		assertEquals(1, host.getMetrics().getFailedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testSubmitToGiveEmptyStdinToCmdSubUsingCatInCmdSub() throws InterruptedException, ExecutionException {
+		InputStream stdin = System.in;
+		System.setIn(new ByteArrayInputStream("SERVER-STDIN".getBytes()));
+		try {
+			ShellHost.Result result = host.openSession(TEST_DIR).submit("echo `cat`").get();
+
+			assertTrue(result.isSuccessful());
+			assertEquals("", result.getOutputString());
+		} finally {
+			System.setIn(stdin);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testSubmitToThrowsRejectedExpUsingExitedSession() throws InterruptedException, ExecutionException {
+		ShellHost.Session session = host.openSession(TEST_DIR);
+		assertTrue(session.submit("exit").get().isSuccessful());
+		assertTrue(session.isClosed());
+
+		thrown.expect(RejectedExecutionException.class);
+		thrown.expectMessage(ShellHost.EXP_SESSION_CLOSED);
+		session.submit("echo closed");
+	}
+
+	@Test(timeout = 10000)
+	public void testCloseToCancelQueuedCmdsUsingOtherSessionWaiting() throws InterruptedException {
+		ShellHost.Session first = host.openSession(TEST_DIR);
+		ShellHost.Session second = host.openSession(TEST_DIR);
+		first.submit(BLOCK);
+		started.await();
+		Future<ShellHost.Result> queued = second.submit("echo hi");
+
+		host.close();
+		try {
+			queued.get();
+			throw new AssertionError("Expected the queued command line to be cancelled");
+		} catch (CancellationException e) {
+			assertTrue(queued.isCancelled());
+		} catch (ExecutionException e) {
+			throw new AssertionError(e);
+		}
+		assertEquals(0, host.getMetrics().getQueuedCount());
+	}
+}
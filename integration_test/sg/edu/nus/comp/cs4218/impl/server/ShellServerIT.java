@@ -0,0 +1,159 @@
+package sg.edu.nus.comp.cs4218.impl.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+
+public class ShellServerIT {
+	private static final String TEST_DIR = System.getProperty("user.dir") + OSUtil.SEP + "test_system";
+
+	private Path socketDir;
+	private ShellServer server;
+	private Thread serverThread;
+	private String serverDir;
+
+	@Before
+	public void setUp() throws IOException {
+		Assume.assumeTrue(UnixSockets.isSupported());
+		serverDir = Environment.currentDirectory;
+		socketDir = Files.createTempDirectory("shell-server");
+		server = new ShellServer(socketDir.resolve("shell.sock"), ShellImpl.getDefaultExecutor());
+		server.start();
+		serverThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					server.serve();
+				} catch (IOException e) {
+					// closed by tearDown
+				}
+			}
+		});
+		serverThread.start();
+	}
+
+	@After
+	public void tearDown() throws IOException, InterruptedException {
+		if (server != null) {
+			server.close();
+			serverThread.join(5000);
+			Files.deleteIfExists(socketDir);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testEvaluateToStreamBackOutputUsingPipe() throws IOException {
+		ShellClient client = new ShellClient(server.getSocketPath(), TEST_DIR);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		assertNull(client.evaluate("echo hello world | cat", output));
+		assertEquals("hello world", output.toString());
+		client.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testEvaluateToReturnMessageUsingInvalidApp() throws IOException {
+		ShellClient client = new ShellClient(server.getSocketPath(), TEST_DIR);
+
+		assertEquals("shell: unknown: Invalid app.", client.evaluate("unknown", new ByteArrayOutputStream()));
+		client.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testEvaluateToKeepDirPerSessionUsingCdInOneSession() throws IOException {
+		ShellClient first = new ShellClient(server.getSocketPath(), TEST_DIR);
+		ShellClient second = new ShellClient(server.getSocketPath(), TEST_DIR);
+
+		assertNull(first.evaluate("cd glob_test_system", new ByteArrayOutputStream()));
+		ByteArrayOutputStream firstOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream secondOutput = new ByteArrayOutputStream();
+		assertNull(first.evaluate("ls", firstOutput));
+		assertNull(second.evaluate("ls", secondOutput));
+
+		assertFalse(firstOutput.toString().contains("glob_test_system"));
+		assertTrue(secondOutput.toString().contains("glob_test_system"));
+		assertEquals(serverDir, Environment.currentDirectory);
+		first.close();
+		second.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testEvaluateToEndSessionOnlyUsingExit() throws IOException {
+		ShellClient client = new ShellClient(server.getSocketPath(), TEST_DIR);
+		assertNull(client.evaluate("exit", new ByteArrayOutputStream()));
+		client.close();
+
+		client = new ShellClient(server.getSocketPath(), TEST_DIR);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertNull(client.evaluate("echo alive", output));
+		assertEquals("alive", output.toString());
+		client.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testStartToThrowBindExpUsingSocketOfRunningServer() throws IOException {
+		ShellServer second = new ShellServer(server.getSocketPath(), ShellImpl.getDefaultExecutor());
+		try {
+			second.start();
+			fail();
+		} catch (BindException e) {
+			assertTrue(e.getMessage().endsWith(ShellServer.EXP_ADDRESS_IN_USE));
+		}
+		second.close();
+
+		ShellClient client = new ShellClient(server.getSocketPath(), TEST_DIR);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertNull(client.evaluate("echo alive", output));
+		assertEquals("alive", output.toString());
+		client.close();
+	}
+
+	@Test
+	public void testStartToKeepFileUsingRegularFileAsSocket() throws IOException {
+		Path file = socketDir.resolve("file.txt");
+		Files.write(file, "keep".getBytes());
+		ShellServer other = new ShellServer(file, ShellImpl.getDefaultExecutor());
+		try {
+			other.start();
+			fail();
+		} catch (BindException e) {
+			assertTrue(e.getMessage().endsWith(ShellServer.EXP_ADDRESS_IN_USE));
+		} finally {
+			other.close();
+		}
+		assertEquals("keep", new String(Files.readAllBytes(file)));
+		Files.delete(file);
+	}
+
+	@Test(timeout = 10000)
+	public void testStartToReplaceStaleSocketUsingSocketOfClosedChannel() throws IOException {
+		Path stale = socketDir.resolve("stale.sock");
+		ServerSocketChannel channel = UnixSockets.openServerChannel();
+		channel.bind(UnixSockets.getAddress(stale));
+		channel.close();
+		assertTrue(Files.exists(stale));
+
+		ShellServer other = new ShellServer(stale, ShellImpl.getDefaultExecutor());
+		other.start();
+		other.close();
+		assertFalse(Files.exists(stale));
+	}
+}
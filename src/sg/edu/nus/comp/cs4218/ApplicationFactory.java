@@ -0,0 +1,11 @@
+package sg.edu.nus.comp.cs4218;
+
+public interface ApplicationFactory {
+
+	/**
+	 * Returns a new instance of the application, for applications that keep
+	 * state between or during runs and so cannot be shared.
+	 */
+	public Application createApplication();
+
+}
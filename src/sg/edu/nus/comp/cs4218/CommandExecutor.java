@@ -0,0 +1,48 @@
+package sg.edu.nus.comp.cs4218;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+
+public interface CommandExecutor {
+
+	/**
+	 * Returns the name used to select this executor at startup.
+	 */
+	public String getName();
+
+	/**
+	 * Schedules the task, such as a pipe stage or a command substitution
+	 * sub-shell, to run on a thread of this executor.
+	 * @param task		Callable to be run.
+	 * @return Future	Future holding the result of the task.
+	 */
+	public <T> Future<T> submit(Callable<T> task);
+
+	/**
+	 * Waits for the task of the future to complete and returns its result. An
+	 * application or shell exception thrown by the task is rethrown as is.
+	 * @param future	Future returned by submit.
+	 */
+	public default <T> T await(Future<T> future) throws AbstractApplicationException, ShellException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new ShellException("Execution interrupted");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof AbstractApplicationException) {
+				throw (AbstractApplicationException) cause;
+			}
+			if (cause instanceof ShellException) {
+				throw (ShellException) cause;
+			}
+			throw new ShellException(String.valueOf(cause.getMessage()));
+		}
+	}
+}
@@ -8,6 +8,53 @@ public final class Environment {
 	 */
 	public static volatile String currentDirectory = System.getProperty("user.dir");
 	
+	/**
+	 * When true, the stages of a pipe run concurrently and are connected by
+	 * bounded in-memory pipes instead of being run one after another through
+	 * fully buffered intermediate output. Defaults to the value of the
+	 * "cs4218.pipe.streaming" system property.
+	 */
+	public static volatile boolean isPipeStreaming = Boolean.getBoolean("cs4218.pipe.streaming");
+	
+	/**
+	 * The number of bytes of intermediate output a buffered pipe or a command
+	 * substitution keeps in memory before spilling the rest to a temporary file.
+	 * Defaults to the value of the "cs4218.pipe.limit" system property, or 16
+	 * MiB.
+	 */
+	public static volatile int pipeBufferLimit = Integer.getInteger("cs4218.pipe.limit", 16 * 1024 * 1024);
+	
+	/**
+	 * The size of the buffer collecting the bytes written to a redirected output
+	 * file before they are written to the file. Defaults to the value of the
+	 * "cs4218.redir.buffer" system property, or 64 KiB.
+	 */
+	public static volatile int redirBufferSize = Integer.getInteger("cs4218.redir.buffer", 64 * 1024);
+	
+	/**
+	 * When true, a redirected output file is forced to the storage device before
+	 * it is closed. Defaults to the value of the "cs4218.redir.sync" system
+	 * property.
+	 */
+	public static volatile boolean isRedirSync = Boolean.getBoolean("cs4218.redir.sync");
+	
+	/**
+	 * Returns the current directory of the shell context bound to the calling
+	 * thread. Outside of a shell with a context of its own, this is
+	 * currentDirectory.
+	 */
+	public static String getCurrentDirectory() {
+		return ShellContext.current().getCurrentDirectory();
+	}
+	
+	/**
+	 * Sets the current directory of the shell context bound to the calling
+	 * thread.
+	 */
+	public static void setCurrentDirectory(String directory) {
+		ShellContext.current().setCurrentDirectory(directory);
+	}
+	
 	
 	private Environment() {
 	};
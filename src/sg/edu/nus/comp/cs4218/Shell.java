@@ -14,6 +14,18 @@ public interface Shell {
 	 */	
 	public Shell newInstance();
 	
+	/**
+	 * Return the executor that runs the pipe stages and command substitution
+	 * sub-shells of this shell.
+	 */
+	public CommandExecutor getExecutor();
+	
+	/**
+	 * Return the context holding the session state of this shell, such as its
+	 * current directory.
+	 */
+	public ShellContext getContext();
+	
 	/**
 	 * Runs the app specified with its arguments, input and output stream.
 	 * @param app 			String containing the keyword that specifies what application
@@ -34,6 +46,16 @@ public interface Shell {
 	 */	
 	public void parseAndEvaluate(String cmdline, OutputStream stdout) throws AbstractApplicationException, ShellException;
 	
+	/**
+	 * Parses and evaluates user's command line, with the specified stream as the
+	 * input of commands that read stdin.
+	 * @param cmdline		String of the user inputed command.
+	 * @param stdin			InputStream for the applications to read stdin from.
+	 * @param stdout		OutputStream for the application to print its output to.
+	 */	
+	public void parseAndEvaluate(String cmdline, InputStream stdin, OutputStream stdout)
+			throws AbstractApplicationException, ShellException;
+	
 	
 	/**
 	 * Remove all unescaped double and single quotes and set all characters in
@@ -0,0 +1,106 @@
+package sg.edu.nus.comp.cs4218;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A ShellContext holds the state of a shell session that applications and
+ * operators depend on, such as the current directory, so that independent
+ * shells can run at the same time in one JVM.
+ *
+ * <p>
+ * While a shell evaluates a command line, its context is bound to the
+ * evaluating thread, and to the threads running its pipe stages, and is
+ * returned by current(). Code that runs outside of any shell, such as an
+ * application called directly, sees the global context, which reads and
+ * writes Environment.currentDirectory.
+ * </p>
+ */
+public class ShellContext {
+	private static final ShellContext GLOBAL = new ShellContext(null) {
+		@Override
+		public String getCurrentDirectory() {
+			return Environment.currentDirectory;
+		}
+
+		@Override
+		public void setCurrentDirectory(String currentDirectory) {
+			Environment.currentDirectory = currentDirectory;
+		}
+	};
+
+	private static final ThreadLocal<ShellContext> CURRENT = new ThreadLocal<ShellContext>();
+
+	private volatile String currentDirectory;
+
+	public ShellContext(String currentDirectory) {
+		this.currentDirectory = currentDirectory;
+	}
+
+	/**
+	 * Returns the context shared by all shells created without a context of their
+	 * own. Its current directory is Environment.currentDirectory.
+	 */
+	public static ShellContext global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * Returns the context bound to the current thread, or the global context if
+	 * there is none.
+	 */
+	public static ShellContext current() {
+		ShellContext context = CURRENT.get();
+		return context == null ? GLOBAL : context;
+	}
+
+	public String getCurrentDirectory() {
+		return currentDirectory;
+	}
+
+	public void setCurrentDirectory(String currentDirectory) {
+		this.currentDirectory = currentDirectory;
+	}
+
+	/**
+	 * Binds this context to the current thread and returns the context bound
+	 * before, to be restored with restore once the work is done.
+	 */
+	public ShellContext bind() {
+		ShellContext previous = CURRENT.get();
+		CURRENT.set(this);
+		return previous;
+	}
+
+	/**
+	 * Binds the specified context, as returned by bind, to the current thread
+	 * again.
+	 */
+	public static void restore(ShellContext previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * Returns a task running the specified task with this context bound to the
+	 * thread it runs on.
+	 *
+	 * @param task
+	 *            Callable to be run, such as a pipe stage.
+	 */
+	public <T> Callable<T> wrap(final Callable<T> task) {
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				ShellContext previous = bind();
+				try {
+					return task.call();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,10 @@
+package sg.edu.nus.comp.cs4218.exception;
+
+public class StatsException extends AbstractApplicationException {
+
+	private static final long serialVersionUID = -1683210934507329164L;
+
+	public StatsException(String message) {
+		super("stats: " + message);
+	}
+}
@@ -0,0 +1,137 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import sg.edu.nus.comp.cs4218.Application;
+import sg.edu.nus.comp.cs4218.ApplicationFactory;
+import sg.edu.nus.comp.cs4218.impl.app.CatApplication;
+import sg.edu.nus.comp.cs4218.impl.app.CdApplication;
+import sg.edu.nus.comp.cs4218.impl.app.CmpApplication;
+import sg.edu.nus.comp.cs4218.impl.app.DiffApplication;
+import sg.edu.nus.comp.cs4218.impl.app.EchoApplication;
+import sg.edu.nus.comp.cs4218.impl.app.ExitApplication;
+import sg.edu.nus.comp.cs4218.impl.app.GrepApplication;
+import sg.edu.nus.comp.cs4218.impl.app.LsApplication;
+import sg.edu.nus.comp.cs4218.impl.app.MkdirApplication;
+import sg.edu.nus.comp.cs4218.impl.app.PasteApplication;
+import sg.edu.nus.comp.cs4218.impl.app.SedApplication;
+import sg.edu.nus.comp.cs4218.impl.app.SplitApplication;
+import sg.edu.nus.comp.cs4218.impl.app.StatsApplication;
+
+/**
+ * An ApplicationRegistry maps application command keywords to the
+ * applications run by the shell. A stateless application is registered as a
+ * single instance shared by every run, including concurrent runs in pipes and
+ * command substitutions. An application that cannot be shared is registered
+ * with a factory creating a new instance for each run.
+ * 
+ * <p>
+ * The default registry holds the built-in applications. Embedders may register
+ * more applications to it, or replace built-in ones, before running commands.
+ * </p>
+ */
+public class ApplicationRegistry {
+	private static final ApplicationRegistry DEFAULT_REGISTRY = createBuiltInRegistry();
+
+	private final ConcurrentHashMap<String, ApplicationFactory> factories;
+
+	public ApplicationRegistry() {
+		factories = new ConcurrentHashMap<String, ApplicationFactory>();
+	}
+
+	/**
+	 * Returns the registry shared by shells created without one.
+	 */
+	public static ApplicationRegistry getDefault() {
+		return DEFAULT_REGISTRY;
+	}
+
+	/**
+	 * Returns a new registry holding only the built-in applications.
+	 */
+	public static ApplicationRegistry createBuiltInRegistry() {
+		ApplicationRegistry registry = new ApplicationRegistry();
+		registry.register("cat", new CatApplication()); // cat [FILE]...
+		registry.register("echo", new EchoApplication()); // echo [args]...
+		registry.register("ls", new LsApplication()); // ls [-d][FOLDER][-R]
+		registry.register("cd", new CdApplication()); // cd PATH
+		registry.register("sed", new SedApplication()); // sed REPLACEMENT [FILE]
+		registry.register("exit", new ExitApplication()); // exit
+		registry.register("cmp", new CmpApplication()); // cmp Options... FILE
+		registry.register("split", new SplitApplication()); // split [Options] [FILE [PREFIX]]
+		registry.register("mkdir", new MkdirApplication()); // mkdir FOLDERS
+		registry.register("grep", new GrepApplication()); // grep [-v] PATTERN [FILE]...
+		registry.register("paste", new PasteApplication()); // paste [FILE]...
+		registry.register("diff", new DiffApplication()); // diff [Options] FILES...
+		registry.register("stats", new StatsApplication()); // stats [-j] [-r] [on|off]
+		return registry;
+	}
+
+	/**
+	 * Registers a stateless application under the specified keyword, replacing
+	 * any application registered under it. The same instance runs every time.
+	 * 
+	 * @param name
+	 *            String of the application command keyword.
+	 * @param application
+	 *            Application to be shared by all runs.
+	 */
+	public void register(String name, final Application application) {
+		if (application == null) {
+			throw new IllegalArgumentException("Application must not be null");
+		}
+		registerFactory(name, new ApplicationFactory() {
+			@Override
+			public Application createApplication() {
+				return application;
+			}
+		});
+	}
+
+	/**
+	 * Registers a factory under the specified keyword, replacing any application
+	 * registered under it. A new instance is created for every run.
+	 * 
+	 * @param name
+	 *            String of the application command keyword.
+	 * @param factory
+	 *            ApplicationFactory creating the application.
+	 */
+	public void registerFactory(String name, ApplicationFactory factory) {
+		if (name == null || factory == null) {
+			throw new IllegalArgumentException("Application name and factory must not be null");
+		}
+		factories.put(name, factory);
+	}
+
+	/**
+	 * Removes the application registered under the specified keyword, if any.
+	 */
+	public void unregister(String name) {
+		if (name != null) {
+			factories.remove(name);
+		}
+	}
+
+	/**
+	 * Returns true if an application is registered under the specified keyword.
+	 */
+	public boolean contains(String name) {
+		return name != null && factories.containsKey(name);
+	}
+
+	/**
+	 * Returns the application to run for the specified keyword, or null if no
+	 * application is registered under it.
+	 * 
+	 * @param name
+	 *            String of the application command keyword.
+	 */
+	public Application getApplication(String name) {
+		if (name == null) {
+			return null;
+		}
+		ApplicationFactory factory = factories.get(name);
+		return factory == null ? null : factory.createApplication();
+	}
+}
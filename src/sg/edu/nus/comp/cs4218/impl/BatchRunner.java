@@ -0,0 +1,128 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import sg.edu.nus.comp.cs4218.Shell;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+
+/**
+ * A BatchRunner evaluates command lines read from a script or a stream without
+ * the interactive prompt. The output of all the commands goes to one large
+ * buffer that is only written out when it is full, when flush is called or
+ * when the batch ends, rather than after every line. The output of each
+ * command line, or its error message, is followed by a newline as in the
+ * interactive shell. The number of command lines, the number of failed ones
+ * and the time spent evaluating them are recorded.
+ */
+public class BatchRunner {
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	private final Shell shell;
+	private final BufferedOutputStream stdout;
+	private final byte[] newline = OSUtil.NEWLINE.getBytes();
+
+	private int commandCount;
+	private int failureCount;
+	private long elapsedNanos;
+
+	public BatchRunner(Shell shell, OutputStream stdout) {
+		this(shell, stdout, DEFAULT_BUFFER_SIZE);
+	}
+
+	public BatchRunner(Shell shell, OutputStream stdout, int bufferSize) {
+		this.shell = shell;
+		this.stdout = new BufferedOutputStream(stdout, bufferSize);
+	}
+
+	/**
+	 * Evaluates every non-empty line read from the reader, in order, until the
+	 * end of the stream, then flushes the output.
+	 *
+	 * @param reader
+	 *            BufferedReader to read the command lines from.
+	 *
+	 * @throws IOException
+	 *             If the command lines cannot be read or the output cannot be
+	 *             written.
+	 */
+	public void run(BufferedReader reader) throws IOException {
+		String cmdline;
+		while ((cmdline = reader.readLine()) != null) {
+			if (cmdline.isEmpty()) {
+				continue;
+			}
+			evaluate(cmdline);
+		}
+		flush();
+	}
+
+	/**
+	 * Evaluates a single command line, writing its output or error message to
+	 * the buffer.
+	 *
+	 * @param cmdline
+	 *            String of the command line.
+	 * @return boolean True if the command line completed without an exception.
+	 *
+	 * @throws IOException
+	 *             If the output cannot be written.
+	 */
+	public boolean evaluate(String cmdline) throws IOException {
+		boolean isSuccessful = true;
+		long start = System.nanoTime();
+		try {
+			shell.parseAndEvaluate(cmdline, stdout);
+		} catch (Exception e) {
+			isSuccessful = false;
+			synchronized (this) {
+				failureCount++;
+			}
+			if (e.getMessage() != null) {
+				stdout.write(e.getMessage().getBytes());
+			}
+		}
+		stdout.write(newline);
+		synchronized (this) {
+			commandCount++;
+			elapsedNanos += System.nanoTime() - start;
+		}
+		return isSuccessful;
+	}
+
+	/**
+	 * Writes out all the buffered output.
+	 *
+	 * @throws IOException
+	 *             If the output cannot be written.
+	 */
+	public void flush() throws IOException {
+		stdout.flush();
+	}
+
+	public synchronized int getCommandCount() {
+		return commandCount;
+	}
+
+	public synchronized int getFailureCount() {
+		return failureCount;
+	}
+
+	/**
+	 * Returns the total time spent evaluating command lines, in milliseconds.
+	 */
+	public synchronized long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+
+	/**
+	 * Returns a one line report of the command lines evaluated so far.
+	 */
+	public synchronized String getSummary() {
+		double averageMillis = commandCount == 0 ? 0 : (double) elapsedNanos / commandCount / 1000000;
+		return String.format("batch: %d commands, %d failed, %d ms (%.3f ms per command)", commandCount,
+				failureCount, getElapsedMillis(), averageMillis);
+	}
+}
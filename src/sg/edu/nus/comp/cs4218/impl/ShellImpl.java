@@ -1,30 +1,32 @@
 package sg.edu.nus.comp.cs4218.impl;
 
 import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
 
 import sg.edu.nus.comp.cs4218.Application;
-import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.CommandExecutor;
 import sg.edu.nus.comp.cs4218.Shell;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
-import sg.edu.nus.comp.cs4218.impl.app.CatApplication;
-import sg.edu.nus.comp.cs4218.impl.app.CdApplication;
-import sg.edu.nus.comp.cs4218.impl.app.CmpApplication;
-import sg.edu.nus.comp.cs4218.impl.app.DiffApplication;
-import sg.edu.nus.comp.cs4218.impl.app.EchoApplication;
-import sg.edu.nus.comp.cs4218.impl.app.ExitApplication;
-import sg.edu.nus.comp.cs4218.impl.app.GrepApplication;
-import sg.edu.nus.comp.cs4218.impl.app.LsApplication;
-import sg.edu.nus.comp.cs4218.impl.app.MkdirApplication;
-import sg.edu.nus.comp.cs4218.impl.app.PasteApplication;
-import sg.edu.nus.comp.cs4218.impl.app.SedApplication;
-import sg.edu.nus.comp.cs4218.impl.app.SplitApplication;
+import sg.edu.nus.comp.cs4218.impl.cmd.ParsedCommand;
 import sg.edu.nus.comp.cs4218.impl.cmd.SeqCommand;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+import sg.edu.nus.comp.cs4218.impl.commons.LruCache;
+import sg.edu.nus.comp.cs4218.impl.commons.PlatformThreadExecutor;
+import sg.edu.nus.comp.cs4218.impl.commons.VirtualThreadExecutor;
+import sg.edu.nus.comp.cs4218.impl.jfr.ShellEvents;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Counter;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Phase;
 import sg.edu.nus.comp.cs4218.impl.optr.CmdSubOperator;
 import sg.edu.nus.comp.cs4218.impl.optr.GlobOperator;
 import sg.edu.nus.comp.cs4218.impl.optr.IoRedirOperator;
 import sg.edu.nus.comp.cs4218.impl.optr.QuoteOperator;
+import sg.edu.nus.comp.cs4218.impl.server.ShellServer;
 
 /**
  * A Shell is a command interpreter and forms the backbone of the entire
@@ -38,13 +40,51 @@ import sg.edu.nus.comp.cs4218.impl.optr.QuoteOperator;
  */
 
 public class ShellImpl implements Shell {
+	public static final String EXECUTOR_PROPERTY = "cs4218.executor";
+	public static final String EXECUTOR_OPTION = "--executor=";
+	public static final String BATCH_OPTION = "--batch";
+	public static final String SCRIPT_OPTION = "--script=";
+	public static final String SERVER_OPTION = "--server";
+	public static final String CACHE_SIZE_PROPERTY = "cs4218.cache.size";
+	public static final int DEFAULT_CACHE_SIZE = 512;
+
+	private static final LruCache<String, ParsedCommand> COMMAND_CACHE = new LruCache<String, ParsedCommand>(
+			Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE));
+
+	private static volatile CommandExecutor defaultExecutor;
 
 	CmdSubOperator cmdSubOptr;
 	GlobOperator globOptr;
 	IoRedirOperator ioRedirOptr;
 	QuoteOperator quoteOptr;
 
+	private final CommandExecutor executor;
+	private final ApplicationRegistry registry;
+	private final ShellContext context;
+	private volatile SeqCommand runningCommand;
+	private volatile InputStream runningStdin = System.in;
+
 	public ShellImpl() {
+		this(getDefaultExecutor());
+	}
+
+	public ShellImpl(CommandExecutor executor) {
+		this(executor, ApplicationRegistry.getDefault());
+	}
+
+	public ShellImpl(CommandExecutor executor, ApplicationRegistry registry) {
+		this(executor, registry, ShellContext.global());
+	}
+
+	/**
+	 * Creates a shell with a context of its own, whose current directory is
+	 * independent of Environment.currentDirectory and of other shells, so that it
+	 * can run at the same time as them.
+	 */
+	public ShellImpl(CommandExecutor executor, ApplicationRegistry registry, ShellContext context) {
+		this.executor = executor;
+		this.registry = registry;
+		this.context = context;
 		cmdSubOptr = new CmdSubOperator(this);
 		globOptr = new GlobOperator();
 		ioRedirOptr = new IoRedirOperator(this);
@@ -53,12 +93,78 @@ public class ShellImpl implements Shell {
 
 	@Override
 	public Shell newInstance() {
-		return new ShellImpl();
+		return new ShellImpl(executor, registry, context);
+	}
+
+	@Override
+	public CommandExecutor getExecutor() {
+		return executor;
+	}
+
+	@Override
+	public ShellContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Returns the registry of the applications this shell can run.
+	 */
+	public ApplicationRegistry getApplicationRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns the cache of parsed command lines shared by all shells, keyed by the
+	 * raw command line. Its capacity is set by the "cs4218.cache.size" system
+	 * property.
+	 */
+	public static LruCache<String, ParsedCommand> getCommandCache() {
+		return COMMAND_CACHE;
+	}
+
+	/**
+	 * Returns the executor shared by shells created without one. It is selected
+	 * by the "cs4218.executor" system property on first use.
+	 */
+	public static CommandExecutor getDefaultExecutor() {
+		if (defaultExecutor == null) {
+			synchronized (ShellImpl.class) {
+				if (defaultExecutor == null) {
+					defaultExecutor = createExecutor(System.getProperty(EXECUTOR_PROPERTY, PlatformThreadExecutor.NAME));
+				}
+			}
+		}
+		return defaultExecutor;
+	}
+
+	/**
+	 * Returns a new executor of the specified kind. Virtual threads fall back to
+	 * platform threads on a JVM that does not support them.
+	 * 
+	 * @param name
+	 *            String "platform" or "virtual".
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the name does not specify a known executor.
+	 */
+	public static CommandExecutor createExecutor(String name) {
+		if (PlatformThreadExecutor.NAME.equals(name)) {
+			return new PlatformThreadExecutor();
+		}
+		if (VirtualThreadExecutor.NAME.equals(name)) {
+			if (VirtualThreadExecutor.isSupported()) {
+				return new VirtualThreadExecutor();
+			}
+			System.err.println("shell: virtual threads are not supported, using platform threads");
+			return new PlatformThreadExecutor();
+		}
+		throw new IllegalArgumentException("shell: " + name + ": Invalid executor");
 	}
 
 	/**
 	 * Static method to run the application as specified by the application command
-	 * keyword and arguments.
+	 * keyword and arguments. The application is looked up in the registry of this
+	 * shell.
 	 * 
 	 * @param app
 	 *            String containing the keyword that specifies what application to
@@ -80,39 +186,17 @@ public class ShellImpl implements Shell {
 	@Override
 	public void runApp(String app, String[] argsArray, InputStream inputStream, OutputStream outputStream)
 			throws AbstractApplicationException, ShellException {
-		Application absApp = null;
-		if (("cat").equals(app)) {// cat [FILE]...
-			absApp = new CatApplication();
-		} else if (("echo").equals(app)) {// echo [args]...
-			absApp = new EchoApplication();
-		} else if (("ls").equals(app)) {// ls [-d][FOLDER][-R]
-			absApp = new LsApplication();
-		} else if (("cd").equals(app)) {// cd PATH
-			absApp = new CdApplication();
-		} else if (("sed").equals(app)) {// sed REPLACEMENT [FILE]
-			absApp = new SedApplication();
-		} else if (("exit").equals(app)) { // exit
-			absApp = new ExitApplication();
-		} else if (("cmp").equals(app)) { // cmp Options... FILE
-			absApp = new CmpApplication();
-		} else if (("split").equals(app)) { // split [Options] [FILE [PREFIX]]
-			absApp = new SplitApplication();
-		} else if (("mkdir").equals(app)) { // mkdir FOLDERS
-			absApp = new MkdirApplication();
-		} else if (("grep").equals(app)) { // grep [-v] PATTERN [FILE]...
-			absApp = new GrepApplication();
-		} else if (("paste").equals(app)) { // paste [FILE]...
-			absApp = new PasteApplication();
-		} else if (("diff").equals(app)) { // diff [Options] FILES...
-			absApp = new DiffApplication();
-		} else { // invalid command
+		Application absApp = registry.getApplication(app);
+		if (absApp == null) { // invalid command
 			throw new ShellException(app + ": Invalid app.");
 		}
 		absApp.run(argsArray, inputStream, outputStream);
 	}
 
 	/**
-	 * Parses and evaluates user's command line.
+	 * Parses and evaluates user's command line. The parsed form of recently used
+	 * command lines is cached, so evaluating one of them again skips quote
+	 * processing and parsing.
 	 * 
 	 * @param cmdline
 	 *            String of the user inputed command.
@@ -127,12 +211,95 @@ public class ShellImpl implements Shell {
 	@Override
 	public void parseAndEvaluate(String cmdline, OutputStream stdout)
 			throws AbstractApplicationException, ShellException {
+		parseAndEvaluate(cmdline, System.in, stdout);
+	}
+
+	/**
+	 * Parses and evaluates user's command line, with the specified stream as the
+	 * input of commands that read stdin, including those of its command
+	 * substitutions. The context of this shell is bound to the calling thread
+	 * while the command line is evaluated.
+	 * 
+	 * @param cmdline
+	 *            String of the user inputed command.
+	 * @param stdin
+	 *            InputStream for the applications to read stdin from.
+	 * @param stdout
+	 *            OutputStream for the application to print its output to.
+	 * 
+	 * @throws AbstractApplicationException
+	 *             If an exception happens while running any of the application(s).
+	 * @throws ShellException
+	 *             If an unsupported or invalid command is detected.
+	 */
+	@Override
+	public void parseAndEvaluate(String cmdline, InputStream stdin, OutputStream stdout)
+			throws AbstractApplicationException, ShellException {
+		MetricsRegistry.count(Counter.COMMAND_LINES, 1);
+		ShellEvents.CommandLineRecord event = ShellEvents.newCommandLineEvent();
+		event.begin();
+		ParsedCommand parsedCmd = COMMAND_CACHE.get(cmdline);
+		boolean isCached = parsedCmd != null;
+		boolean isFailed = true;
+		try {
+			if (parsedCmd == null) {
+				parsedCmd = parse(cmdline);
+				COMMAND_CACHE.put(cmdline, parsedCmd);
+			}
+			evaluate(parsedCmd, stdin, stdout);
+			isFailed = false;
+		} finally {
+			event.end(cmdline, parsedCmd == null ? 0 : parsedCmd.size(), isCached, isFailed);
+		}
+	}
+
+	/**
+	 * Processes the quotes of the command line and parses it.
+	 */
+	private ParsedCommand parse(String cmdline) throws AbstractApplicationException, ShellException {
 		CommandString cmd = new CommandString(cmdline.replace("\t", "    "));
+		long startTime = MetricsRegistry.start();
 		processQuotes(cmd);
+		MetricsRegistry.stop(Phase.QUOTE, startTime);
+		startTime = MetricsRegistry.start();
+		ParsedCommand parsedCmd = ParsedCommand.parse(this, cmd);
+		MetricsRegistry.stop(Phase.PARSE, startTime);
+		return parsedCmd;
+	}
 
-		SeqCommand seqCmd = new SeqCommand(this, cmd);
-		seqCmd.parse();
-		seqCmd.evaluate(System.in, stdout);
+	/**
+	 * Evaluates the parsed command line with the context of this shell bound to
+	 * the calling thread.
+	 */
+	private void evaluate(ParsedCommand parsedCmd, InputStream stdin, OutputStream stdout)
+			throws AbstractApplicationException, ShellException {
+		SeqCommand seqCmd = new SeqCommand(this, parsedCmd);
+		ShellContext previousContext = context.bind();
+		InputStream previousStdin = runningStdin;
+		runningCommand = seqCmd;
+		runningStdin = stdin;
+		try {
+			seqCmd.evaluate(stdin, stdout);
+		} finally {
+			runningCommand = null;
+			runningStdin = previousStdin;
+			ShellContext.restore(previousContext);
+		}
+	}
+
+	/**
+	 * Terminates the command line currently evaluated by parseAndEvaluate, if
+	 * any.
+	 * 
+	 * @return boolean True if a running command line was terminated.
+	 */
+	public boolean terminate() {
+		SeqCommand seqCmd = runningCommand;
+		if (seqCmd == null) {
+			return false;
+		}
+		seqCmd.terminate();
+		return true;
 	}
 
 	/**
@@ -173,7 +340,8 @@ public class ShellImpl implements Shell {
 	 * Searches for and processes the commands enclosed by back quotes for command
 	 * substitution. The commands enclosed by back quotes will be replaced by the
 	 * command substitution results with newline replaced with a space. The replaced
-	 * string are not escaped.
+	 * string are not escaped. The commands read the stdin of the command line
+	 * being evaluated, or System.in outside of one.
 	 * 
 	 * @param cmd
 	 *            CommandString containing the commands enclosed by back quotes for
@@ -188,7 +356,7 @@ public class ShellImpl implements Shell {
 	 */
 	@Override
 	public void performCmdSub(CommandString cmd) throws AbstractApplicationException, ShellException {
-		cmdSubOptr.evaluate(cmd);
+		cmdSubOptr.evaluate(cmd, runningStdin);
 	}
 
 	/**
@@ -225,10 +393,29 @@ public class ShellImpl implements Shell {
 	 * Main method for the Shell Interpreter program.
 	 * 
 	 * @param args
-	 *            List of strings arguments, unused.
+	 *            List of strings arguments. "--executor=platform" or
+	 *            "--executor=virtual" selects the threads that run pipe stages
+	 *            and command substitutions.
 	 */
 	public static void main(String... args) {
-		ShellImpl shell = new ShellImpl();
+		ShellImpl shell;
+		try {
+			shell = new ShellImpl(selectExecutor(args));
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			return;
+		}
+		String socket = getOption(SERVER_OPTION, args);
+		if (socket != null) {
+			runServer(shell.getExecutor(), socket.startsWith("=") ? socket.substring(1) : ShellServer.DEFAULT_SOCKET);
+			return;
+		}
+		String script = getOption(SCRIPT_OPTION, args);
+		if (script != null || getOption(BATCH_OPTION, args) != null) {
+			runBatch(shell, script);
+			return;
+		}
+		installInterruptHandler(shell);
 
 		BufferedReader bReader = new BufferedReader(new InputStreamReader(System.in));
 		String readLine = null;
@@ -236,7 +423,7 @@ public class ShellImpl implements Shell {
 
 		while (true) {
 			try {
-				currentDir = Environment.currentDirectory;
+				currentDir = shell.getContext().getCurrentDirectory();
 				System.out.print(currentDir + ">");
 				readLine = bReader.readLine();
 				if (readLine == null) {
@@ -252,4 +439,149 @@ public class ShellImpl implements Shell {
 			}
 		}
 	}
+
+	/**
+	 * Returns the executor selected by the "--executor=" argument, or the default
+	 * executor if there is no such argument.
+	 * 
+	 * @param args
+	 *            List of strings arguments of main.
+	 */
+	private static CommandExecutor selectExecutor(String... args) {
+		String name = getOption(EXECUTOR_OPTION, args);
+		if (name != null) {
+			return createExecutor(name);
+		}
+		return getDefaultExecutor();
+	}
+
+	/**
+	 * Returns the value of the first argument starting with the specified option,
+	 * or null if there is no such argument.
+	 * 
+	 * @param option
+	 *            String of the option, such as "--executor=".
+	 * @param args
+	 *            List of strings arguments of main.
+	 */
+	private static String getOption(String option, String... args) {
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].startsWith(option)) {
+				return args[i].substring(option.length());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Serves command lines sent by ShellClients over the Unix domain socket at the
+	 * specified path until the process is stopped.
+	 * 
+	 * @param executor
+	 *            CommandExecutor shared by the shells of all the sessions.
+	 * @param socket
+	 *            String path of the socket file.
+	 */
+	private static void runServer(CommandExecutor executor, String socket) {
+		final ShellServer server = new ShellServer(Paths.get(socket), executor);
+		try {
+			server.start();
+		} catch (IOException | UnsupportedOperationException e) {
+			System.err.println("shell: " + socket + ": " + e.getMessage());
+			return;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				try {
+					server.close();
+				} catch (IOException e) {
+					// the socket file is left behind and replaced on the next start
+				}
+			}
+		});
+		System.err.println("shell: listening on " + socket);
+		try {
+			server.serve();
+		} catch (IOException e) {
+			System.err.println("shell: " + socket + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Evaluates the command lines of the script file, or of stdin if there is no
+	 * script, without the prompt. Output is buffered until the end, including
+	 * when the shell exits early, and a timing summary is printed to stderr.
+	 * 
+	 * @param shell
+	 *            ShellImpl to evaluate the command lines.
+	 * @param script
+	 *            String path of the script file, or null to read stdin.
+	 */
+	private static void runBatch(ShellImpl shell, String script) {
+		final BatchRunner runner = new BatchRunner(shell, new FileOutputStream(FileDescriptor.out));
+		Thread flushHook = new Thread() {
+			@Override
+			public void run() {
+				try {
+					runner.flush();
+				} catch (IOException e) {
+					// stdout is gone, nothing left to write to
+				}
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(flushHook);
+
+		try {
+			BufferedReader reader;
+			if (script == null) {
+				reader = new BufferedReader(new InputStreamReader(System.in));
+			} else {
+				File file = new File(script).isAbsolute() ? new File(script)
+						: new File(shell.getContext().getCurrentDirectory(), script);
+				reader = new BufferedReader(new FileReader(file));
+			}
+			try {
+				runner.run(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			System.err.println("shell: " + (script == null ? "stdin" : script) + ": " + e.getMessage());
+		}
+		System.err.println(runner.getSummary());
+	}
+
+	/**
+	 * Makes Ctrl-C terminate the running command line instead of the shell. At
+	 * the prompt, Ctrl-C is ignored. The handler is installed reflectively
+	 * through sun.misc.Signal, which is not a standard API and may be missing.
+	 * 
+	 * @param shell
+	 *            ShellImpl whose command lines are to be terminated.
+	 */
+	private static void installInterruptHandler(final ShellImpl shell) {
+		try {
+			Class<?> signalClass = Class.forName("sun.misc.Signal");
+			Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+			Object handler = Proxy.newProxyInstance(handlerClass.getClassLoader(), new Class<?>[] { handlerClass },
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							if (method.getDeclaringClass() == Object.class) {
+								return method.invoke(this, args);
+							}
+							if (!shell.terminate()) {
+								System.out.println();
+								System.out.print(shell.getContext().getCurrentDirectory() + ">");
+							}
+							return null;
+						}
+					});
+			Object signal = signalClass.getConstructor(String.class).newInstance("INT");
+			signalClass.getMethod("handle", signalClass, handlerClass).invoke(null, signal, handler);
+		} catch (ReflectiveOperationException | IllegalArgumentException e) {
+			// signal not supported on this platform, keep the default behaviour
+		}
+	}
 }
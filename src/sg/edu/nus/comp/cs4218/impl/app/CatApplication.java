@@ -1,17 +1,23 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import sg.edu.nus.comp.cs4218.Application;
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.exception.CatException;
 import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.TerminationUtil;
 
 /**
  * The cat command concatenates the content of given files and prints on the
@@ -26,6 +32,8 @@ import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
  * </p>
  */
 public class CatApplication implements Application {
+	public static final String EXP_TERMINATED = TerminationUtil.EXP_TERMINATED;
+	private static final int BUFFER_SIZE = 8192;
 
 	/**
 	 * Runs the cat application with the specified arguments.
@@ -67,8 +75,9 @@ public class CatApplication implements Application {
 		boolean hasInputStream = false;
 		int numOfFiles = args.length;
 		if (numOfFiles > 0) {
-			Path filePath, currentDir = Paths.get(Environment.currentDirectory);
+			Path filePath, currentDir = Paths.get(Environment.getCurrentDirectory());
 			for (int i = 0; i < numOfFiles; i++) {
+				TerminationUtil.checkTerminated(CatException.class);
 				try {
 					if (i > 0) {
 						stdout.write(OSUtil.NEWLINE.getBytes());
@@ -82,7 +91,7 @@ public class CatApplication implements Application {
 					}
 					filePath = currentDir.resolve(args[i]);
 					checkIfFileIsReadable(filePath, args[i]);
-					stdout.write(Files.readAllBytes(filePath));
+					catFile(filePath, stdout);
 				} catch (CatException catE) {
 					if (numOfFiles == 1) {
 						throw catE;
@@ -93,6 +102,8 @@ public class CatApplication implements Application {
 					} catch (IOException e) {
 						throw new CatException("Could not write to output stream");
 					}
+				} catch (ClosedByInterruptException e) {
+					throw new CatException(EXP_TERMINATED);
 				} catch (IOException e) {
 					throw new CatException("Could not write to output stream");
 				} catch (InvalidPathException pathE) {
@@ -103,7 +114,32 @@ public class CatApplication implements Application {
 	}
 
 	/**
-	 * Concatenates input inputstream
+	 * Writes the content of a file to the outputstream. If the outputstream is a
+	 * file, the bytes are transferred between the files by the kernel without
+	 * being copied through the JVM.
+	 * 
+	 * @param filePath
+	 *            path to the readable file
+	 * @param stdout
+	 *            outputstream to write output to
+	 * @throws IOException
+	 *             If the file cannot be read or the output cannot be written.
+	 */
+	private void catFile(Path filePath, OutputStream stdout) throws IOException {
+		if (stdout instanceof FileOutputStream) {
+			try (FileChannel source = FileChannel.open(filePath, StandardOpenOption.READ)) {
+				transfer(source, ((FileOutputStream) stdout).getChannel());
+			}
+			return;
+		}
+		try (InputStream fileStream = Files.newInputStream(filePath)) {
+			copy(fileStream, stdout);
+		}
+	}
+
+	/**
+	 * Concatenates input inputstream. If both streams are files, as with IO
+	 * redirection, the bytes are transferred by the kernel.
 	 * 
 	 * @param stdin
 	 *            inputstream to concatenate
@@ -116,13 +152,60 @@ public class CatApplication implements Application {
 			throw new CatException("Null Pointer Exception");
 		}
 		try {
-			int intCount;
-			while ((intCount = stdin.read()) != -1) {
-				stdout.write(intCount);
+			if (stdin instanceof FileInputStream && stdout instanceof FileOutputStream) {
+				transfer(((FileInputStream) stdin).getChannel(), ((FileOutputStream) stdout).getChannel());
+			} else {
+				copy(stdin, stdout);
 			}
 		} catch (Exception exIO) {
 			throw new CatException("Exception Caught");
 		}
+		TerminationUtil.checkTerminated(CatException.class);
+	}
+
+	/**
+	 * Transfers the remaining bytes of the source channel, from its current
+	 * position, to the target channel and moves the source position to its end.
+	 * If the source shrinks during the transfer, it stops at the new end.
+	 * 
+	 * @param source
+	 *            FileChannel to read from
+	 * @param target
+	 *            FileChannel to write to
+	 * @throws IOException
+	 *             If an I/O error occurs or the thread is interrupted.
+	 */
+	private void transfer(FileChannel source, FileChannel target) throws IOException {
+		long position = source.position();
+		long size = source.size();
+		while (position < size) {
+			long count = source.transferTo(position, size - position, target);
+			if (count == 0) {
+				// nothing is transferred past the end of a file that has shrunk
+				size = source.size();
+			}
+			position += count;
+		}
+		source.position(position);
+	}
+
+	/**
+	 * Copies the inputstream to the outputstream in blocks, stopping early if the
+	 * thread is interrupted.
+	 * 
+	 * @param stdin
+	 *            inputstream to read from
+	 * @param stdout
+	 *            outputstream to write to
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	private void copy(InputStream stdin, OutputStream stdout) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int count;
+		while ((count = stdin.read(buffer)) != -1 && !Thread.currentThread().isInterrupted()) {
+			stdout.write(buffer, 0, count);
+		}
 	}
 
 	/**
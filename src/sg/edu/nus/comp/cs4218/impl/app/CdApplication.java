@@ -67,7 +67,7 @@ public class CdApplication implements CdInterface {
 	@Override
 	public void changeToDirectory(String path) throws CdException {
 		Path filePath;
-		Path currentDir = Paths.get(Environment.currentDirectory);
+		Path currentDir = Paths.get(Environment.getCurrentDirectory());
 		try {
 			if (path == null || path.length() == 0) {
 				filePath = currentDir.resolve(System.getProperty("user.dir"));
@@ -87,7 +87,7 @@ public class CdApplication implements CdInterface {
 		}
 
 		try {
-			Environment.currentDirectory = filePath.toFile().getCanonicalPath();
+			Environment.setCurrentDirectory(filePath.toFile().getCanonicalPath());
 		} catch (IOException e) {
 			throw new CdException("IOException");
 		}
@@ -1,21 +1,34 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import sg.edu.nus.comp.cs4218.app.GrepInterface;
 import sg.edu.nus.comp.cs4218.exception.GrepException;
 import sg.edu.nus.comp.cs4218.impl.commons.FileUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.LiteralLineReader;
 import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.PatternCache;
+import sg.edu.nus.comp.cs4218.impl.commons.TerminationUtil;
 
 /**
  * The grep command searches for lines containing a match to a specified
@@ -39,6 +52,25 @@ import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
 public class GrepApplication implements GrepInterface {
 
 	public static final String EXP_NULL_POINTER = "Null Pointer Exception";
+	public static final String EXP_TERMINATED = TerminationUtil.EXP_TERMINATED;
+	public static final String PARALLEL_FILES_PROPERTY = "cs4218.grep.parallel.files";
+
+	private static volatile int parallelFiles = Integer.getInteger(PARALLEL_FILES_PROPERTY,
+			Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Returns the number of files grep searches at a time when given several
+	 * files, where 1 searches them one after another. It is set by the
+	 * "cs4218.grep.parallel.files" system property and defaults to the number
+	 * of processors.
+	 */
+	public static int getParallelFiles() {
+		return parallelFiles;
+	}
+
+	public static void setParallelFiles(int count) {
+		parallelFiles = count;
+	}
 
 	/**
 	 * Runs the grep application with the specified arguments.
@@ -69,15 +101,15 @@ public class GrepApplication implements GrepInterface {
 		String pattern = getPattern(args);
 		Vector<String> paths = getPaths(args);
 
-		String outputStr = "";
+		Writer output = new TrimmingWriter(new BufferedWriter(new OutputStreamWriter(stdout)));
 		if (paths.isEmpty()) {
-			outputStr += grepFromStdin(pattern, isInvert, stdin);
+			grepStdinTo(pattern, isInvert, stdin, output);
 		} else {
-			outputStr += grepFromMultipleFiles(pattern, isInvert, paths.toArray((new String[paths.size()])));
+			grepFilesTo(pattern, isInvert, paths.toArray((new String[paths.size()])), output);
 		}
 
 		try {
-			stdout.write(outputStr.getBytes());
+			output.flush();
 		} catch (IOException e) {
 			throw new GrepException("IOException");
 		}
@@ -98,84 +130,309 @@ public class GrepApplication implements GrepInterface {
 	 */
 	@Override
 	public String grepFromStdin(String pattern, Boolean isInvert, InputStream stdin) throws GrepException {
+		StringWriter output = new StringWriter();
+		grepStdinTo(pattern, isInvert, stdin, output);
+		return output.toString().trim();
+	}
+
+	/**
+	 * Returns string containing lines which match the specified pattern in the
+	 * given files.
+	 * 
+	 * @param pattern
+	 *            String specifying a regular expression in JAVA format.
+	 * @param isInvert
+	 *            Boolean option to filter the output that doesn't match the
+	 *            pattern.
+	 * @param fileNames
+	 *            Array of file names.
+	 * @throws GrepException
+	 *             If the file(s) specified do not exist or are unreadable or if an
+	 *             I/O exception occurs.
+	 */
+	@Override
+	public String grepFromMultipleFiles(String pattern, Boolean isInvert, String... fileNames) throws GrepException {
+		StringWriter output = new StringWriter();
+		grepFilesTo(pattern, isInvert, fileNames, output);
+		return output.toString().trim();
+	}
+
+	/**
+	 * Writes the lines of Stdin which match the specified pattern to the output
+	 * as they are read, each followed by a newline.
+	 * 
+	 * @throws GrepException
+	 *             If an I/O exception occurs or grep is terminated.
+	 */
+	private void grepStdinTo(String pattern, boolean isInvert, InputStream stdin, Writer output)
+			throws GrepException {
 		if (stdin == null) {
 			throw new GrepException(EXP_NULL_POINTER);
 		}
 
-		String outputStr = "";
+		if (isLiteralSearch(pattern, isInvert)) {
+			writeLiteralMatches(stdin, pattern, "", output);
+			return;
+		}
+
 		InputStreamReader inStream = new InputStreamReader(stdin);
 		try {
 			BufferedReader content = new BufferedReader(inStream);
 			String line = content.readLine();
 			if (line == null) {
-				return "";
+				return;
 			}
 
+			Matcher matcher = getMatcher(pattern);
 			do {
-				if (hasPattern(isInvert, pattern, line)) {
-					outputStr += line + OSUtil.NEWLINE;
+				TerminationUtil.checkTerminated(GrepException.class);
+				if (hasPattern(isInvert, matcher, line)) {
+					output.write(line);
+					output.write(OSUtil.NEWLINE);
 				}
 			} while ((line = content.readLine()) != null);
 
 		} catch (IOException e) {
 			throw new GrepException("IOException");
 		}
-		return outputStr.trim();
 	}
 
 	/**
-	 * Returns string containing lines which match the specified pattern in the
-	 * given files.
+	 * Writes the lines of the given files which match the specified pattern to
+	 * the output as they are read, each followed by a newline and prefixed by
+	 * its file name if there are several files.
 	 * 
-	 * @param pattern
-	 *            String specifying a regular expression in JAVA format.
-	 * @param isInvert
-	 *            Boolean option to filter the output that doesn't match the
-	 *            pattern.
-	 * @param fileNames
-	 *            Array of file names.
 	 * @throws GrepException
-	 *             If the file(s) specified do not exist or are unreadable or if an
-	 *             I/O exception occurs.
+	 *             If the file(s) specified do not exist or are unreadable, if an
+	 *             I/O exception occurs or if grep is terminated.
 	 */
-	@Override
-	public String grepFromMultipleFiles(String pattern, Boolean isInvert, String... fileNames) throws GrepException {
+	private void grepFilesTo(String pattern, boolean isInvert, String[] fileNames, Writer output)
+			throws GrepException {
 		if (fileNames.length == 0) {
 			throw new GrepException(EXP_NULL_POINTER);
 		}
+		if (fileNames.length > 1 && getParallelFiles() > 1) {
+			grepFilesInParallelTo(pattern, isInvert, fileNames, output);
+			return;
+		}
 
 		boolean printFileName = fileNames.length > 1;
-		String outputStr = "";
 		for (int i = 0; i < fileNames.length; i++) {
-			File file;
-			try {
-				file = FileUtil.getFileFromPath(fileNames[i]);
-			} catch (IOException e) {
-				throw new GrepException(e.getMessage());
+			grepFileTo(pattern, isInvert, getFile(fileNames[i]), printFileName ? fileNames[i] + ": " : "", output);
+		}
+	}
+
+	/**
+	 * Writes the lines matching the pattern in the files to the output like
+	 * grepFilesTo, searching up to getParallelFiles files at a time ahead of the
+	 * one being written. The matching lines of each file are collected and
+	 * written in the order of the files, and the first file to fail in that
+	 * order stops grep after the lines of the files before it are written, as if
+	 * the files were searched one after another. The files are searched on the
+	 * threads of grep (see GrepThreadPool), except files searched in parallel
+	 * chunks and files that cannot be resolved, which are searched in turn on
+	 * the calling thread.
+	 * 
+	 * @throws GrepException
+	 *             If the file(s) specified do not exist or are unreadable, if an
+	 *             I/O exception occurs or if grep is terminated.
+	 */
+	private void grepFilesInParallelTo(String pattern, boolean isInvert, String[] fileNames, Writer output)
+			throws GrepException {
+		ExecutorService executor = GrepThreadPool.get();
+		int window = getParallelFiles();
+		Vector<Future<String>> results = new Vector<Future<String>>();
+		try {
+			for (int i = 0; i < fileNames.length; i++) {
+				while (results.size() < fileNames.length && results.size() - i < window) {
+					results.add(submitSearch(executor, pattern, isInvert, fileNames[results.size()]));
+				}
+				Future<String> result = results.get(i);
+				if (result == null) {
+					grepFileTo(pattern, isInvert, getFile(fileNames[i]), fileNames[i] + ": ", output);
+				} else {
+					String lines = awaitSearch(result);
+					results.set(i, null);
+					output.write(lines);
+				}
+				TerminationUtil.checkTerminated(GrepException.class);
 			}
-			try {
-				BufferedReader content = new BufferedReader(new FileReader(file));
-				String line = content.readLine();
-				if (line == null) {
-					content.close();
-					continue;
+		} catch (IOException e) {
+			throw new GrepException("IOException");
+		} finally {
+			for (int i = 0; i < results.size(); i++) {
+				if (results.get(i) != null) {
+					results.get(i).cancel(true);
 				}
+			}
+		}
+	}
 
-				do {
-					if (hasPattern(isInvert, pattern, line)) {
-						if (printFileName) {
-							outputStr += fileNames[i] + ": ";
-						}
-						outputStr += line + OSUtil.NEWLINE;
-					}
-				} while ((line = content.readLine()) != null);
-				content.close();
+	/**
+	 * Returns the future lines of a search of the file on the executor, or null
+	 * if the file is to be searched on the calling thread: the file cannot be
+	 * resolved, which is reported when it is searched, or is searched in
+	 * parallel chunks.
+	 */
+	private Future<String> submitSearch(ExecutorService executor, String pattern, boolean isInvert, String fileName) {
+		File file;
+		try {
+			file = FileUtil.getFileFromPath(fileName);
+		} catch (IOException e) {
+			return null;
+		}
+		if (isParallelSearch(file)) {
+			return null;
+		}
+		return executor.submit(new FileSearch(pattern, isInvert, file, fileName + ": "));
+	}
+
+	/**
+	 * Waits for the search of a file and returns its lines.
+	 * 
+	 * @throws GrepException
+	 *             If the search failed or grep is terminated while waiting.
+	 */
+	private String awaitSearch(Future<String> result) throws GrepException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GrepException(EXP_TERMINATED);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof GrepException) {
+				throw (GrepException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new GrepException(String.valueOf(cause.getMessage()));
+		}
+	}
 
+	/**
+	 * Writes the lines matching the pattern in the file to the output, each with
+	 * the specified prefix and followed by a newline.
+	 * 
+	 * @throws GrepException
+	 *             If the pattern is invalid, an I/O exception occurs or grep is
+	 *             terminated.
+	 */
+	private void grepFileTo(String pattern, boolean isInvert, File file, String prefix, Writer output)
+			throws GrepException {
+		if (isParallelSearch(file)) {
+			writeParallelMatches(file, pattern, isInvert, prefix, output);
+			return;
+		}
+		if (isLiteralSearch(pattern, isInvert)) {
+			try (InputStream content = new FileInputStream(file)) {
+				writeLiteralMatches(content, pattern, prefix, output);
 			} catch (IOException e) {
 				throw new GrepException("IOException");
 			}
+			return;
+		}
+		try (BufferedReader content = new BufferedReader(new FileReader(file))) {
+			String line = content.readLine();
+			if (line == null) {
+				return;
+			}
+
+			Matcher matcher = getMatcher(pattern);
+			do {
+				if (Thread.currentThread().isInterrupted()) {
+					break;
+				}
+				if (hasPattern(isInvert, matcher, line)) {
+					output.write(prefix);
+					output.write(line);
+					output.write(OSUtil.NEWLINE);
+				}
+			} while ((line = content.readLine()) != null);
+		} catch (IOException e) {
+			throw new GrepException("IOException");
+		}
+		TerminationUtil.checkTerminated(GrepException.class);
+	}
+
+	/**
+	 * Returns the file of the specified path.
+	 * 
+	 * @throws GrepException
+	 *             If the file does not exist or is a directory.
+	 */
+	private File getFile(String fileName) throws GrepException {
+		try {
+			return FileUtil.getFileFromPath(fileName);
+		} catch (IOException e) {
+			throw new GrepException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns true if the lines matching the pattern are the lines containing it,
+	 * which can be found without decoding every line (see LiteralLineReader).
+	 */
+	private boolean isLiteralSearch(String pattern, boolean isInvert) {
+		return !isInvert && LiteralLineReader.isSupported(pattern, Charset.defaultCharset());
+	}
+
+	/**
+	 * Returns true if the file is large enough to be searched in parallel (see
+	 * MappedFileGrep) and its lines can be split as bytes.
+	 */
+	private boolean isParallelSearch(File file) {
+		return file.length() >= MappedFileGrep.getThreshold()
+				&& LiteralLineReader.isSupported(Charset.defaultCharset());
+	}
+
+	/**
+	 * Writes the lines of the file matching the pattern to the output in file
+	 * order, searching chunks of the file in parallel, each with the specified
+	 * prefix and followed by a newline.
+	 * 
+	 * @throws GrepException
+	 *             If the pattern is invalid, an I/O exception occurs or grep is
+	 *             terminated.
+	 */
+	private void writeParallelMatches(File file, String pattern, boolean isInvert, String prefix, Writer output)
+			throws GrepException {
+		getMatcher(pattern);
+		try {
+			new MappedFileGrep(pattern, isInvert, Charset.defaultCharset()).grep(file, prefix, output);
+		} catch (InterruptedIOException e) {
+			throw new GrepException(EXP_TERMINATED);
+		} catch (IOException e) {
+			throw new GrepException("IOException");
+		}
+		TerminationUtil.checkTerminated(GrepException.class);
+	}
+
+	/**
+	 * Writes the lines of the input containing the literal pattern to the output
+	 * as they are found, each with the specified prefix and followed by a
+	 * newline.
+	 * 
+	 * @throws GrepException
+	 *             If an I/O exception occurs or grep is terminated.
+	 */
+	private void writeLiteralMatches(InputStream input, String pattern, String prefix, Writer output)
+			throws GrepException {
+		LiteralLineReader content = new LiteralLineReader(input, pattern, Charset.defaultCharset());
+		try {
+			String line;
+			while ((line = content.readLine()) != null) {
+				TerminationUtil.checkTerminated(GrepException.class);
+				output.write(prefix);
+				output.write(line);
+				output.write(OSUtil.NEWLINE);
+			}
+		} catch (InterruptedIOException e) {
+			throw new GrepException(EXP_TERMINATED);
+		} catch (IOException e) {
+			throw new GrepException("IOException");
 		}
-		return outputStr.trim();
 	}
 
 	/**
@@ -254,28 +511,119 @@ public class GrepApplication implements GrepInterface {
 	}
 
 	/**
-	 * Returns true if the pattern is found in the line.
+	 * Returns a matcher of the specified pattern, compiled once per run and
+	 * reused for every line.
 	 * 
-	 * @param isInvert
-	 *            Boolean to indicate the inversion of matching.
 	 * @param pattern
 	 *            String of the regex expression to match.
-	 * @param line
-	 *            String of the line to check for matching.
 	 * @throws GrepException
-	 *             If pattern or line is null.
+	 *             If pattern is null or invalid.
 	 */
-	private boolean hasPattern(Boolean isInvert, String pattern, String line) throws GrepException {
-		if (pattern == null || line == null) {
+	private Matcher getMatcher(String pattern) throws GrepException {
+		if (pattern == null) {
 			throw new GrepException(EXP_NULL_POINTER);
 		}
-
 		try {
-			Matcher matcher = Pattern.compile(pattern).matcher(line);
-			boolean hasMatched = matcher.find();
-			return (hasMatched && !isInvert) || (!hasMatched && isInvert);
+			return PatternCache.compile(pattern).matcher("");
 		} catch (PatternSyntaxException e) {
 			throw new GrepException(e.getMessage());
 		}
 	}
+
+	/**
+	 * Returns true if the pattern of the matcher is found in the line.
+	 * 
+	 * @param isInvert
+	 *            Boolean to indicate the inversion of matching.
+	 * @param matcher
+	 *            Matcher of the regex expression to match, reset to the line.
+	 * @param line
+	 *            String of the line to check for matching.
+	 * @throws GrepException
+	 *             If line is null.
+	 */
+	private boolean hasPattern(Boolean isInvert, Matcher matcher, String line) throws GrepException {
+		if (line == null) {
+			throw new GrepException(EXP_NULL_POINTER);
+		}
+
+		boolean hasMatched = matcher.reset(line).find();
+		return (hasMatched && !isInvert) || (!hasMatched && isInvert);
+	}
+
+	/**
+	 * Searches a file on another thread and returns its matching lines.
+	 */
+	private class FileSearch implements Callable<String> {
+		private final String pattern;
+		private final boolean isInvert;
+		private final File file;
+		private final String prefix;
+
+		FileSearch(String pattern, boolean isInvert, File file, String prefix) {
+			this.pattern = pattern;
+			this.isInvert = isInvert;
+			this.file = file;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public String call() throws GrepException {
+			StringWriter lines = new StringWriter();
+			grepFileTo(pattern, isInvert, file, prefix, lines);
+			return lines.toString();
+		}
+	}
+
+	/**
+	 * Writes the characters written to it to another writer with leading and
+	 * trailing whitespace removed, as String.trim would, by holding back
+	 * whitespace until a character that is not whitespace follows it.
+	 */
+	private static class TrimmingWriter extends Writer {
+		private final Writer out;
+		private final StringBuilder pending = new StringBuilder();
+		private boolean hasWritten;
+
+		TrimmingWriter(Writer out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(char[] chars, int off, int len) throws IOException {
+			int start = off;
+			int end = off + len;
+			if (!hasWritten) {
+				while (start < end && chars[start] <= ' ') {
+					start++;
+				}
+			}
+			int last = end;
+			while (last > start && chars[last - 1] <= ' ') {
+				last--;
+			}
+			if (last > start) {
+				out.append(pending);
+				pending.setLength(0);
+				out.write(chars, start, last - start);
+				hasWritten = true;
+			}
+			if (hasWritten) {
+				pending.append(chars, last, end - last);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		/**
+		 * Flushes the output without closing it, dropping trailing whitespace.
+		 */
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
 }
@@ -0,0 +1,38 @@
+package sg.edu.nus.comp.cs4218.impl.app;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads grep searches files and chunks of large files on, shared by all
+ * grep runs. There is one daemon thread per processor, so that greps running
+ * at the same time queue for them instead of adding threads, and searches do
+ * not hold up the pools of the shell or of other libraries. The tasks never
+ * wait for each other, so they cannot deadlock the pool.
+ */
+final class GrepThreadPool {
+	private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+	private static final ExecutorService POOL = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "grep-search-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private GrepThreadPool() {
+	}
+
+	static ExecutorService get() {
+		return POOL;
+	}
+
+	static int getThreadCount() {
+		return THREAD_COUNT;
+	}
+}
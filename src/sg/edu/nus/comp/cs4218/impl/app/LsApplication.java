@@ -94,9 +94,9 @@ public class LsApplication implements LsInterface {
 		Vector<String> folders = new Vector<String>();
 		sortFileAndDirectory(validPaths, files, folders);
 		if (isFoldersOnly) {
-			outputStr += printFiles(validPaths, Environment.currentDirectory);
+			outputStr += printFiles(validPaths, Environment.getCurrentDirectory());
 		} else {
-			outputStr += printFiles(files, Environment.currentDirectory);
+			outputStr += printFiles(files, Environment.getCurrentDirectory());
 			if (!files.isEmpty() && !folders.isEmpty()) {
 				outputStr += OSUtil.NEWLINE;
 			}
@@ -173,7 +173,7 @@ public class LsApplication implements LsInterface {
 		}
 
 		Path filePath;
-		Path currentDir = Paths.get(Environment.currentDirectory);
+		Path currentDir = Paths.get(Environment.getCurrentDirectory());
 		for (int i = 0; i < inputPaths.length; i++) {
 			try {
 				filePath = currentDir.resolve(inputPaths[i]);
@@ -203,7 +203,7 @@ public class LsApplication implements LsInterface {
 	 */
 	private void sortFileAndDirectory(Vector<String> paths, Vector<String> files, Vector<String> folders) {
 		for (int i = 0; i < paths.size(); i++) {
-			File dir = LsExtension.getFileFromPath(paths.get(i), Environment.currentDirectory);
+			File dir = LsExtension.getFileFromPath(paths.get(i), Environment.getCurrentDirectory());
 			if (dir.isDirectory()) {
 				folders.add(paths.get(i));
 			} else {
@@ -281,7 +281,7 @@ public class LsApplication implements LsInterface {
 	 */
 	private String printFilesInFolder(String folder, boolean isRecursive) {
 		String outputStr = "";
-		File dir = LsExtension.getFileFromPath(folder, Environment.currentDirectory);
+		File dir = LsExtension.getFileFromPath(folder, Environment.getCurrentDirectory());
 		String[] filesInDir = dir.list();
 		outputStr += printFiles(new Vector<String>(Arrays.asList(filesInDir)), dir.getAbsolutePath());
 
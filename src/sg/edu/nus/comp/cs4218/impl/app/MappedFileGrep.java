@@ -0,0 +1,306 @@
+package sg.edu.nus.comp.cs4218.impl.app;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+
+import sg.edu.nus.comp.cs4218.impl.commons.LiteralLineReader;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.PatternCache;
+
+/**
+ * A MappedFileGrep greps a large file on several threads. The file is split
+ * into chunks of about chunkSize bytes ending after a newline, so that no line
+ * and no character is split, and each chunk is memory-mapped and searched by a
+ * task on an executor, by default the threads of grep (see GrepThreadPool).
+ * The matching lines of each chunk are written in file order as soon as the
+ * chunks before it are written, with at most twice the parallelism chunks
+ * searched ahead, so memory use does not grow with the size of the file. When
+ * grep stops early, because it fails or is interrupted, the chunk searches
+ * left are cancelled and interrupted.
+ *
+ * <p>
+ * A chunk is searched like a whole file: a literal pattern through a
+ * LiteralLineReader and any other pattern line by line, so the lines found are
+ * the same as when reading the file sequentially. Files are only split if
+ * their charset can be split at newline bytes.
+ * </p>
+ */
+public class MappedFileGrep {
+	public static final String THRESHOLD_PROPERTY = "cs4218.grep.parallel.threshold";
+	public static final long DEFAULT_THRESHOLD = 64L * 1024 * 1024;
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private static final int PROBE_SIZE = 8192;
+
+	private static volatile long threshold = Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD);
+
+	private final String pattern;
+	private final boolean isInvert;
+	private final boolean isLiteral;
+	private final Charset charset;
+	private final int chunkSize;
+	private final ExecutorService executor;
+	private final int parallelism;
+
+	public MappedFileGrep(String pattern, boolean isInvert, Charset charset) {
+		this(pattern, isInvert, charset, DEFAULT_CHUNK_SIZE, GrepThreadPool.get(), GrepThreadPool.getThreadCount());
+	}
+
+	/**
+	 * @param pattern
+	 *            String of the valid regular expression to match.
+	 * @param isInvert
+	 *            Boolean to select the lines that do not match instead.
+	 * @param charset
+	 *            Charset of the files, which LiteralLineReader must support.
+	 * @param chunkSize
+	 *            Number of bytes after which a chunk ends at the next newline.
+	 * @param executor
+	 *            ExecutorService to search the chunks on.
+	 * @param parallelism
+	 *            Number of threads of the executor searching chunks at a time.
+	 */
+	public MappedFileGrep(String pattern, boolean isInvert, Charset charset, int chunkSize, ExecutorService executor,
+			int parallelism) {
+		if (!LiteralLineReader.isSupported(charset)) {
+			throw new IllegalArgumentException("Unsupported charset: " + charset);
+		}
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+		this.pattern = pattern;
+		this.isInvert = isInvert;
+		this.isLiteral = !isInvert && LiteralLineReader.isSupported(pattern, charset);
+		this.charset = charset;
+		this.chunkSize = chunkSize;
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the size from which grep searches a file in parallel. It is set by
+	 * the "cs4218.grep.parallel.threshold" system property.
+	 */
+	public static long getThreshold() {
+		return threshold;
+	}
+
+	public static void setThreshold(long size) {
+		threshold = size;
+	}
+
+	/**
+	 * Writes the lines of the file matching the pattern to the output in file
+	 * order, each with the specified prefix and followed by a newline.
+	 *
+	 * @param file
+	 *            File to be searched.
+	 * @param prefix
+	 *            String written before each line.
+	 * @param output
+	 *            Writer to write the lines to.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be read or the output written, or an
+	 *             InterruptedIOException if the thread is interrupted.
+	 */
+	public void grep(File file, String prefix, Writer output) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			Vector<Long> bounds = split(channel);
+			int window = 2 * parallelism;
+			Vector<Future<String>> results = new Vector<Future<String>>();
+			int written = 0;
+			try {
+				for (int i = 0; i < bounds.size() - 1; i++) {
+					results.add(executor.submit(new ChunkSearch(channel, bounds.get(i), bounds.get(i + 1), prefix)));
+					if (results.size() - written >= window) {
+						output.write(await(results.get(written)));
+						results.set(written++, null);
+					}
+				}
+				while (written < results.size()) {
+					output.write(await(results.get(written)));
+					results.set(written++, null);
+				}
+			} finally {
+				for (int i = written; i < results.size(); i++) {
+					results.get(i).cancel(true);
+				}
+			}
+		} catch (ClosedByInterruptException e) {
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * Returns the offsets splitting the file into chunks, starting with 0 and
+	 * ending with the size of the file. Every chunk but the last ends with a
+	 * newline.
+	 */
+	private Vector<Long> split(FileChannel channel) throws IOException {
+		long size = channel.size();
+		Vector<Long> bounds = new Vector<Long>();
+		bounds.add(0L);
+		ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+		long position = chunkSize;
+		while (position < size) {
+			long end = findLineEnd(channel, probe, position, size);
+			if (end >= size) {
+				break;
+			}
+			bounds.add(end);
+			position = end + chunkSize;
+		}
+		bounds.add(size);
+		return bounds;
+	}
+
+	/**
+	 * Returns the offset after the first newline at or after the specified
+	 * position, or the size of the file if there is none.
+	 */
+	private static long findLineEnd(FileChannel channel, ByteBuffer probe, long from, long size)
+			throws IOException {
+		long position = from;
+		while (position < size) {
+			probe.clear();
+			int read = channel.read(probe, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (probe.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	private static String await(Future<String> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Stops a chunk search whose thread has been interrupted, as when it is
+	 * cancelled.
+	 */
+	private static void checkInterrupted() throws InterruptedIOException {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * Searches a chunk of the file and returns its matching lines.
+	 */
+	private class ChunkSearch implements Callable<String> {
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final String prefix;
+
+		ChunkSearch(FileChannel channel, long start, long end, String prefix) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public String call() throws IOException {
+			if (end - start > Integer.MAX_VALUE) {
+				throw new IOException("Line too long to be mapped");
+			}
+			InputStream chunk = new ByteBufferInputStream(
+					channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+			StringBuilder lines = new StringBuilder();
+			String line;
+			if (isLiteral) {
+				LiteralLineReader content = new LiteralLineReader(chunk, pattern, charset);
+				while ((line = content.readLine()) != null) {
+					checkInterrupted();
+					lines.append(prefix).append(line).append(OSUtil.NEWLINE);
+				}
+				return lines.toString();
+			}
+			Matcher matcher = PatternCache.compile(pattern).matcher("");
+			BufferedReader content = new BufferedReader(new InputStreamReader(chunk, charset));
+			while ((line = content.readLine()) != null) {
+				checkInterrupted();
+				if (matcher.reset(line).find() != isInvert) {
+					lines.append(prefix).append(line).append(OSUtil.NEWLINE);
+				}
+			}
+			return lines.toString();
+		}
+	}
+
+	/**
+	 * Reads the bytes of a mapped chunk.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int read = Math.min(len, buffer.remaining());
+			buffer.get(bytes, off, read);
+			return read;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -54,7 +54,7 @@ public class MkdirApplication implements MkdirInterface {
 			}
 
 			try {
-				Path folderPath = Paths.get(Environment.currentDirectory).resolve(folderName[i]);
+				Path folderPath = Paths.get(Environment.getCurrentDirectory()).resolve(folderName[i]);
 				Files.createDirectory(folderPath);
 			} catch (InvalidPathException e) {
 				throw new MkdirException("cannot create directory '" + folderName[i] + "': No such file or directory");
@@ -18,6 +18,8 @@ import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.app.SedInterface;
 import sg.edu.nus.comp.cs4218.exception.SedException;
 import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.PatternCache;
+import sg.edu.nus.comp.cs4218.impl.commons.TerminationUtil;
 
 /**
  * The sed command copies input file (or input stream) to stdout and performs
@@ -45,6 +47,7 @@ import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
 public class SedApplication implements SedInterface {
 
 	public static final String EXP_NULL_POINTER = "Null Pointer Exception";
+	public static final String EXP_TERMINATED = TerminationUtil.EXP_TERMINATED;
 
 	/**
 	 * Runs the sed application with the specified arguments.
@@ -123,7 +126,7 @@ public class SedApplication implements SedInterface {
 		}
 
 		Path filePath;
-		Path currentDir = Paths.get(Environment.currentDirectory);
+		Path currentDir = Paths.get(Environment.getCurrentDirectory());
 		try {
 			filePath = currentDir.resolve(fileName);
 		} catch (InvalidPathException e) {
@@ -142,10 +145,11 @@ public class SedApplication implements SedInterface {
 		try {
 			BufferedReader content = new BufferedReader(new FileReader(filePath.toFile()));
 			String line;
-			while ((line = content.readLine()) != null) {
+			while ((line = content.readLine()) != null && !Thread.currentThread().isInterrupted()) {
 				outputStr += getReplacedLine(pattern, replacement, replacementIndex, line);
 			}
 			content.close();
+			TerminationUtil.checkTerminated(SedException.class);
 
 		} catch (IOException e) {
 			throw new SedException("IOException: " + e);
@@ -186,6 +190,7 @@ public class SedApplication implements SedInterface {
 			BufferedReader content = new BufferedReader(inStream);
 			String line;
 			while ((line = content.readLine()) != null) {
+				TerminationUtil.checkTerminated(SedException.class);
 				outputStr += getReplacedLine(pattern, replacement, replacementIndex, line);
 			}
 
@@ -337,7 +342,8 @@ public class SedApplication implements SedInterface {
 		}
 
 		try {
-			Matcher matcher = Pattern.compile(pattern).matcher(line);
+			Pattern compiledPattern = PatternCache.compile(pattern);
+			Matcher matcher = compiledPattern.matcher(line);
 			for (int i = 0; i < replacementIndex; i++) {
 				matcher.find();
 			}
@@ -349,8 +355,8 @@ public class SedApplication implements SedInterface {
 				return line + OSUtil.NEWLINE;
 			}
 
-			return line.substring(0, matchedIndex) + line.substring(matchedIndex).replaceFirst(pattern, replacement)
-					+ OSUtil.NEWLINE;
+			return line.substring(0, matchedIndex)
+					+ compiledPattern.matcher(line.substring(matchedIndex)).replaceFirst(replacement) + OSUtil.NEWLINE;
 		} catch (PatternSyntaxException e) {
 			throw new SedException(e.getMessage());
 		}
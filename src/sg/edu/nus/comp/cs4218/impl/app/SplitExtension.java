@@ -67,13 +67,13 @@ public final class SplitExtension {
 	 */
 	public static String getAbsolutePath(String prefix) {
 		if (prefix == null) {
-			return Environment.currentDirectory + File.separator + "x";
+			return Environment.getCurrentDirectory() + File.separator + "x";
 		}
 		Path path = Paths.get(prefix);
 		if (path.isAbsolute()) {
 			return prefix;
 		} else {
-			return Environment.currentDirectory + File.separator + prefix;
+			return Environment.getCurrentDirectory() + File.separator + prefix;
 		}
 	}
 
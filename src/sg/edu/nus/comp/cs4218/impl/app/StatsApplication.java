@@ -0,0 +1,87 @@
+package sg.edu.nus.comp.cs4218.impl.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import sg.edu.nus.comp.cs4218.Application;
+import sg.edu.nus.comp.cs4218.exception.StatsException;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry;
+
+/**
+ * The stats command writes the metrics recorded by the shell on the standard
+ * output, as a report or as JSON, and turns recording on or off. The report is
+ * taken before "on", "off" or the reset take effect.
+ * 
+ * <p>
+ * <b>Command format:</b> <code>stats [-j] [-r] [on|off]</code>
+ * </p>
+ * <dl>
+ * <dt>-j</dt>
+ * <dd>write the metrics as a JSON object.</dd>
+ * <dt>-r</dt>
+ * <dd>clear the metrics once written.</dd>
+ * <dt>on|off</dt>
+ * <dd>start or stop recording metrics.</dd>
+ * </dl>
+ */
+public class StatsApplication implements Application {
+	public static final String EXP_INVALID_ARG = "Invalid argument: ";
+	public static final String ON = "on";
+	public static final String OFF = "off";
+
+	/**
+	 * Runs the stats application with the specified arguments.
+	 * 
+	 * @param args
+	 *            Array of arguments for the application.
+	 * @param stdin
+	 *            An InputStream, not used.
+	 * @param stdout
+	 *            An OutputStream the metrics are written to.
+	 * 
+	 * @throws StatsException
+	 *             If an argument is invalid or an I/O exception occurs.
+	 */
+	@Override
+	public void run(String[] args, InputStream stdin, OutputStream stdout) throws StatsException {
+		if (args == null) {
+			throw new StatsException("Null arguments");
+		}
+		if (stdout == null) {
+			throw new StatsException("OutputStream not provided");
+		}
+
+		boolean isJson = false;
+		boolean isReset = false;
+		Boolean enable = null;
+		for (int i = 0; i < args.length; i++) {
+			if ("-j".equals(args[i])) {
+				isJson = true;
+			} else if ("-r".equals(args[i])) {
+				isReset = true;
+			} else if (ON.equals(args[i])) {
+				enable = Boolean.TRUE;
+			} else if (OFF.equals(args[i])) {
+				enable = Boolean.FALSE;
+			} else {
+				throw new StatsException(EXP_INVALID_ARG + args[i]);
+			}
+		}
+
+		MetricsRegistry registry = MetricsRegistry.getDefault();
+		String report = isJson ? registry.toJson() : registry.toText(OSUtil.NEWLINE);
+		try {
+			stdout.write(report.getBytes());
+		} catch (IOException e) {
+			throw new StatsException("IOException");
+		}
+		if (isReset) {
+			registry.reset();
+		}
+		if (enable != null) {
+			MetricsRegistry.setEnabled(enable);
+		}
+	}
+}
@@ -1,17 +1,23 @@
 package sg.edu.nus.comp.cs4218.impl.cmd;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Arrays;
 import java.util.Vector;
-import java.util.stream.Stream;
 
 import sg.edu.nus.comp.cs4218.Command;
 import sg.edu.nus.comp.cs4218.Shell;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandLexer;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandToken;
 import sg.edu.nus.comp.cs4218.impl.commons.StreamUtil;
+import sg.edu.nus.comp.cs4218.impl.jfr.ShellEvents;
+import sg.edu.nus.comp.cs4218.impl.metrics.CountingInputStream;
+import sg.edu.nus.comp.cs4218.impl.metrics.CountingOutputStream;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Phase;
 
 /**
  * A Call Command is a sub-command consisting of at least one non-keyword and
@@ -23,6 +29,8 @@ import sg.edu.nus.comp.cs4218.impl.commons.StreamUtil;
  */
 
 public class CallCommand implements Command {
+	public static final String EXP_TERMINATED = "Terminated";
+
 	private final Shell shell;
 	private final CommandString cmdline;
 
@@ -31,6 +39,10 @@ public class CallCommand implements Command {
 	private InputStream inputStream;
 	private OutputStream outputStream;
 
+	private volatile boolean isTerminated;
+	private volatile boolean isStopped;
+	private Thread runningThread;
+
 	public CallCommand(Shell shell, CommandString cmdline) {
 		this.shell = shell;
 		this.cmdline = cmdline.trim();
@@ -54,7 +66,7 @@ public class CallCommand implements Command {
 	 *             If an exception happens while evaluating the application.
 	 * @throws ShellException
 	 *             If an exception happens while evaluating globing, IO redirection
-	 *             quoting or command substitution.
+	 *             quoting or command substitution, or if the command is terminated.
 	 */
 	@Override
 	public void evaluate(InputStream stdin, OutputStream stdout) throws AbstractApplicationException, ShellException {
@@ -64,11 +76,101 @@ public class CallCommand implements Command {
 		if (outputStream == null) { // empty
 			outputStream = stdout;
 		}
-		shell.runApp(app, argsArray, inputStream, outputStream);
+		synchronized (this) {
+			if (isTerminated) {
+				throw new ShellException(EXP_TERMINATED);
+			}
+			runningThread = Thread.currentThread();
+			if (isStopped) {
+				runningThread.interrupt();
+			}
+		}
+		try {
+			runApp();
+		} catch (AbstractApplicationException | ShellException e) {
+			closeRedirections(stdin, stdout, true);
+			if (isTerminated) {
+				throw new ShellException(EXP_TERMINATED);
+			}
+			throw e;
+		} finally {
+			synchronized (this) {
+				runningThread = null;
+				if (isTerminated || isStopped) {
+					// do not leak an interrupt meant for this command to the thread
+					Thread.interrupted();
+				}
+			}
+		}
+		closeRedirections(stdin, stdout, false);
 		StreamUtil.closeInputStream(stdin);
 		StreamUtil.closeOutputStream(stdout);
 	}
 
+	/**
+	 * Closes the files opened by IO redirection, which writes out the buffered
+	 * output of an output redirection.
+	 * 
+	 * @param isQuiet
+	 *            Whether to ignore failures, as when the application has already
+	 *            failed.
+	 * 
+	 * @throws ShellException
+	 *             If a file cannot be closed and isQuiet is false.
+	 */
+	private void closeRedirections(InputStream stdin, OutputStream stdout, boolean isQuiet) throws ShellException {
+		try {
+			if (inputStream != stdin) {
+				StreamUtil.closeInputStream(inputStream);
+			}
+		} catch (ShellException e) {
+			if (!isQuiet) {
+				throw e;
+			}
+		} finally {
+			try {
+				if (outputStream != stdout) {
+					StreamUtil.closeOutputStream(outputStream);
+				}
+			} catch (ShellException e) {
+				if (!isQuiet) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the application, counting the bytes it reads and writes if metrics or
+	 * Flight Recorder events are being recorded.
+	 */
+	private void runApp() throws AbstractApplicationException, ShellException {
+		ShellEvents.CallCommandRecord event = ShellEvents.newCallCommandEvent();
+		long startTime = MetricsRegistry.start();
+		if (startTime == 0L && !event.isEnabled()) {
+			shell.runApp(app, argsArray, inputStream, outputStream);
+			return;
+		}
+
+		event.begin();
+		CountingInputStream countingInput = inputStream == null ? null : new CountingInputStream(inputStream);
+		CountingOutputStream countingOutput = outputStream == null ? null : new CountingOutputStream(outputStream);
+		String recordedApp = app;
+		boolean isFailed = true;
+		try {
+			shell.runApp(app, argsArray, countingInput, countingOutput);
+			isFailed = false;
+		} catch (ShellException e) {
+			recordedApp = null; // not an application, keep it out of the per application report
+			throw e;
+		} finally {
+			long bytesIn = countingInput == null ? 0 : countingInput.getCount();
+			long bytesOut = countingOutput == null ? 0 : countingOutput.getCount();
+			MetricsRegistry.stopApp(recordedApp, startTime, bytesIn, bytesOut);
+			event.end(app, argsArray.length, bytesIn, bytesOut, isFailed);
+		}
+	}
+
 	/**
 	 * Parses and splits the sub-command to the call command into its different
 	 * components, namely the application name and the arguments (if any).
@@ -79,51 +181,94 @@ public class CallCommand implements Command {
 	 */
 	public void parse() throws AbstractApplicationException, ShellException {
 		// remove IO args from cmdline. Cmdsub and glob have to be done within IORedir.
+		long startTime = MetricsRegistry.start();
 		inputStream = shell.getInputStream(cmdline);
 		outputStream = shell.getOutputStream(cmdline);
+		MetricsRegistry.stop(Phase.IO_REDIR, startTime);
+		startTime = MetricsRegistry.start();
 		shell.performCmdSub(cmdline);
+		MetricsRegistry.stop(Phase.CMDSUB, startTime);
+		startTime = MetricsRegistry.start();
 		shell.performGlob(cmdline);
+		MetricsRegistry.stop(Phase.GLOB, startTime);
 		extractArgs();
 	}
 
 	/**
 	 * Parses the sub-command's arguments to the call command and splits it into its
 	 * different components, namely the application name and the arguments (if any)
-	 * separated by an unescaped space. All operations that manipulates the
+	 * separated by unescaped whitespace. All operations that manipulates the
 	 * arguments, such as removing quotes, extracting IO redirection, command
 	 * subtitution and globbing, are assumed to be processed.
 	 */
 	private void extractArgs() {
-		Integer[] spaceIndices = cmdline.getIndicesOfCharNotEscaped(' ');
-		Integer[] tabIndices = cmdline.getIndicesOfCharNotEscaped('\t');
-		Integer[] sepIndices = Stream.of(spaceIndices, tabIndices).flatMap(Stream::of).toArray(Integer[]::new);
-		Arrays.sort(sepIndices);
-
-		if (sepIndices.length == 0) {
+		CommandToken[] tokens = CommandLexer.tokenize(cmdline);
+		if (tokens.length == 0) {
 			app = cmdline.toString();
 			return;
 		}
-		app = cmdline.substring(0, sepIndices[0]).toString();
 
 		Vector<String> cmdArgs = new Vector<String>();
-		int startIndex = sepIndices[0] + 1;
-		for (int i = 1; i < sepIndices.length; i++) {
-			if (startIndex != sepIndices[i]) {
-				cmdArgs.add(cmdline.substring(startIndex, sepIndices[i]).toString());
+		int index = 0;
+		while (index < tokens.length) {
+			int beginIndex = tokens[index].getBeginIndex();
+			int endIndex = tokens[index].getEndIndex();
+			index++;
+			while (index < tokens.length && tokens[index].getBeginIndex() == endIndex) {
+				endIndex = tokens[index].getEndIndex();
+				index++;
 			}
-			startIndex = sepIndices[i] + 1;
-		}
-		if (startIndex < cmdline.length()) {
-			cmdArgs.add(cmdline.substring(startIndex, cmdline.length()).toString());
+			cmdArgs.add(cmdline.substring(beginIndex, endIndex).toString());
 		}
+		app = cmdArgs.remove(0);
 		argsArray = cmdArgs.toArray(new String[cmdArgs.size()]);
 	}
 
 	/**
-	 * Terminates current execution of the command (unused for now)
+	 * Returns true if the command has been terminated.
+	 */
+	public boolean isTerminated() {
+		return isTerminated;
+	}
+
+	/**
+	 * Terminates current execution of the command. The thread running the
+	 * application is interrupted and the input stream of the command is closed,
+	 * so that applications stop at their next read. A command terminated before
+	 * it is evaluated does not run at all.
 	 */
 	@Override
 	public void terminate() {
-		// unused for now
+		synchronized (this) {
+			isTerminated = true;
+			if (runningThread != null) {
+				runningThread.interrupt();
+			}
+		}
+		try {
+			if (inputStream != null && inputStream != System.in) {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			// already closed
+		}
+	}
+
+	/**
+	 * Stops current execution of the command because its output is no longer
+	 * needed, as when the reader of its pipe has closed. The thread running the
+	 * application is interrupted, so that applications stop at their next check
+	 * for termination. Unlike terminate, the exception the application stops
+	 * with is thrown as it is, so that a real error can be told apart from the
+	 * stop. A command stopped before it is evaluated still runs, interrupted from
+	 * the start, so that an error it meets before its first check is reported.
+	 */
+	public void stop() {
+		synchronized (this) {
+			isStopped = true;
+			if (runningThread != null) {
+				runningThread.interrupt();
+			}
+		}
 	}
 }
@@ -0,0 +1,56 @@
+package sg.edu.nus.comp.cs4218.impl.cmd;
+
+import sg.edu.nus.comp.cs4218.Shell;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+
+/**
+ * A ParsedCommand is the immutable syntax tree of a quote processed command
+ * line: the sequence of pipe commands separated by semicolons, each made up of
+ * the call commands separated by pipes. Since it does not depend on the file
+ * system, a ParsedCommand can be evaluated any number of times, by any number
+ * of shells at once. IO redirection, command substitution and globbing are
+ * done when each call command is evaluated.
+ */
+public final class ParsedCommand {
+	private final CommandString[][] pipeCmds;
+
+	ParsedCommand(CommandString[][] pipeCmds) {
+		this.pipeCmds = pipeCmds;
+	}
+
+	/**
+	 * Parses the specified quote processed command line. A pipe command with
+	 * invalid pipe operators is kept, and only fails when it is reached during
+	 * evaluation, after the commands before it have run.
+	 *
+	 * @param shell
+	 *            Shell used to parse the command line.
+	 * @param cmdline
+	 *            CommandString of the command line with its quotes processed.
+	 *
+	 * @throws ShellException
+	 *             If the semicolon operators are invalid.
+	 */
+	public static ParsedCommand parse(Shell shell, CommandString cmdline) throws ShellException {
+		SeqCommand seqCmd = new SeqCommand(shell, cmdline);
+		seqCmd.parse();
+		return seqCmd.getParsedCommand();
+	}
+
+	/**
+	 * Returns the number of pipe commands in the sequence.
+	 */
+	public int size() {
+		return pipeCmds.length;
+	}
+
+	/**
+	 * Returns the call commands of the pipe command at the specified index, or
+	 * null if the pipe command has invalid pipe operators. The returned
+	 * CommandStrings must not be modified.
+	 */
+	CommandString[] getCallCommands(int index) {
+		return pipeCmds[index];
+	}
+}
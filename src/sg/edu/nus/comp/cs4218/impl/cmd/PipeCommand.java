@@ -1,18 +1,28 @@
 package sg.edu.nus.comp.cs4218.impl.cmd;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Arrays;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.CommandExecutor;
+import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.Shell;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.commons.BoundedPipe;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandLexer;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
-import sg.edu.nus.comp.cs4218.impl.commons.StreamUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandToken;
+import sg.edu.nus.comp.cs4218.impl.commons.SpillBuffer;
+import sg.edu.nus.comp.cs4218.impl.jfr.ShellEvents;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Phase;
 
 /**
  * A Pipe Command is a left-associative operator consisting of call/pipe and
@@ -29,18 +39,44 @@ public class PipeCommand implements Command {
 
 	private final Shell shell;
 	private final CommandString cmdline;
+	private final CommandToken[] cmdTokens;
 	private CommandString[] argsArray;
 
+	private volatile boolean isTerminated;
+	private volatile CallCommand[] callCommands = new CallCommand[0];
+
 	public PipeCommand(Shell shell, CommandString cmdline) {
+		this(shell, cmdline, null);
+	}
+
+	/**
+	 * Creates a pipe command from a command already split into tokens, with the
+	 * token indices relative to the trimmed command.
+	 */
+	PipeCommand(Shell shell, CommandString cmdline, CommandToken[] cmdTokens) {
 		this.shell = shell;
 		this.cmdline = cmdline.trim();
+		this.cmdTokens = cmdTokens;
 		argsArray = new CommandString[0];
 	}
 
+	/**
+	 * Creates a pipe command from its already parsed call commands, which are not
+	 * modified.
+	 */
+	PipeCommand(Shell shell, CommandString[] argsArray) {
+		this.shell = shell;
+		this.cmdline = new CommandString();
+		this.cmdTokens = null;
+		this.argsArray = argsArray;
+	}
+
 	/**
 	 * Evaluates the separated commands by pipe and pipe the output of the preceding
 	 * sub command to the input of the current sub command. If an exception occurs
-	 * on a sub command, any sub commands after it will not be processed.
+	 * on a sub command, any sub commands after it will not be processed. If
+	 * Environment.isPipeStreaming is set, the sub commands are evaluated
+	 * concurrently instead (see evaluateStreaming).
 	 * 
 	 * @param stdin
 	 *            InputStream to get data from.
@@ -59,25 +95,163 @@ public class PipeCommand implements Command {
 		if (argsArray.length == 0) {
 			return;
 		}
+		boolean isStreaming = Environment.isPipeStreaming;
+		ShellEvents.PipeCommandRecord event = ShellEvents.newPipeCommandEvent();
+		event.begin();
+		long startTime = MetricsRegistry.start();
+		boolean isFailed = true;
+		try {
+			if (isStreaming) {
+				evaluateStreaming(stdin, stdout);
+			} else {
+				evaluateBuffered(stdin, stdout);
+			}
+			isFailed = false;
+		} finally {
+			MetricsRegistry.stop(Phase.PIPE, startTime);
+			if (event.shouldCommit()) {
+				event.end(joinCallCommands(), argsArray.length, isStreaming, isFailed);
+			}
+		}
+	}
+
+	/**
+	 * Returns the call commands of the pipe joined by pipe operators.
+	 */
+	private String joinCallCommands() {
+		StringBuilder command = new StringBuilder();
+		for (int i = 0; i < argsArray.length; i++) {
+			if (i > 0) {
+				command.append(" | ");
+			}
+			command.append(argsArray[i].toString().trim());
+		}
+		return command.toString();
+	}
+
+	/**
+	 * Evaluates the sub commands one after the other, each reading the whole
+	 * output of the sub command before it from a SpillBuffer, which moves to disk
+	 * once it holds more than Environment.pipeBufferLimit bytes.
+	 */
+	private void evaluateBuffered(InputStream stdin, OutputStream stdout)
+			throws AbstractApplicationException, ShellException {
+		SpillBuffer outputBuffer = new SpillBuffer(Environment.pipeBufferLimit);
+		try {
+			CallCommand callCommand = new CallCommand(shell, argsArray[0]);
+			callCommand.parse();
+			runCallCommand(callCommand, stdin, outputBuffer);
+
+			for (int i = 1; i < argsArray.length; i++) {
+				SpillBuffer inputBuffer = outputBuffer;
+				outputBuffer = new SpillBuffer(Environment.pipeBufferLimit);
+				try (InputStream inputStream = inputBuffer.getInputStream()) {
+					callCommand = new CallCommand(shell, argsArray[i]);
+					callCommand.parse();
+					runCallCommand(callCommand, inputStream, outputBuffer);
+				} catch (IOException e) {
+					throw new ShellException(e.getMessage());
+				} finally {
+					inputBuffer.delete();
+				}
+			}
+
+			outputBuffer.writeTo(stdout);
+		} catch (IOException e) {
+			throw new ShellException("Error writing to stdout.");
+		} finally {
+			outputBuffer.delete();
+		}
+	}
+
+	/**
+	 * Evaluates a sub command of a buffered pipe unless the pipe has been
+	 * terminated.
+	 * 
+	 * @throws ShellException
+	 *             If the pipe is terminated.
+	 */
+	private void runCallCommand(CallCommand callCommand, InputStream stdin, OutputStream stdout)
+			throws AbstractApplicationException, ShellException {
+		callCommands = new CallCommand[] { callCommand };
+		if (isTerminated) {
+			callCommand.terminate();
+		}
+		callCommand.evaluate(stdin, stdout);
+	}
+
+	/**
+	 * Evaluates all the separated commands at the same time, each upstream sub
+	 * command on a thread of the shell's executor, bound to the shell context of
+	 * the calling thread, and the last one on the calling thread. Adjacent sub
+	 * commands are connected by a BoundedPipe, so memory use does not grow with
+	 * the size of the data and output is written to stdout as soon as the last
+	 * sub command produces it. All sub commands are parsed before any of them
+	 * runs. When a sub command closes its input, the sub command before it is
+	 * stopped, and a sub command failing because it wrote to a pipe the sub
+	 * command after it has stopped reading, or because it was stopped, is not an
+	 * error (like SIGPIPE). Otherwise the exception of the first failing sub
+	 * command is thrown once all of them have finished, even if the sub command
+	 * after it has stopped reading.
+	 * 
+	 * @param stdin
+	 *            InputStream to get data from.
+	 * @param stdout
+	 *            OutputStream to write resultant data to.
+	 * 
+	 * @throws AbstractApplicationException
+	 *             If an exception happens while evaluating the sub-command of pipe
+	 *             commands.
+	 * @throws ShellException
+	 *             If an exception happens while evaluating the sub-command of pipe
+	 *             commands.
+	 */
+	private void evaluateStreaming(InputStream stdin, OutputStream stdout)
+			throws AbstractApplicationException, ShellException {
+		CallCommand[] stageCommands = new CallCommand[argsArray.length];
+		PipeStage[] stages = new PipeStage[argsArray.length];
+		for (int i = 0; i < argsArray.length; i++) {
+			stageCommands[i] = new CallCommand(shell, argsArray[i]);
+			stageCommands[i].parse();
+			stages[i] = new PipeStage(stageCommands[i]);
+		}
+		callCommands = stageCommands;
+		if (isTerminated) {
+			terminate();
+		}
 
 		InputStream inputStream = stdin;
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-		CommandString command = argsArray[0];
-		CallCommand callCommand = new CallCommand(shell, command);
-		callCommand.parse();
-		callCommand.evaluate(inputStream, outputStream);
+		BoundedPipe inputPipe = null;
+		for (int i = 0; i < stages.length - 1; i++) {
+			BoundedPipe pipe = new BoundedPipe();
+			final PipeStage writer = stages[i];
+			pipe.setReaderClosedListener(new Runnable() {
+				@Override
+				public void run() {
+					writer.stop();
+				}
+			});
+			stages[i].connect(inputStream, inputPipe, pipe.getOutputStream(), pipe);
+			inputStream = pipe.getInputStream();
+			inputPipe = pipe;
+		}
+		stages[stages.length - 1].connect(inputStream, inputPipe, new UnclosableOutputStream(stdout), null);
 
-		for (int i = 1; i < argsArray.length; i++) {
-			inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-			outputStream = new ByteArrayOutputStream();
+		CommandExecutor executor = shell.getExecutor();
+		ShellContext context = ShellContext.current();
+		Vector<Future<Void>> futures = new Vector<Future<Void>>();
+		for (int i = 0; i < stages.length - 1; i++) {
+			futures.add(executor.submit(context.wrap(stages[i])));
+		}
+		stages[stages.length - 1].call();
 
-			callCommand = new CallCommand(shell, argsArray[i]);
-			callCommand.parse();
-			callCommand.evaluate(inputStream, outputStream);
+		for (int i = 0; i < futures.size(); i++) {
+			executor.await(futures.get(i));
 		}
 
-		StreamUtil.writeToStdout(outputStream, stdout);
-		return;
+		for (int i = 0; i < stages.length; i++) {
+			stages[i].rethrow();
+		}
 	}
 
 	/**
@@ -88,41 +262,161 @@ public class PipeCommand implements Command {
 	 *             command between pipes.
 	 */
 	public void parse() throws ShellException {
-		Integer[] spaceIndices = cmdline.getIndicesOfCharNotEscaped('|');
-		if (spaceIndices.length == 0) {
-			argsArray = new CommandString[] { cmdline };
-			return;
-		}
-
-		Arrays.sort(spaceIndices);
+		CommandToken[] tokens = cmdTokens == null ? CommandLexer.tokenize(cmdline) : cmdTokens;
 		Vector<CommandString> cmdArgs = new Vector<CommandString>();
 		int startIndex = 0;
-		for (int i = 0; i < spaceIndices.length; i++) {
-			CommandString callCmd = cmdline.substring(startIndex, spaceIndices[i]);
-			if (callCmd.trim().length() == 0) {
+		int startToken = 0;
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokens[i].getType() != CommandToken.Type.PIPE) {
+				continue;
+			}
+			if (startToken == i) {
 				throw new ShellException(EXP_INVALID_PIPE);
 			}
-			cmdArgs.add(callCmd);
-			startIndex = spaceIndices[i] + 1;
-		}
-		if (startIndex >= cmdline.length()) {
-			throw new ShellException(EXP_INVALID_PIPE);
+			cmdArgs.add(cmdline.substring(startIndex, tokens[i].getBeginIndex()));
+			startIndex = tokens[i].getEndIndex();
+			startToken = i + 1;
 		}
-
-		CommandString callCmd = cmdline.substring(startIndex, cmdline.length());
-		if (callCmd.trim().length() == 0) {
+		if (startToken == tokens.length && startIndex > 0) {
 			throw new ShellException(EXP_INVALID_PIPE);
 		}
-		cmdArgs.add(callCmd);
+		cmdArgs.add(cmdline.substring(startIndex, cmdline.length()));
 
 		argsArray = cmdArgs.toArray(new CommandString[cmdArgs.size()]);
 	}
 
 	/**
-	 * Terminates current execution of the command (unused for now)
+	 * Returns the call commands split by parse.
+	 */
+	CommandString[] getCallCommands() {
+		return argsArray;
+	}
+
+	/**
+	 * Terminates current execution of the command by terminating the sub commands
+	 * currently running. Sub commands that have not started will not run.
 	 */
 	@Override
 	public void terminate() {
-		// unused for now
+		isTerminated = true;
+		CallCommand[] running = callCommands;
+		for (int i = 0; i < running.length; i++) {
+			running[i].terminate();
+		}
+	}
+
+	/**
+	 * A sub command of a streaming pipe together with the streams it is connected
+	 * to and the exception it ended with, if any.
+	 */
+	private static class PipeStage implements Callable<Void> {
+		private final CallCommand callCommand;
+		private InputStream inputStream;
+		private BoundedPipe inputPipe;
+		private OutputStream outputStream;
+		private BoundedPipe outputPipe;
+		private AbstractApplicationException appException;
+		private ShellException shellException;
+		private volatile boolean isStoppedByReader;
+
+		PipeStage(CallCommand callCommand) {
+			this.callCommand = callCommand;
+		}
+
+		void connect(InputStream inputStream, BoundedPipe inputPipe, OutputStream outputStream,
+				BoundedPipe outputPipe) {
+			this.inputStream = inputStream;
+			this.inputPipe = inputPipe;
+			this.outputStream = outputStream;
+			this.outputPipe = outputPipe;
+		}
+
+		/**
+		 * Stops this stage because downstream has stopped reading its output.
+		 */
+		void stop() {
+			isStoppedByReader = true;
+			callCommand.stop();
+		}
+
+		@Override
+		public Void call() {
+			try {
+				callCommand.evaluate(inputStream, outputStream);
+			} catch (AbstractApplicationException e) {
+				appException = e;
+			} catch (ShellException e) {
+				shellException = e;
+			} finally {
+				// always release both pipes so that neighbouring stages cannot block
+				closeQuietly();
+			}
+			if (isBrokenPipe() || isStoppedByReader && isStopError()) {
+				appException = null;
+				shellException = null;
+			}
+			return null;
+		}
+
+		/**
+		 * Returns true if this stage failed only because downstream stopped
+		 * reading: a write to its output pipe was refused.
+		 */
+		private boolean isBrokenPipe() {
+			return outputPipe != null && outputPipe.isWriteRefused();
+		}
+
+		/**
+		 * Returns true if this stage failed the way a stopped stage does: it
+		 * reported that it was terminated, or a read of its input pipe was
+		 * interrupted. Other errors are kept even if the stage was stopped.
+		 */
+		private boolean isStopError() {
+			return isTerminatedError(appException) || isTerminatedError(shellException)
+					|| inputPipe != null && inputPipe.isReadInterrupted();
+		}
+
+		private static boolean isTerminatedError(Exception exception) {
+			return exception != null && String.valueOf(exception.getMessage()).endsWith(CallCommand.EXP_TERMINATED);
+		}
+
+		void rethrow() throws AbstractApplicationException, ShellException {
+			if (appException != null) {
+				throw appException;
+			}
+			if (shellException != null) {
+				throw shellException;
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				if (inputStream != System.in) {
+					inputStream.close();
+				}
+				outputStream.close();
+			} catch (IOException e) {
+				// already closed
+			}
+		}
+	}
+
+	/**
+	 * Wraps the stdout of the pipe so that the last sub command cannot close it.
+	 */
+	private static class UnclosableOutputStream extends FilterOutputStream {
+		UnclosableOutputStream(OutputStream outputStream) {
+			super(outputStream);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException {
+			out.write(bytes, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
 	}
 }
@@ -3,15 +3,18 @@ package sg.edu.nus.comp.cs4218.impl.cmd;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Arrays;
 import java.util.Vector;
 
 import sg.edu.nus.comp.cs4218.Command;
 import sg.edu.nus.comp.cs4218.Shell;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandLexer;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandToken;
 import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Phase;
 
 /**
  * A Sequence Command is a semicolon operator consisting of commands
@@ -28,16 +31,32 @@ public class SeqCommand implements Command {
 	private final CommandString cmdline;
 
 	private CommandString[] argsArray;
+	private ParsedCommand parsedCommand;
+
+	private volatile boolean isTerminated;
+	private volatile PipeCommand runningPipeCmd;
 
 	public SeqCommand(Shell shell, CommandString cmdline) {
 		this.shell = shell;
 		this.cmdline = cmdline.trim();
 		argsArray = new CommandString[0];
+		parsedCommand = new ParsedCommand(new CommandString[0][]);
+	}
+
+	/**
+	 * Creates a sequence command that evaluates an already parsed command line.
+	 */
+	public SeqCommand(Shell shell, ParsedCommand parsedCommand) {
+		this.shell = shell;
+		this.cmdline = new CommandString();
+		argsArray = new CommandString[0];
+		this.parsedCommand = parsedCommand;
 	}
 
 	/**
 	 * Evaluates the separated commands by semicolon sequentially. If an exception
-	 * occurs on a sub command, any sub commands after it will not be processed.
+	 * occurs on a sub command or the command is terminated, any sub commands after
+	 * it will not be processed.
 	 * 
 	 * @param stdin
 	 *            InputStream to get data from.
@@ -53,16 +72,30 @@ public class SeqCommand implements Command {
 	 */
 	@Override
 	public void evaluate(InputStream stdin, OutputStream stdout) throws AbstractApplicationException, ShellException {
-		if (argsArray.length == 0) {
-			return;
+		long startTime = MetricsRegistry.start();
+		try {
+			evaluateSequence(stdin, stdout);
+		} finally {
+			MetricsRegistry.stop(Phase.SEQ, startTime);
 		}
+	}
 
-		for (int i = 0; i < argsArray.length; i++) {
-			PipeCommand pipeCmd = new PipeCommand(shell, argsArray[i]);
-			pipeCmd.parse();
+	private void evaluateSequence(InputStream stdin, OutputStream stdout)
+			throws AbstractApplicationException, ShellException {
+		int size = parsedCommand.size();
+		for (int i = 0; i < size; i++) {
+			CommandString[] callCmds = parsedCommand.getCallCommands(i);
+			PipeCommand pipeCmd = new PipeCommand(shell, callCmds == null ? new CommandString[0] : callCmds);
+			runningPipeCmd = pipeCmd;
+			if (isTerminated) {
+				throw new ShellException(CallCommand.EXP_TERMINATED);
+			}
+			if (callCmds == null) {
+				throw new ShellException(PipeCommand.EXP_INVALID_PIPE);
+			}
 			pipeCmd.evaluate(stdin, stdout);
 
-			if (i < argsArray.length - 1) {
+			if (i < size - 1) {
 				try {
 					stdout.write(OSUtil.NEWLINE.getBytes());
 				} catch (IOException e1) {
@@ -73,45 +106,71 @@ public class SeqCommand implements Command {
 	}
 
 	/**
-	 * Parses and splits the commands separated by unescaped semicolon.
+	 * Parses and splits the commands separated by unescaped semicolon, then parses
+	 * each of them as a pipe command from its tokens, so that no part of the
+	 * command is scanned twice. A pipe command with invalid pipe operators only
+	 * fails when it is evaluated.
 	 * 
 	 * @throws ShellException
 	 *             If the command starts with a semicolon or if there are no command
 	 *             between semicolons.
 	 */
 	public void parse() throws ShellException {
-		Integer[] spaceIndices = cmdline.getIndicesOfCharNotEscaped(';');
-		if (spaceIndices.length == 0) {
-			argsArray = new CommandString[] { cmdline };
-			return;
-		}
-
-		Arrays.sort(spaceIndices);
+		CommandToken[] tokens = CommandLexer.tokenize(cmdline);
 		Vector<CommandString> cmdArgs = new Vector<CommandString>();
+		Vector<CommandToken[]> cmdTokens = new Vector<CommandToken[]>();
 		int startIndex = 0;
-		for (int i = 0; i < spaceIndices.length; i++) {
-			CommandString pipeCmd = cmdline.substring(startIndex, spaceIndices[i]);
-			if (pipeCmd.trim().length() == 0) {
+		int startToken = 0;
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokens[i].getType() != CommandToken.Type.SEMICOLON) {
+				continue;
+			}
+			if (startToken == i) {
 				throw new ShellException(EXP_INVALID_SEQ);
 			}
-			cmdArgs.add(pipeCmd);
-			startIndex = spaceIndices[i] + 1;
+			cmdArgs.add(cmdline.substring(startIndex, tokens[i].getBeginIndex()));
+			cmdTokens.add(CommandLexer.subTokens(tokens, startToken, i));
+			startIndex = tokens[i].getEndIndex();
+			startToken = i + 1;
 		}
-		if (startIndex < cmdline.length()) {
-			CommandString pipeCmd = cmdline.substring(startIndex, cmdline.length());
-			if (pipeCmd.trim().length() != 0) {
-				cmdArgs.add(pipeCmd);
-			}
+		if (startToken < tokens.length || startIndex == 0) {
+			cmdArgs.add(cmdline.substring(startIndex, cmdline.length()));
+			cmdTokens.add(CommandLexer.subTokens(tokens, startToken, tokens.length));
 		}
 
 		argsArray = cmdArgs.toArray(new CommandString[cmdArgs.size()]);
+
+		CommandString[][] pipeCmds = new CommandString[argsArray.length][];
+		for (int i = 0; i < argsArray.length; i++) {
+			PipeCommand pipeCmd = new PipeCommand(shell, argsArray[i], cmdTokens.get(i));
+			try {
+				pipeCmd.parse();
+				pipeCmds[i] = pipeCmd.getCallCommands();
+			} catch (ShellException e) {
+				pipeCmds[i] = null;
+			}
+		}
+		parsedCommand = new ParsedCommand(pipeCmds);
+	}
+
+	/**
+	 * Returns the parsed form of this command, which can be evaluated again
+	 * without parsing.
+	 */
+	public ParsedCommand getParsedCommand() {
+		return parsedCommand;
 	}
 
 	/**
-	 * Terminates current execution of the command (unused for now)
+	 * Terminates current execution of the command by terminating the running sub
+	 * command. The sub commands after it will not be processed.
 	 */
 	@Override
 	public void terminate() {
-		// unused for now
+		isTerminated = true;
+		PipeCommand pipeCmd = runningPipeCmd;
+		if (pipeCmd != null) {
+			pipeCmd.terminate();
+		}
 	}
 }
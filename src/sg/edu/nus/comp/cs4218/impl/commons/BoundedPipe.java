@@ -0,0 +1,257 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * A BoundedPipe is an in-memory channel of fixed capacity connecting a writer
+ * and a reader running on different threads. Writes block while the pipe is
+ * full and reads block while it is empty, so the memory used by a pipe never
+ * exceeds its capacity regardless of how much data flows through it.
+ *
+ * <p>
+ * Closing the output end signals end of stream to the reader once the pipe is
+ * drained. Closing the input end makes any further write fail with a broken
+ * pipe IOException, after which isWriteRefused returns true, and runs the
+ * reader-closed listener, if any, so that the writer can be stopped before
+ * its next write.
+ * </p>
+ */
+public class BoundedPipe {
+	public static final int DEFAULT_CAPACITY = 64 * 1024;
+	public static final String EXP_BROKEN_PIPE = "Broken pipe";
+	public static final String EXP_STREAM_CLOSED = "Stream closed";
+
+	private final byte[] buffer;
+	private final InputStream inputStream;
+	private final OutputStream outputStream;
+
+	private volatile Runnable readerClosedListener;
+
+	private int readIndex;
+	private int count;
+	private boolean isWriterClosed;
+	private boolean isReaderClosed;
+	private boolean isWriteRefused;
+	private boolean isReadInterrupted;
+
+	public BoundedPipe() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public BoundedPipe(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Pipe capacity must be positive");
+		}
+		buffer = new byte[capacity];
+		inputStream = new PipeInputStream();
+		outputStream = new PipeOutputStream();
+	}
+
+	/**
+	 * Returns the reading end of this pipe.
+	 */
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	/**
+	 * Returns the writing end of this pipe.
+	 */
+	public OutputStream getOutputStream() {
+		return outputStream;
+	}
+
+	/**
+	 * Sets the listener to be run once when the reading end of this pipe is
+	 * closed, for example to stop the writer early when the reader no longer
+	 * needs its data.
+	 */
+	public void setReaderClosedListener(Runnable listener) {
+		readerClosedListener = listener;
+	}
+
+	/**
+	 * Returns true if the reading end of this pipe has been closed.
+	 */
+	public synchronized boolean isReaderClosed() {
+		return isReaderClosed;
+	}
+
+	/**
+	 * Returns true if a write has failed because the reading end of this pipe
+	 * was closed.
+	 */
+	public synchronized boolean isWriteRefused() {
+		return isWriteRefused;
+	}
+
+	/**
+	 * Returns true if a read has failed because the reader was interrupted while
+	 * waiting for data.
+	 */
+	public synchronized boolean isReadInterrupted() {
+		return isReadInterrupted;
+	}
+
+	/**
+	 * Writes len bytes from the specified byte array starting at offset off,
+	 * blocking while the pipe is full.
+	 *
+	 * @throws IOException
+	 *             If either end of the pipe is closed or the writer is interrupted.
+	 */
+	private synchronized void write(byte[] bytes, int off, int len) throws IOException {
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0) {
+			while (count == buffer.length && !isReaderClosed && !isWriterClosed) {
+				awaitChange();
+			}
+			if (isReaderClosed) {
+				isWriteRefused = true;
+				throw new IOException(EXP_BROKEN_PIPE);
+			}
+			if (isWriterClosed) {
+				throw new IOException(EXP_STREAM_CLOSED);
+			}
+
+			int writeIndex = (readIndex + count) % buffer.length;
+			int chunk = Math.min(remaining, Math.min(buffer.length - count, buffer.length - writeIndex));
+			System.arraycopy(bytes, offset, buffer, writeIndex, chunk);
+			count += chunk;
+			offset += chunk;
+			remaining -= chunk;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Reads up to len bytes into the specified byte array starting at offset off,
+	 * blocking while the pipe is empty and the writer is still open.
+	 *
+	 * @return int Number of bytes read, or -1 if the writer is closed and the pipe
+	 *         is drained.
+	 * @throws IOException
+	 *             If the reading end is closed or the reader is interrupted.
+	 */
+	private synchronized int read(byte[] bytes, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (count == 0 && !isWriterClosed && !isReaderClosed) {
+			try {
+				awaitChange();
+			} catch (InterruptedIOException e) {
+				isReadInterrupted = true;
+				throw e;
+			}
+		}
+		if (isReaderClosed) {
+			throw new IOException(EXP_STREAM_CLOSED);
+		}
+		if (count == 0) {
+			return -1;
+		}
+
+		int chunk = Math.min(len, Math.min(count, buffer.length - readIndex));
+		System.arraycopy(buffer, readIndex, bytes, off, chunk);
+		readIndex = (readIndex + chunk) % buffer.length;
+		count -= chunk;
+		notifyAll();
+		return chunk;
+	}
+
+	private synchronized int available() {
+		return isReaderClosed ? 0 : count;
+	}
+
+	private synchronized void closeWriter() {
+		isWriterClosed = true;
+		notifyAll();
+	}
+
+	/**
+	 * Closes the reading end of this pipe.
+	 *
+	 * @return boolean True if the reading end was open before.
+	 */
+	private synchronized boolean closeReader() {
+		boolean wasOpen = !isReaderClosed;
+		isReaderClosed = true;
+		count = 0;
+		notifyAll();
+		return wasOpen;
+	}
+
+	/**
+	 * Waits for the other end of the pipe to change the state of the pipe.
+	 *
+	 * @throws InterruptedIOException
+	 *             If the waiting thread is interrupted.
+	 */
+	private void awaitChange() throws InterruptedIOException {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Pipe interrupted");
+		}
+	}
+
+	private class PipeInputStream extends InputStream {
+		private final byte[] single = new byte[1];
+
+		@Override
+		public int read() throws IOException {
+			int result = BoundedPipe.this.read(single, 0, 1);
+			return result == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			if (off < 0 || len < 0 || len > bytes.length - off) {
+				throw new IndexOutOfBoundsException();
+			}
+			return BoundedPipe.this.read(bytes, off, len);
+		}
+
+		@Override
+		public int available() {
+			return BoundedPipe.this.available();
+		}
+
+		@Override
+		public void close() {
+			Runnable listener = readerClosedListener;
+			if (closeReader() && listener != null) {
+				listener.run();
+			}
+		}
+	}
+
+	private class PipeOutputStream extends OutputStream {
+		private final byte[] single = new byte[1];
+
+		@Override
+		public void write(int byteValue) throws IOException {
+			single[0] = (byte) byteValue;
+			BoundedPipe.this.write(single, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException {
+			if (off < 0 || len < 0 || len > bytes.length - off) {
+				throw new IndexOutOfBoundsException();
+			}
+			BoundedPipe.this.write(bytes, off, len);
+		}
+
+		@Override
+		public void close() {
+			closeWriter();
+		}
+	}
+}
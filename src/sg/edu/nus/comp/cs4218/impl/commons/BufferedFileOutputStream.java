@@ -0,0 +1,139 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A BufferedFileOutputStream is a FileOutputStream that collects small writes
+ * in a buffer and writes them to the file in large blocks, so that an
+ * application writing a redirected file a line or a byte at a time does not
+ * make a system call per write. Writes at least as large as the buffer go to
+ * the file directly.
+ *
+ * <p>
+ * It remains a FileOutputStream so that applications can still transfer bytes
+ * to its channel: getChannel writes out the buffer first, so bytes written to
+ * the channel follow the bytes written to the stream before it was requested.
+ * If sync is set, close forces the bytes to the storage device before closing
+ * the file.
+ * </p>
+ */
+public class BufferedFileOutputStream extends FileOutputStream {
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	public static final String EXP_STREAM_CLOSED = "Stream closed";
+
+	private final byte[] buffer;
+	private final boolean isSync;
+	private int count;
+	private boolean isClosed;
+
+	public BufferedFileOutputStream(File file) throws FileNotFoundException {
+		this(file, DEFAULT_BUFFER_SIZE, false);
+	}
+
+	/**
+	 * @param file
+	 *            File to be written, created or truncated.
+	 * @param bufferSize
+	 *            Number of bytes collected before they are written to the file.
+	 * @param isSync
+	 *            Whether close forces the bytes to the storage device.
+	 *
+	 * @throws FileNotFoundException
+	 *             If the file cannot be opened for writing.
+	 */
+	public BufferedFileOutputStream(File file, int bufferSize, boolean isSync) throws FileNotFoundException {
+		super(file);
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive");
+		}
+		buffer = new byte[bufferSize];
+		this.isSync = isSync;
+	}
+
+	@Override
+	public synchronized void write(int byteValue) throws IOException {
+		ensureOpen();
+		if (count == buffer.length) {
+			flushBuffer();
+		}
+		buffer[count++] = (byte) byteValue;
+	}
+
+	@Override
+	public void write(byte[] bytes) throws IOException {
+		write(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public synchronized void write(byte[] bytes, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || len > bytes.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len >= buffer.length) {
+			flushBuffer();
+			super.write(bytes, off, len);
+			return;
+		}
+		if (len > buffer.length - count) {
+			flushBuffer();
+		}
+		System.arraycopy(bytes, off, buffer, count, len);
+		count += len;
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		flushBuffer();
+	}
+
+	/**
+	 * Returns the channel of the file after writing out the buffer.
+	 */
+	@Override
+	public synchronized FileChannel getChannel() {
+		try {
+			flushBuffer();
+		} catch (IOException e) {
+			// reported again by the next write or by close
+		}
+		return super.getChannel();
+	}
+
+	/**
+	 * Writes out the buffer, forces the bytes to the storage device if sync is
+	 * set, and closes the file. The file is closed even if writing fails.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (isClosed) {
+			return;
+		}
+		isClosed = true;
+		try {
+			flushBuffer();
+			if (isSync) {
+				getFD().sync();
+			}
+		} finally {
+			super.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (isClosed) {
+			throw new IOException(EXP_STREAM_CLOSED);
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			super.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.util.Vector;
+
+/**
+ * A CommandLexer splits a CommandString into CommandTokens in a single pass.
+ * Quotes are expected to be processed already, so quoted characters are
+ * escaped and only unescaped characters can be operators or separators.
+ *
+ * <p>
+ * Unescaped spaces, tabs and newlines separate tokens and are not part of any
+ * token. Each unescaped ";", "|", "<" and ">" is a token of its own. An
+ * unescaped back quote starts a back quote span that ends at the next unescaped
+ * back quote, so operators and whitespace inside the span do not split it. All
+ * other characters form words. Adjacent tokens (with no whitespace between them)
+ * belong to the same argument.
+ * </p>
+ */
+public final class CommandLexer {
+
+	private CommandLexer() {
+	}
+
+	/**
+	 * Returns the tokens of the specified command in the order they appear.
+	 *
+	 * @param cmd
+	 *            CommandString to be split into tokens.
+	 * @return CommandToken Array Tokens of the command.
+	 */
+	public static CommandToken[] tokenize(CommandString cmd) {
+		Vector<CommandToken> tokens = new Vector<CommandToken>();
+		int length = cmd.length();
+		int wordBegin = -1;
+		int index = 0;
+		while (index < length) {
+			if (cmd.isCharEscaped(index)) {
+				if (wordBegin == -1) {
+					wordBegin = index;
+				}
+				index++;
+				continue;
+			}
+
+			CommandToken.Type type;
+			switch (cmd.charAt(index)) {
+			case ' ':
+			case '\t':
+			case '\n':
+				type = null;
+				break;
+			case ';':
+				type = CommandToken.Type.SEMICOLON;
+				break;
+			case '|':
+				type = CommandToken.Type.PIPE;
+				break;
+			case '<':
+				type = CommandToken.Type.INPUT_REDIR;
+				break;
+			case '>':
+				type = CommandToken.Type.OUTPUT_REDIR;
+				break;
+			case '`':
+				type = CommandToken.Type.BACKQUOTE;
+				break;
+			default:
+				if (wordBegin == -1) {
+					wordBegin = index;
+				}
+				index++;
+				continue;
+			}
+
+			if (wordBegin != -1) {
+				tokens.add(new CommandToken(CommandToken.Type.WORD, wordBegin, index));
+				wordBegin = -1;
+			}
+			if (type == CommandToken.Type.BACKQUOTE) {
+				int closeIndex = cmd.getFirstIndexOfCharNotEscaped(index + 1, '`');
+				if (closeIndex == -1) {
+					tokens.add(new CommandToken(type, index, length, false));
+					index = length;
+				} else {
+					tokens.add(new CommandToken(type, index, closeIndex + 1));
+					index = closeIndex + 1;
+				}
+				continue;
+			}
+			if (type != null) {
+				tokens.add(new CommandToken(type, index, index + 1));
+			}
+			index++;
+		}
+		if (wordBegin != -1) {
+			tokens.add(new CommandToken(CommandToken.Type.WORD, wordBegin, length));
+		}
+
+		return tokens.toArray(new CommandToken[tokens.size()]);
+	}
+
+	/**
+	 * Returns the tokens from index from (inclusive) to index to (exclusive) with
+	 * their indices made relative to the beginning of the first of them, which is
+	 * how they index the trimmed command the tokens are taken from.
+	 *
+	 * @param tokens
+	 *            CommandToken Array of the tokens.
+	 * @param from
+	 *            Integer index of the first token.
+	 * @param to
+	 *            Integer index after the last token.
+	 */
+	public static CommandToken[] subTokens(CommandToken[] tokens, int from, int to) {
+		CommandToken[] result = new CommandToken[to - from];
+		if (result.length == 0) {
+			return result;
+		}
+		int offset = -tokens[from].getBeginIndex();
+		for (int i = 0; i < result.length; i++) {
+			result[i] = tokens[from + i].shift(offset);
+		}
+		return result;
+	}
+}
@@ -1,27 +1,45 @@
 package sg.edu.nus.comp.cs4218.impl.commons;
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Vector;
 
 /**
  * A CommandString is a string with a boolean for each character to indicate
  * whether if the character is suppose to be escaped in a unix like command. It
  * provides similar function to a string with additional functions for the
- * booleans for each character.
+ * booleans for each character. The characters are kept in a growable char
+ * buffer and the escape states in a BitSet, so indexed access is constant time
+ * and edits only move the characters after the edited range.
  */
 public class CommandString {
-	private String cmdStr;
-	private final LinkedList<Boolean> hasEscaped;
+	private static final int MIN_CAPACITY = 16;
+
+	private char[] chars;
+	private int length;
+	private final BitSet hasEscaped;
+	private String cachedStr;
 
 	public CommandString() {
-		cmdStr = "";
-		hasEscaped = new LinkedList<Boolean>();
+		this("");
 	}
 
 	public CommandString(String initStr) {
-		cmdStr = initStr;
-		hasEscaped = new LinkedList<Boolean>(Collections.nCopies(initStr.length(), false));
+		length = initStr.length();
+		chars = new char[Math.max(MIN_CAPACITY, length)];
+		initStr.getChars(0, length, chars, 0);
+		hasEscaped = new BitSet(length);
+		cachedStr = initStr;
+	}
+
+	/**
+	 * Creates a CommandString holding the specified characters and escape states.
+	 * Both are used as is and must not be modified by the caller.
+	 */
+	private CommandString(char[] chars, int length, BitSet hasEscaped) {
+		this.chars = chars;
+		this.length = length;
+		this.hasEscaped = hasEscaped;
 	}
 
 	/**
@@ -35,13 +53,7 @@ public class CommandString {
 	 *            String to be inserted.
 	 */
 	public void insertStringAt(int index, String insertStr) {
-		if (index < cmdStr.length()) {
-			cmdStr = cmdStr.substring(0, index) + insertStr + cmdStr.substring(index);
-			hasEscaped.addAll(index, Collections.nCopies(insertStr.length(), false));
-		} else {
-			cmdStr = cmdStr + insertStr;
-			hasEscaped.addAll(Collections.nCopies(insertStr.length(), false));
-		}
+		replace(Math.min(index, length), Math.min(index, length), insertStr);
 	}
 
 	/**
@@ -53,12 +65,8 @@ public class CommandString {
 	 *            removed.
 	 */
 	public void removeCharAt(int index) {
-		if (index < cmdStr.length() - 1) {
-			cmdStr = cmdStr.substring(0, index) + cmdStr.substring(index + 1);
-		} else {
-			cmdStr = cmdStr.substring(0, index);
-		}
-		hasEscaped.remove(index);
+		checkIndex(index);
+		replace(index, index + 1, "");
 	}
 
 	/**
@@ -73,15 +81,8 @@ public class CommandString {
 	 *            Integer of the ending index, exclusive.
 	 */
 	public void removeRange(int beginIndex, int endIndex) {
-		if (endIndex < cmdStr.length() - 1) {
-			cmdStr = cmdStr.substring(0, beginIndex) + cmdStr.substring(endIndex);
-		} else {
-			cmdStr = cmdStr.substring(0, beginIndex);
-		}
-
-		for (int i = endIndex - 1; i >= beginIndex; i--) {
-			hasEscaped.remove(i);
-		}
+		checkRange(beginIndex, endIndex);
+		replace(beginIndex, endIndex, "");
 	}
 
 	/**
@@ -98,16 +99,39 @@ public class CommandString {
 	 *            String of the replacement sequence of char values.
 	 */
 	public void replaceRange(int beginIndex, int endIndex, String replacement) {
-		if (endIndex < cmdStr.length()) {
-			cmdStr = cmdStr.substring(0, beginIndex) + replacement + cmdStr.substring(endIndex);
-		} else {
-			cmdStr = cmdStr.substring(0, beginIndex) + replacement;
+		checkRange(beginIndex, endIndex);
+		replace(beginIndex, endIndex, replacement);
+	}
+
+	/**
+	 * Replaces the characters in the range with the replacement, which is not
+	 * escaped. The characters and escape states after the range are moved in
+	 * bulk, so an edit costs the length of the replacement plus one array copy of
+	 * the tail instead of rebuilding the whole string.
+	 */
+	private void replace(int beginIndex, int endIndex, String replacement) {
+		int replLength = replacement.length();
+		int distance = replLength - (endIndex - beginIndex);
+		int newLength = length + distance;
+
+		if (newLength > chars.length) {
+			chars = Arrays.copyOf(chars, Math.max(newLength, chars.length * 2));
 		}
+		System.arraycopy(chars, endIndex, chars, endIndex + distance, length - endIndex);
+		replacement.getChars(0, replLength, chars, beginIndex);
 
-		for (int i = endIndex - 1; i >= beginIndex; i--) {
-			hasEscaped.remove(i);
+		if (distance != 0) {
+			BitSet tail = hasEscaped.get(endIndex, length);
+			hasEscaped.clear(beginIndex, Math.max(length, newLength));
+			for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+				hasEscaped.set(endIndex + distance + i);
+			}
+		} else {
+			hasEscaped.clear(beginIndex, endIndex);
 		}
-		hasEscaped.addAll(beginIndex, Collections.nCopies(replacement.length(), false));
+
+		length = newLength;
+		cachedStr = null;
 	}
 
 	/**
@@ -120,7 +144,7 @@ public class CommandString {
 	 *            Boolean indicating the escape state to be set.
 	 */
 	public void setCharEscaped(int index, boolean... bool) {
-		for (int i = index; (i - index) < bool.length && i < hasEscaped.size(); i++) {
+		for (int i = index; (i - index) < bool.length && i < length; i++) {
 			hasEscaped.set(i, bool[i - index]);
 		}
 	}
@@ -136,9 +160,11 @@ public class CommandString {
 	 *            Boolean indicating the escape state to be set.
 	 */
 	public void setCharEscapedRange(int beginIndex, int endIndex, boolean bool) {
-		for (int i = beginIndex; i < endIndex; i++) {
-			hasEscaped.set(i, bool);
+		if (beginIndex >= endIndex) {
+			return;
 		}
+		checkRange(beginIndex, endIndex);
+		hasEscaped.set(beginIndex, endIndex, bool);
 	}
 
 	/**
@@ -152,8 +178,8 @@ public class CommandString {
 	 */
 	public Integer[] getIndicesOfCharNotEscaped(char character) {
 		Vector<Integer> charIndics = new Vector<Integer>();
-		for (int i = 0; i < cmdStr.length(); i++) {
-			if (cmdStr.charAt(i) == character && !hasEscaped.get(i)) {
+		for (int i = 0; i < length; i++) {
+			if (chars[i] == character && !hasEscaped.get(i)) {
 				charIndics.add(i);
 			}
 		}
@@ -173,8 +199,8 @@ public class CommandString {
 	 *         interest which is not escaped. If it is not found, -1 is returned.
 	 */
 	public int getFirstIndexOfCharNotEscaped(int beginIndex, char character) {
-		for (int i = beginIndex; i < cmdStr.length(); i++) {
-			if (cmdStr.charAt(i) == character && !hasEscaped.get(i)) {
+		for (int i = Math.max(beginIndex, 0); i < length; i++) {
+			if (chars[i] == character && !hasEscaped.get(i)) {
 				return i;
 			}
 		}
@@ -193,7 +219,10 @@ public class CommandString {
 	 *         char value is at index 0.
 	 */
 	public char charAt(int index) {
-		return cmdStr.charAt(index);
+		if (index < 0 || index >= length) {
+			throw new StringIndexOutOfBoundsException(index);
+		}
+		return chars[index];
 	}
 
 	/**
@@ -207,6 +236,7 @@ public class CommandString {
 	 *         this string. The first char value is at index 0.
 	 */
 	public boolean isCharEscaped(int index) {
+		checkIndex(index);
 		return hasEscaped.get(index);
 	}
 
@@ -223,11 +253,14 @@ public class CommandString {
 	 * @return CommandString The specified substring.
 	 */
 	public CommandString substring(int beginIndex, int endIndex) {
-		CommandString newCmdStr = new CommandString(cmdStr.substring(beginIndex, endIndex));
-		for (int i = beginIndex; i < endIndex; i++) {
-			newCmdStr.setCharEscaped(i - beginIndex, hasEscaped.get(i));
+		if (beginIndex < 0 || endIndex > length || beginIndex > endIndex) {
+			throw new StringIndexOutOfBoundsException("begin " + beginIndex + ", end " + endIndex + ", length "
+					+ length);
 		}
-		return newCmdStr;
+		int subLength = endIndex - beginIndex;
+		char[] subChars = new char[Math.max(MIN_CAPACITY, subLength)];
+		System.arraycopy(chars, beginIndex, subChars, 0, subLength);
+		return new CommandString(subChars, subLength, hasEscaped.get(beginIndex, endIndex));
 	}
 
 	/**
@@ -236,7 +269,10 @@ public class CommandString {
 	 * @return String The string of this CommandString.
 	 */
 	public String toString() {
-		return cmdStr;
+		if (cachedStr == null) {
+			cachedStr = new String(chars, 0, length);
+		}
+		return cachedStr;
 	}
 
 	/**
@@ -247,7 +283,7 @@ public class CommandString {
 	 *         object.
 	 */
 	public int length() {
-		return cmdStr.length();
+		return length;
 	}
 
 	/**
@@ -259,18 +295,16 @@ public class CommandString {
 	 */
 	public CommandString trim() {
 		int beginIndex = 0;
-		while (beginIndex < cmdStr.length()) {
-			if (hasEscaped.get(beginIndex) || (cmdStr.charAt(beginIndex) != ' ' && cmdStr.charAt(beginIndex) != '\t'
-					&& cmdStr.charAt(beginIndex) != '\n')) {
+		while (beginIndex < length) {
+			if (hasEscaped.get(beginIndex) || !isWhitespace(chars[beginIndex])) {
 				break;
 			}
 			beginIndex++;
 		}
 
-		int endIndex = cmdStr.length() - 1;
+		int endIndex = length - 1;
 		while (endIndex > 0) {
-			if (hasEscaped.get(endIndex) || (cmdStr.charAt(endIndex) != ' ' && cmdStr.charAt(endIndex) != '\t'
-					&& cmdStr.charAt(endIndex) != '\n')) {
+			if (hasEscaped.get(endIndex) || !isWhitespace(chars[endIndex])) {
 				break;
 			}
 			endIndex--;
@@ -303,15 +337,15 @@ public class CommandString {
 		}
 
 		CommandString cmdStrObj = (CommandString) obj;
-		if (!cmdStr.equals(cmdStrObj.toString())) {
+		if (length != cmdStrObj.length) {
 			return false;
 		}
-		for (int i = 0; i < hasEscaped.size(); i++) {
-			if (hasEscaped.get(i) != cmdStrObj.isCharEscaped(i)) {
+		for (int i = 0; i < length; i++) {
+			if (chars[i] != cmdStrObj.chars[i]) {
 				return false;
 			}
 		}
-		return true;
+		return hasEscaped.equals(cmdStrObj.hasEscaped);
 	}
 
 	/**
@@ -322,6 +356,22 @@ public class CommandString {
 
 	@Override
 	public int hashCode() {
-		return cmdStr.hashCode();
+		return toString().hashCode();
+	}
+
+	private static boolean isWhitespace(char character) {
+		return character == ' ' || character == '\t' || character == '\n';
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+		}
+	}
+
+	private void checkRange(int beginIndex, int endIndex) {
+		if (beginIndex < 0 || endIndex > length || beginIndex > endIndex) {
+			throw new IndexOutOfBoundsException("begin " + beginIndex + ", end " + endIndex + ", length " + length);
+		}
 	}
 }
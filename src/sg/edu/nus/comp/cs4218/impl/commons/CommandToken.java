@@ -0,0 +1,89 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+/**
+ * A CommandToken is a typed span of a CommandString produced by the
+ * CommandLexer. A token covers the characters from its begin index (inclusive)
+ * to its end index (exclusive).
+ */
+public class CommandToken {
+	public enum Type {
+		WORD, BACKQUOTE, SEMICOLON, PIPE, INPUT_REDIR, OUTPUT_REDIR
+	}
+
+	private final Type type;
+	private final int beginIndex;
+	private final int endIndex;
+	private final boolean isClosed;
+
+	public CommandToken(Type type, int beginIndex, int endIndex) {
+		this(type, beginIndex, endIndex, true);
+	}
+
+	public CommandToken(Type type, int beginIndex, int endIndex, boolean isClosed) {
+		this.type = type;
+		this.beginIndex = beginIndex;
+		this.endIndex = endIndex;
+		this.isClosed = isClosed;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getBeginIndex() {
+		return beginIndex;
+	}
+
+	public int getEndIndex() {
+		return endIndex;
+	}
+
+	/**
+	 * Returns false if this token is a back quote span without a closing back
+	 * quote, which then extends to the end of the command. Always true for other
+	 * tokens.
+	 */
+	public boolean isClosed() {
+		return isClosed;
+	}
+
+	/**
+	 * Returns true if this token is one of the operators ";", "|", "<" or ">".
+	 */
+	public boolean isOperator() {
+		return type != Type.WORD && type != Type.BACKQUOTE;
+	}
+
+	/**
+	 * Returns a copy of this token with its indices moved by the specified offset.
+	 *
+	 * @param offset
+	 *            Integer number of characters to move the token by.
+	 */
+	public CommandToken shift(int offset) {
+		return new CommandToken(type, beginIndex + offset, endIndex + offset, isClosed);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CommandToken)) {
+			return false;
+		}
+		CommandToken other = (CommandToken) obj;
+		return type == other.type && beginIndex == other.beginIndex && endIndex == other.endIndex
+				&& isClosed == other.isClosed;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((type.hashCode() * 31 + beginIndex) * 31 + endIndex) * 31 + (isClosed ? 1 : 0);
+	}
+
+	@Override
+	public String toString() {
+		return type + "[" + beginIndex + ", " + endIndex + ")";
+	}
+}
@@ -82,7 +82,7 @@ public final class FileUtil {
 	 */
 	public static File getFileOrDirectoryFromPath(String fileName) throws IOException {
 		Path filePath;
-		Path currentDir = Paths.get(Environment.currentDirectory);
+		Path currentDir = Paths.get(Environment.getCurrentDirectory());
 		try {
 			filePath = currentDir.resolve(fileName);
 		} catch (InvalidPathException e) {
@@ -130,7 +130,7 @@ public final class FileUtil {
 	 *            String of the file/folder path.
 	 */
 	public static byte[] readAllBytes(String fileName) throws IOException {
-		Path currentDir = Paths.get(Environment.currentDirectory);
+		Path currentDir = Paths.get(Environment.getCurrentDirectory());
 		try {
 			Path filePath = currentDir.resolve(fileName);
 			return Files.readAllBytes(filePath);
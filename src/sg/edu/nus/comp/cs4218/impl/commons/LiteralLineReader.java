@@ -0,0 +1,220 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A LiteralLineReader reads the lines of a stream containing a literal string,
+ * without decoding the lines that do not. It searches the raw bytes with the
+ * Boyer-Moore-Horspool algorithm, which skips ahead by up to the length of the
+ * literal at each step, and only looks for the line boundaries around a hit,
+ * so the lines returned are the lines of BufferedReader.readLine in which the
+ * literal is found, at a fraction of the cost of decoding and matching every
+ * line.
+ *
+ * <p>
+ * Searching bytes finds the same lines as searching characters only if the
+ * charset encodes line terminators as single bytes and the encoding of a
+ * character never appears inside the encoding of another, which isSupported
+ * checks together with the literal having no regular expression
+ * metacharacters or line terminators.
+ * </p>
+ */
+public class LiteralLineReader implements Closeable {
+	public static final String REGEX_METACHARS = "\\^$.|?*+()[]{}";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final InputStream input;
+	private final Charset charset;
+	private final byte[] literal;
+	private final int[] skips = new int[256];
+
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int limit;
+	private int lineStart;
+	private int searchFrom;
+	private boolean isEnd;
+
+	/**
+	 * @param input
+	 *            InputStream to read the lines from.
+	 * @param literal
+	 *            String to search for.
+	 * @param charset
+	 *            Charset of the stream, which must support the literal.
+	 */
+	public LiteralLineReader(InputStream input, String literal, Charset charset) {
+		if (!isSupported(literal, charset)) {
+			throw new IllegalArgumentException("Unsupported literal: " + literal);
+		}
+		this.input = input;
+		this.charset = charset;
+		this.literal = literal.getBytes(charset);
+		Arrays.fill(skips, this.literal.length);
+		for (int i = 0; i < this.literal.length - 1; i++) {
+			skips[this.literal[i] & 0xFF] = this.literal.length - 1 - i;
+		}
+	}
+
+	/**
+	 * Returns true if the specified regular expression has no metacharacters and
+	 * so matches exactly the lines containing it, and can be searched for.
+	 *
+	 * @param pattern
+	 *            String of the regular expression.
+	 */
+	public static boolean isLiteral(String pattern) {
+		if (pattern == null || pattern.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < pattern.length(); i++) {
+			char character = pattern.charAt(i);
+			if (character == '\n' || character == '\r' || REGEX_METACHARS.indexOf(character) >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the specified literal can be searched for in lines encoded
+	 * with the specified charset: the charset is supported and encodes every
+	 * character of the literal, which has no replacement character matching
+	 * undecodable bytes.
+	 *
+	 * @param literal
+	 *            String to search for.
+	 * @param charset
+	 *            Charset of the lines.
+	 */
+	public static boolean isSupported(String literal, Charset charset) {
+		if (!isLiteral(literal) || literal.indexOf('\uFFFD') >= 0) {
+			return false;
+		}
+		return isSupported(charset) && charset.newEncoder().canEncode(literal);
+	}
+
+	/**
+	 * Returns true if lines encoded with the specified charset can be searched
+	 * and split as bytes: the charset is UTF-8 or a single byte charset encoding
+	 * the line terminators as in ASCII.
+	 *
+	 * @param charset
+	 *            Charset of the lines.
+	 */
+	public static boolean isSupported(Charset charset) {
+		if (!charset.equals(StandardCharsets.UTF_8) && charset.newEncoder().maxBytesPerChar() != 1.0f) {
+			return false;
+		}
+		return Arrays.equals("\r\n".getBytes(charset), new byte[] { '\r', '\n' });
+	}
+
+	/**
+	 * Returns the next line containing the literal, without its line terminator,
+	 * or null at the end of the stream.
+	 *
+	 * @throws IOException
+	 *             If the stream cannot be read, or an InterruptedIOException if
+	 *             the thread has been interrupted.
+	 */
+	public String readLine() throws IOException {
+		while (true) {
+			int hit = indexOf(searchFrom, limit);
+			if (hit >= 0) {
+				int start = hit;
+				while (start > lineStart && !isLineTerminator(buffer[start - 1])) {
+					start--;
+				}
+				int end = hit + literal.length;
+				while (end < limit && !isLineTerminator(buffer[end])) {
+					end++;
+				}
+				if (end < limit || isEnd) {
+					lineStart = Math.min(end + 1, limit);
+					searchFrom = lineStart;
+					return new String(buffer, start, end - start, charset);
+				}
+				// the end of the line has not been read yet
+				lineStart = start;
+				searchFrom = start;
+			} else if (isEnd) {
+				return null;
+			} else {
+				// only the last, incomplete line may still contain the literal
+				int start = limit;
+				while (start > lineStart && !isLineTerminator(buffer[start - 1])) {
+					start--;
+				}
+				lineStart = start;
+				searchFrom = Math.max(start, limit - literal.length + 1);
+			}
+			fill();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the literal in the buffer
+	 * between from and to, or -1 if there is none.
+	 */
+	int indexOf(int from, int to) {
+		int last = literal.length - 1;
+		int index = from;
+		while (index <= to - literal.length) {
+			byte lastByte = buffer[index + last];
+			if (lastByte == literal[last]) {
+				int i = last - 1;
+				while (i >= 0 && buffer[index + i] == literal[i]) {
+					i--;
+				}
+				if (i < 0) {
+					return index;
+				}
+			}
+			index += skips[lastByte & 0xFF];
+		}
+		return -1;
+	}
+
+	/**
+	 * Discards the bytes before the current line and reads more bytes after the
+	 * ones kept, growing the buffer if the current line fills it.
+	 * 
+	 * @throws InterruptedIOException
+	 *             If the thread has been interrupted.
+	 */
+	private void fill() throws IOException {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException();
+		}
+		int kept = limit - lineStart;
+		if (kept == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		} else if (lineStart > 0) {
+			System.arraycopy(buffer, lineStart, buffer, 0, kept);
+		}
+		searchFrom -= lineStart;
+		lineStart = 0;
+		limit = kept;
+		int read = input.read(buffer, limit, buffer.length - limit);
+		if (read == -1) {
+			isEnd = true;
+		} else {
+			limit += read;
+		}
+	}
+
+	private static boolean isLineTerminator(byte value) {
+		return value == '\n' || value == '\r';
+	}
+}
@@ -0,0 +1,94 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe map of bounded size that evicts its least recently used entry
+ * when full, and counts the hits and misses of its lookups. A cache of
+ * capacity 0 stores nothing.
+ *
+ * @param <K>
+ *            Type of the keys.
+ * @param <V>
+ *            Type of the cached values.
+ */
+public class LruCache<K, V> {
+	private final int capacity;
+	private final LinkedHashMap<K, V> entries;
+
+	private long hitCount;
+	private long missCount;
+
+	public LruCache(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Cache capacity must not be negative");
+		}
+		this.capacity = capacity;
+		entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > LruCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the value cached for the specified key and marks it as the most
+	 * recently used, or returns null if there is none.
+	 *
+	 * @param key
+	 *            Key of the value.
+	 */
+	public synchronized V get(K key) {
+		V value = entries.get(key);
+		if (value == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+		return value;
+	}
+
+	/**
+	 * Caches the value for the specified key, evicting the least recently used
+	 * entry if the cache is full.
+	 *
+	 * @param key
+	 *            Key of the value.
+	 * @param value
+	 *            Value to be cached, not null.
+	 */
+	public synchronized void put(K key, V value) {
+		if (capacity > 0) {
+			entries.put(key, value);
+		}
+	}
+
+	/**
+	 * Removes all entries and resets the counters.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		hitCount = 0;
+		missCount = 0;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+}
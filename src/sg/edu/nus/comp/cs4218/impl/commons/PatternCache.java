@@ -0,0 +1,48 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiles regular expressions through a process-wide cache of bounded size,
+ * shared by grep, sed and globbing, so that a batch or a server session
+ * running the same expression many times compiles it only once. Patterns are
+ * immutable and can be used by several threads at once; their Matchers cannot.
+ */
+public final class PatternCache {
+	public static final String CACHE_SIZE_PROPERTY = "cs4218.pattern.cache.size";
+	public static final int DEFAULT_CACHE_SIZE = 256;
+
+	private static final LruCache<String, Pattern> CACHE = new LruCache<String, Pattern>(
+			Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE));
+
+	private PatternCache() {
+	}
+
+	/**
+	 * Returns the compiled form of the specified regular expression, compiling
+	 * it only if it is not cached.
+	 * 
+	 * @param regex
+	 *            String of the regular expression.
+	 * 
+	 * @throws PatternSyntaxException
+	 *             If the expression is invalid.
+	 */
+	public static Pattern compile(String regex) {
+		Pattern pattern = CACHE.get(regex);
+		if (pattern == null) {
+			pattern = Pattern.compile(regex);
+			CACHE.put(regex, pattern);
+		}
+		return pattern;
+	}
+
+	/**
+	 * Returns the cache of compiled patterns, keyed by their regular expression.
+	 * Its capacity is set by the "cs4218.pattern.cache.size" system property.
+	 */
+	public static LruCache<String, Pattern> getCache() {
+		return CACHE;
+	}
+}
@@ -0,0 +1,42 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sg.edu.nus.comp.cs4218.CommandExecutor;
+
+/**
+ * Runs shell tasks on daemon platform threads. Idle threads are kept for reuse
+ * so that consecutive pipes do not pay for thread creation on every stage.
+ */
+public class PlatformThreadExecutor implements CommandExecutor {
+	public static final String NAME = "platform";
+
+	private final ExecutorService executorService;
+
+	public PlatformThreadExecutor() {
+		final AtomicInteger threadCount = new AtomicInteger();
+		executorService = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "shell-" + NAME + "-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> task) {
+		return executorService.submit(task);
+	}
+}
@@ -0,0 +1,278 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A SpillBuffer is an output stream holding everything written to it so that
+ * it can be read back, like a ByteArrayOutputStream, but which keeps at most
+ * limit bytes in memory. Once more is written, the buffered bytes and all later
+ * writes go to a temporary file, which is memory-mapped when read back, so an
+ * oversized intermediate output is slowed down to disk speed instead of running
+ * the JVM out of memory.
+ *
+ * <p>
+ * Closing the buffer only ends writing; its bytes can still be read any number
+ * of times. delete releases the memory and the temporary file once they are no
+ * longer needed.
+ * </p>
+ */
+public class SpillBuffer extends OutputStream {
+	public static final int DEFAULT_LIMIT = 16 * 1024 * 1024;
+	public static final String EXP_DELETED = "Buffer deleted";
+
+	static final int MAP_SIZE = 64 * 1024 * 1024;
+	private static final int INITIAL_SIZE = 256;
+	private static final int FILE_BUFFER_SIZE = 64 * 1024;
+	private static final int COPY_BUFFER_SIZE = 8192;
+
+	private final int limit;
+
+	private byte[] buffer = new byte[INITIAL_SIZE];
+	private long count;
+	private Path spillFile;
+	private OutputStream spillStream;
+	private boolean isDeleted;
+
+	public SpillBuffer() {
+		this(DEFAULT_LIMIT);
+	}
+
+	/**
+	 * @param limit
+	 *            Maximum number of bytes kept in memory before spilling to a
+	 *            temporary file.
+	 */
+	public SpillBuffer(int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("Buffer limit must not be negative");
+		}
+		this.limit = limit;
+	}
+
+	@Override
+	public synchronized void write(int byteValue) throws IOException {
+		write(new byte[] { (byte) byteValue }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] bytes, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > bytes.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (isDeleted) {
+			throw new IOException(EXP_DELETED);
+		}
+		if (spillStream == null && count + len > limit) {
+			spill();
+		}
+		if (spillStream == null) {
+			ensureCapacity((int) count + len);
+			System.arraycopy(bytes, off, buffer, (int) count, len);
+		} else {
+			spillStream.write(bytes, off, len);
+		}
+		count += len;
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		if (spillStream != null) {
+			spillStream.flush();
+		}
+	}
+
+	/**
+	 * Ends writing to the temporary file, if any. The bytes written remain
+	 * readable until the buffer is deleted.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		flush();
+	}
+
+	/**
+	 * Returns the number of bytes written to this buffer.
+	 */
+	public synchronized long size() {
+		return count;
+	}
+
+	/**
+	 * Returns true if this buffer has moved its bytes to a temporary file.
+	 */
+	public synchronized boolean isSpilled() {
+		return spillFile != null;
+	}
+
+	/**
+	 * Returns a new stream reading the bytes written so far. The bytes of a
+	 * spilled buffer are read from a memory mapping of its temporary file.
+	 *
+	 * @throws IOException
+	 *             If the buffer has been deleted or its file cannot be mapped.
+	 */
+	public synchronized InputStream getInputStream() throws IOException {
+		if (isDeleted) {
+			throw new IOException(EXP_DELETED);
+		}
+		if (spillFile == null) {
+			return new ByteArrayInputStream(buffer, 0, (int) count);
+		}
+		spillStream.flush();
+		return new MappedInputStream(FileChannel.open(spillFile, StandardOpenOption.READ), count);
+	}
+
+	/**
+	 * Writes the bytes written so far to the specified stream.
+	 *
+	 * @param outputStream
+	 *            OutputStream to write the bytes to.
+	 *
+	 * @throws IOException
+	 *             If the buffer cannot be read or the stream cannot be written.
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		synchronized (this) {
+			if (spillFile == null && !isDeleted) {
+				outputStream.write(buffer, 0, (int) count);
+				return;
+			}
+		}
+		try (InputStream inputStream = getInputStream()) {
+			byte[] bytes = new byte[COPY_BUFFER_SIZE];
+			int length;
+			while ((length = inputStream.read(bytes)) != -1) {
+				outputStream.write(bytes, 0, length);
+			}
+		}
+	}
+
+	/**
+	 * Releases the memory of this buffer and deletes its temporary file, if any.
+	 * Streams reading a spilled buffer may keep reading its mapped bytes on
+	 * systems allowing a mapped file to be deleted.
+	 */
+	public synchronized void delete() {
+		if (isDeleted) {
+			return;
+		}
+		isDeleted = true;
+		buffer = null;
+		if (spillFile != null) {
+			try {
+				spillStream.close();
+			} catch (IOException e) {
+				// deleted below
+			}
+			try {
+				Files.deleteIfExists(spillFile);
+			} catch (IOException e) {
+				spillFile.toFile().deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Moves the bytes buffered in memory to a new temporary file, where the later
+	 * writes go.
+	 */
+	private void spill() throws IOException {
+		Path file = Files.createTempFile("cs4218-pipe", ".tmp");
+		OutputStream fileStream;
+		try {
+			fileStream = new BufferedOutputStream(Files.newOutputStream(file), FILE_BUFFER_SIZE);
+			fileStream.write(buffer, 0, (int) count);
+		} catch (IOException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+		spillFile = file;
+		spillStream = fileStream;
+		buffer = null;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > buffer.length) {
+			int newLength = Math.max(capacity, (int) Math.min(limit, 2L * buffer.length));
+			buffer = Arrays.copyOf(buffer, newLength);
+		}
+	}
+
+	/**
+	 * Reads a spilled buffer by mapping its temporary file one region of at most
+	 * MAP_SIZE bytes at a time.
+	 */
+	private static class MappedInputStream extends InputStream {
+		private final FileChannel channel;
+		private final long length;
+		private long position;
+		private MappedByteBuffer region;
+
+		MappedInputStream(FileChannel channel, long length) {
+			this.channel = channel;
+			this.length = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!hasRemaining()) {
+				return -1;
+			}
+			position++;
+			return region.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			if (off < 0 || len < 0 || len > bytes.length - off) {
+				throw new IndexOutOfBoundsException();
+			}
+			if (len == 0) {
+				return 0;
+			}
+			if (!hasRemaining()) {
+				return -1;
+			}
+			int read = Math.min(len, region.remaining());
+			region.get(bytes, off, read);
+			position += read;
+			return read;
+		}
+
+		@Override
+		public int available() {
+			return region == null ? 0 : region.remaining();
+		}
+
+		@Override
+		public void close() throws IOException {
+			region = null;
+			channel.close();
+		}
+
+		/**
+		 * Maps the next region of the file if the current one has been read,
+		 * returning false at the end of the buffer.
+		 */
+		private boolean hasRemaining() throws IOException {
+			if (region != null && region.hasRemaining()) {
+				return true;
+			}
+			if (position >= length) {
+				return false;
+			}
+			region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_SIZE, length - position));
+			return true;
+		}
+	}
+}
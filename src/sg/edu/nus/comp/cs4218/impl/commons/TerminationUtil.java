@@ -0,0 +1,36 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+
+public final class TerminationUtil {
+	public static final String EXP_TERMINATED = "Terminated";
+
+	private TerminationUtil() {
+	}
+
+	/**
+	 * Stops an application if the thread running it has been interrupted, for
+	 * example because the command has been terminated, by throwing an exception
+	 * of the specified type with the message EXP_TERMINATED. The exception is
+	 * only created then, so the check is cheap enough to be made for every line.
+	 *
+	 * @param exceptionType
+	 *            Class of the exception of the application, which must have a
+	 *            public constructor taking the message.
+	 *
+	 * @throws E
+	 *             If the thread has been interrupted.
+	 */
+	public static <E extends AbstractApplicationException> void checkTerminated(Class<E> exceptionType) throws E {
+		if (!Thread.currentThread().isInterrupted()) {
+			return;
+		}
+		E exception;
+		try {
+			exception = exceptionType.getConstructor(String.class).newInstance(EXP_TERMINATED);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException(exceptionType.getName() + " cannot be created with a message", e);
+		}
+		throw exception;
+	}
+}
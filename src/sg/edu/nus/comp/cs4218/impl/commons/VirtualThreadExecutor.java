@@ -0,0 +1,64 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import sg.edu.nus.comp.cs4218.CommandExecutor;
+
+/**
+ * Runs every shell task on its own virtual thread, which keeps long pipes and
+ * many concurrent command substitutions cheap. Virtual threads are only
+ * available from Java 21, so the executor is looked up reflectively to keep the
+ * shell buildable on older JDKs.
+ */
+public class VirtualThreadExecutor implements CommandExecutor {
+	public static final String NAME = "virtual";
+
+	private static final Method FACTORY_METHOD = findFactoryMethod();
+
+	private final ExecutorService executorService;
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             If the running JVM does not support virtual threads.
+	 */
+	public VirtualThreadExecutor() {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException("virtual threads are not supported by this JVM");
+		}
+		try {
+			executorService = (ExecutorService) FACTORY_METHOD.invoke(null);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new UnsupportedOperationException("virtual threads are not supported by this JVM", e);
+		}
+	}
+
+	/**
+	 * Returns true if the running JVM supports virtual threads.
+	 */
+	public static boolean isSupported() {
+		return FACTORY_METHOD != null;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> task) {
+		return executorService.submit(task);
+	}
+
+	private static Method findFactoryMethod() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package sg.edu.nus.comp.cs4218.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of the run of an application by a call command, with
+ * the bytes it read from stdin and wrote to stdout.
+ */
+@Name("sg.edu.nus.comp.cs4218.CallCommand")
+@Label("Call Command")
+@Description("Run of an application by the shell")
+@Category({ "CS4218 Shell", "Commands" })
+@StackTrace(false)
+@Threshold("1 ms")
+public class CallCommandEvent extends Event implements ShellEvents.CallCommandRecord {
+	@Label("Application")
+	private String app;
+
+	@Label("Arguments")
+	@Description("Number of arguments after IO redirection, command substitution and globbing")
+	private int argCount;
+
+	@Label("Bytes In")
+	@DataAmount
+	private long bytesIn;
+
+	@Label("Bytes Out")
+	@DataAmount
+	private long bytesOut;
+
+	@Label("Failed")
+	private boolean isFailed;
+
+	/**
+	 * Ends the event and commits it if it is recorded.
+	 */
+	@Override
+	public void end(String app, int argCount, long bytesIn, long bytesOut, boolean isFailed) {
+		if (shouldCommit()) {
+			this.app = app;
+			this.argCount = argCount;
+			this.bytesIn = bytesIn;
+			this.bytesOut = bytesOut;
+			this.isFailed = isFailed;
+			commit();
+		}
+	}
+}
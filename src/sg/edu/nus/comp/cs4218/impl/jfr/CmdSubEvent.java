@@ -0,0 +1,44 @@
+package sg.edu.nus.comp.cs4218.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of the sub-shell of a command substitution.
+ */
+@Name("sg.edu.nus.comp.cs4218.CommandSubstitution")
+@Label("Command Substitution")
+@Description("Evaluation of a command in back quotes by a sub-shell")
+@Category({ "CS4218 Shell", "Operators" })
+@StackTrace(false)
+@Threshold("1 ms")
+public class CmdSubEvent extends Event implements ShellEvents.CmdSubRecord {
+	@Label("Command")
+	private String command;
+
+	@Label("Output")
+	@DataAmount
+	private long outputBytes;
+
+	@Label("Failed")
+	private boolean isFailed;
+
+	/**
+	 * Ends the event and commits it if it is recorded.
+	 */
+	@Override
+	public void end(String command, long outputBytes, boolean isFailed) {
+		if (shouldCommit()) {
+			this.command = command;
+			this.outputBytes = outputBytes;
+			this.isFailed = isFailed;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package sg.edu.nus.comp.cs4218.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of the evaluation of a command line, that is of a
+ * sequence command, including the command lines of command substitutions.
+ *
+ * <p>
+ * The shell events record no stack traces, and all of them but this one are
+ * only recorded when they take at least 1 ms by default, so that they can stay
+ * enabled in production. Their fields are only filled in when the event is
+ * recorded.
+ * </p>
+ */
+@Name("sg.edu.nus.comp.cs4218.CommandLine")
+@Label("Command Line")
+@Description("Evaluation of a command line by the shell")
+@Category({ "CS4218 Shell", "Commands" })
+@StackTrace(false)
+public class CommandLineEvent extends Event implements ShellEvents.CommandLineRecord {
+	@Label("Command Line")
+	private String commandLine;
+
+	@Label("Pipe Commands")
+	@Description("Number of commands separated by semicolons")
+	private int pipeCount;
+
+	@Label("Cached")
+	@Description("Whether the parsed command line was found in the command cache")
+	private boolean isCached;
+
+	@Label("Failed")
+	private boolean isFailed;
+
+	/**
+	 * Ends the event and commits it if it is recorded.
+	 */
+	@Override
+	public void end(String commandLine, int pipeCount, boolean isCached, boolean isFailed) {
+		if (shouldCommit()) {
+			this.commandLine = commandLine;
+			this.pipeCount = pipeCount;
+			this.isCached = isCached;
+			this.isFailed = isFailed;
+			commit();
+		}
+	}
+}
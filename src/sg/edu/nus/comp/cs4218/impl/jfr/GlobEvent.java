@@ -0,0 +1,42 @@
+package sg.edu.nus.comp.cs4218.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of the expansion of one path with wildcards.
+ */
+@Name("sg.edu.nus.comp.cs4218.Glob")
+@Label("Glob Expansion")
+@Description("Expansion of a path with wildcards into the matching paths")
+@Category({ "CS4218 Shell", "Operators" })
+@StackTrace(false)
+@Threshold("1 ms")
+public class GlobEvent extends Event implements ShellEvents.GlobRecord {
+	@Label("Pattern")
+	private String pattern;
+
+	@Label("Directories Scanned")
+	private int directoryCount;
+
+	@Label("Matches")
+	private int matchCount;
+
+	/**
+	 * Ends the event and commits it if it is recorded.
+	 */
+	@Override
+	public void end(String pattern, int directoryCount, int matchCount) {
+		if (shouldCommit()) {
+			this.pattern = pattern;
+			this.directoryCount = directoryCount;
+			this.matchCount = matchCount;
+			commit();
+		}
+	}
+}
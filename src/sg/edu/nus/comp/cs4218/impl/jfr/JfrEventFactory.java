@@ -0,0 +1,32 @@
+package sg.edu.nus.comp.cs4218.impl.jfr;
+
+/**
+ * Creates the Flight Recorder events of the shell. Only loaded by ShellEvents
+ * when jdk.jfr is available.
+ */
+final class JfrEventFactory implements ShellEvents.Factory {
+	@Override
+	public ShellEvents.CommandLineRecord newCommandLineEvent() {
+		return new CommandLineEvent();
+	}
+
+	@Override
+	public ShellEvents.PipeCommandRecord newPipeCommandEvent() {
+		return new PipeCommandEvent();
+	}
+
+	@Override
+	public ShellEvents.CallCommandRecord newCallCommandEvent() {
+		return new CallCommandEvent();
+	}
+
+	@Override
+	public ShellEvents.GlobRecord newGlobEvent() {
+		return new GlobEvent();
+	}
+
+	@Override
+	public ShellEvents.CmdSubRecord newCmdSubEvent() {
+		return new CmdSubEvent();
+	}
+}
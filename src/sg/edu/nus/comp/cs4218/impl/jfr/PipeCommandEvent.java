@@ -0,0 +1,49 @@
+package sg.edu.nus.comp.cs4218.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of the evaluation of a pipe command, from the parsing
+ * of its first call command to the end of its last one.
+ */
+@Name("sg.edu.nus.comp.cs4218.PipeCommand")
+@Label("Pipe Command")
+@Description("Evaluation of the call commands separated by pipes")
+@Category({ "CS4218 Shell", "Commands" })
+@StackTrace(false)
+@Threshold("1 ms")
+public class PipeCommandEvent extends Event implements ShellEvents.PipeCommandRecord {
+	@Label("Command")
+	private String command;
+
+	@Label("Stages")
+	@Description("Number of call commands in the pipe")
+	private int stageCount;
+
+	@Label("Streaming")
+	@Description("Whether the call commands ran concurrently")
+	private boolean isStreaming;
+
+	@Label("Failed")
+	private boolean isFailed;
+
+	/**
+	 * Ends the event and commits it if it is recorded.
+	 */
+	@Override
+	public void end(String command, int stageCount, boolean isStreaming, boolean isFailed) {
+		if (shouldCommit()) {
+			this.command = command;
+			this.stageCount = stageCount;
+			this.isStreaming = isStreaming;
+			this.isFailed = isFailed;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package sg.edu.nus.comp.cs4218.impl.jfr;
+
+/**
+ * Creates the Flight Recorder events of the shell. Flight Recorder (jdk.jfr)
+ * is only available from Java 11, so the rest of the shell only uses this
+ * class and its interfaces. The events extending jdk.jfr.Event, and the
+ * JfrEventFactory creating them, are looked up reflectively, so they can be
+ * left out of builds on older JDKs. If they or jdk.jfr are missing, the events
+ * created are disabled ones that record nothing.
+ */
+public final class ShellEvents {
+	private static final String JFR_EVENT_CLASS = "jdk.jfr.Event";
+	private static final String JFR_FACTORY_CLASS = "sg.edu.nus.comp.cs4218.impl.jfr.JfrEventFactory";
+
+	private static final Factory FACTORY = loadFactory();
+
+	private ShellEvents() {
+	}
+
+	/**
+	 * Returns true if the events are Flight Recorder events.
+	 */
+	public static boolean isSupported() {
+		return !(FACTORY instanceof DisabledEvent);
+	}
+
+	public static CommandLineRecord newCommandLineEvent() {
+		return FACTORY.newCommandLineEvent();
+	}
+
+	public static PipeCommandRecord newPipeCommandEvent() {
+		return FACTORY.newPipeCommandEvent();
+	}
+
+	public static CallCommandRecord newCallCommandEvent() {
+		return FACTORY.newCallCommandEvent();
+	}
+
+	public static GlobRecord newGlobEvent() {
+		return FACTORY.newGlobEvent();
+	}
+
+	public static CmdSubRecord newCmdSubEvent() {
+		return FACTORY.newCmdSubEvent();
+	}
+
+	private static Factory loadFactory() {
+		try {
+			Class.forName(JFR_EVENT_CLASS);
+			return (Factory) Class.forName(JFR_FACTORY_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new DisabledEvent();
+		}
+	}
+
+	/**
+	 * An event timing part of the work of the shell, with the methods of
+	 * jdk.jfr.Event the shell uses.
+	 */
+	public interface TimedEvent {
+		void begin();
+
+		/**
+		 * Returns true if the event is recorded at all.
+		 */
+		boolean isEnabled();
+
+		/**
+		 * Returns true if the event is to be recorded, once it has ended.
+		 */
+		boolean shouldCommit();
+	}
+
+	public interface CommandLineRecord extends TimedEvent {
+		void end(String commandLine, int pipeCount, boolean isCached, boolean isFailed);
+	}
+
+	public interface PipeCommandRecord extends TimedEvent {
+		void end(String command, int stageCount, boolean isStreaming, boolean isFailed);
+	}
+
+	public interface CallCommandRecord extends TimedEvent {
+		void end(String app, int argCount, long bytesIn, long bytesOut, boolean isFailed);
+	}
+
+	public interface GlobRecord extends TimedEvent {
+		void end(String pattern, int directoryCount, int matchCount);
+	}
+
+	public interface CmdSubRecord extends TimedEvent {
+		void end(String command, long outputBytes, boolean isFailed);
+	}
+
+	interface Factory {
+		CommandLineRecord newCommandLineEvent();
+
+		PipeCommandRecord newPipeCommandEvent();
+
+		CallCommandRecord newCallCommandEvent();
+
+		GlobRecord newGlobEvent();
+
+		CmdSubRecord newCmdSubEvent();
+	}
+
+	/**
+	 * The events, and the factory of events, used without Flight Recorder. As
+	 * they record nothing, a single instance serves as all of them.
+	 */
+	private static class DisabledEvent
+			implements Factory, CommandLineRecord, PipeCommandRecord, CallCommandRecord, GlobRecord, CmdSubRecord {
+		@Override
+		public CommandLineRecord newCommandLineEvent() {
+			return this;
+		}
+
+		@Override
+		public PipeCommandRecord newPipeCommandEvent() {
+			return this;
+		}
+
+		@Override
+		public CallCommandRecord newCallCommandEvent() {
+			return this;
+		}
+
+		@Override
+		public GlobRecord newGlobEvent() {
+			return this;
+		}
+
+		@Override
+		public CmdSubRecord newCmdSubEvent() {
+			return this;
+		}
+
+		@Override
+		public void begin() {
+			// nothing is recorded
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public boolean shouldCommit() {
+			return false;
+		}
+
+		@Override
+		public void end(String command, int count, boolean isCached, boolean isFailed) {
+			// nothing is recorded
+		}
+
+		@Override
+		public void end(String app, int argCount, long bytesIn, long bytesOut, boolean isFailed) {
+			// nothing is recorded
+		}
+
+		@Override
+		public void end(String pattern, int directoryCount, int matchCount) {
+			// nothing is recorded
+		}
+
+		@Override
+		public void end(String command, long outputBytes, boolean isFailed) {
+			// nothing is recorded
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package sg.edu.nus.comp.cs4218.impl.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An InputStream counting the bytes read through it.
+ */
+public class CountingInputStream extends FilterInputStream {
+	private long count;
+
+	public CountingInputStream(InputStream inputStream) {
+		super(inputStream);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = in.read();
+		if (result != -1) {
+			count++;
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] bytes, int off, int len) throws IOException {
+		int result = in.read(bytes, off, len);
+		if (result > 0) {
+			count += result;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long len) throws IOException {
+		long result = in.skip(len);
+		count += result;
+		return result;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * Returns the number of bytes read or skipped so far.
+	 */
+	public long getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,35 @@
+package sg.edu.nus.comp.cs4218.impl.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An OutputStream counting the bytes written through it.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+	private long count;
+
+	public CountingOutputStream(OutputStream outputStream) {
+		super(outputStream);
+	}
+
+	@Override
+	public void write(int value) throws IOException {
+		out.write(value);
+		count++;
+	}
+
+	@Override
+	public void write(byte[] bytes, int off, int len) throws IOException {
+		out.write(bytes, off, len);
+		count += len;
+	}
+
+	/**
+	 * Returns the number of bytes written so far.
+	 */
+	public long getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,115 @@
+package sg.edu.nus.comp.cs4218.impl.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Histogram records the distribution of non-negative values, such as
+ * durations in nanoseconds or sizes in bytes, without locking. Values are
+ * counted in power of two buckets, bucket i holding the values from 2^(i-1) to
+ * 2^i - 1, so percentiles are reported as the upper bound of their bucket and
+ * are at most twice the exact value. The count, sum and maximum are exact.
+ */
+public class Histogram {
+	static final int BUCKET_COUNT = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records the specified value. Negative values are recorded as 0.
+	 *
+	 * @param value
+	 *            Long value to be recorded.
+	 */
+	public void record(long value) {
+		long recorded = value < 0 ? 0 : value;
+		buckets.incrementAndGet(getBucket(recorded));
+		count.increment();
+		sum.add(recorded);
+		long current;
+		while (recorded > (current = max.get())) {
+			if (max.compareAndSet(current, recorded)) {
+				break;
+			}
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getMean() {
+		long total = count.sum();
+		return total == 0 ? 0 : sum.sum() / total;
+	}
+
+	/**
+	 * Returns an upper bound of the specified percentile of the recorded values,
+	 * or 0 if there are none.
+	 *
+	 * @param percentile
+	 *            Double between 0 and 100.
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKET_COUNT];
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) {
+				return Math.min(getUpperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Clears the recorded values. Values recorded during the reset may be kept in
+	 * part.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * Returns the histogram as a JSON object of its count, sum, mean, maximum and
+	 * 50th, 90th and 99th percentiles.
+	 */
+	public String toJson() {
+		return String.format("{\"count\":%d,\"sum\":%d,\"mean\":%d,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"max\":%d}",
+				getCount(), getSum(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+	}
+
+	static int getBucket(long value) {
+		return value == 0 ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	private static long getUpperBound(int bucket) {
+		return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+}
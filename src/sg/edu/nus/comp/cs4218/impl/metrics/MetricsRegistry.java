@@ -0,0 +1,314 @@
+package sg.edu.nus.comp.cs4218.impl.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A MetricsRegistry records where the shell spends its time: the wall time of
+ * each evaluation phase, the wall time and the bytes read and written by each
+ * application run, and how many paths globbing expands. Phases are nested, so
+ * the time of a pipe includes the time of its call commands, and command
+ * substitutions are counted again inside the call command running them.
+ *
+ * <p>
+ * Recording is disabled unless the "cs4218.metrics" system property is true or
+ * setEnabled is called. The shell records through the static methods, which
+ * only read a volatile flag while recording is disabled. While it is enabled,
+ * the streams of applications are wrapped to count bytes, so applications no
+ * longer see the file streams they may otherwise optimise for.
+ * </p>
+ */
+public class MetricsRegistry {
+	public static final String METRICS_PROPERTY = "cs4218.metrics";
+
+	/**
+	 * The evaluation phases of a command line.
+	 */
+	public enum Phase {
+		QUOTE("quote"), PARSE("parse"), SEQ("seq"), PIPE("pipe"), IO_REDIR("io-redir"), CMDSUB("cmdsub"), GLOB(
+				"glob"), RUN_APP("runApp");
+
+		private final String name;
+
+		private Phase(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * The events counted by the shell.
+	 */
+	public enum Counter {
+		COMMAND_LINES("commandLines"), GLOB_PATTERNS("glob.patterns"), GLOB_DIRECTORIES(
+				"glob.directories"), GLOB_MATCHES("glob.matches");
+
+		private final String name;
+
+		private Counter(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private static final MetricsRegistry DEFAULT_REGISTRY = new MetricsRegistry();
+
+	private static volatile boolean isEnabled = Boolean.getBoolean(METRICS_PROPERTY);
+
+	private final Histogram[] phases;
+	private final LongAdder[] counters;
+	private final ConcurrentHashMap<String, Histogram> apps = new ConcurrentHashMap<String, Histogram>();
+	private final Histogram bytesIn = new Histogram();
+	private final Histogram bytesOut = new Histogram();
+
+	public MetricsRegistry() {
+		phases = new Histogram[Phase.values().length];
+		for (int i = 0; i < phases.length; i++) {
+			phases[i] = new Histogram();
+		}
+		counters = new LongAdder[Counter.values().length];
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Returns the registry the shell records to.
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT_REGISTRY;
+	}
+
+	public static boolean isEnabled() {
+		return isEnabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		isEnabled = enabled;
+	}
+
+	/**
+	 * Returns the start time of a phase to be passed to stop, or 0 if recording
+	 * is disabled.
+	 */
+	public static long start() {
+		return isEnabled ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Records the time since the specified start time as a run of the specified
+	 * phase, unless recording was disabled when the phase started.
+	 *
+	 * @param phase
+	 *            Phase that ran.
+	 * @param startTime
+	 *            Long returned by start when the phase started.
+	 */
+	public static void stop(Phase phase, long startTime) {
+		if (startTime != 0L) {
+			DEFAULT_REGISTRY.getPhase(phase).record(System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * Records a run of the specified application with the bytes it read and
+	 * wrote, unless recording was disabled when it started.
+	 *
+	 * @param app
+	 *            String of the application command keyword, or null if there is
+	 *            no such application.
+	 * @param startTime
+	 *            Long returned by start when the application started.
+	 * @param input
+	 *            Number of bytes read from stdin.
+	 * @param output
+	 *            Number of bytes written to stdout.
+	 */
+	public static void stopApp(String app, long startTime, long input, long output) {
+		if (startTime != 0L) {
+			long elapsed = System.nanoTime() - startTime;
+			DEFAULT_REGISTRY.getPhase(Phase.RUN_APP).record(elapsed);
+			if (app != null) {
+				DEFAULT_REGISTRY.getApp(app).record(elapsed);
+			}
+			DEFAULT_REGISTRY.bytesIn.record(input);
+			DEFAULT_REGISTRY.bytesOut.record(output);
+		}
+	}
+
+	/**
+	 * Adds the specified amount to a counter if recording is enabled.
+	 */
+	public static void count(Counter counter, long amount) {
+		if (isEnabled) {
+			DEFAULT_REGISTRY.counters[counter.ordinal()].add(amount);
+		}
+	}
+
+	public Histogram getPhase(Phase phase) {
+		return phases[phase.ordinal()];
+	}
+
+	public long getCounter(Counter counter) {
+		return counters[counter.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the histogram of the run times of the specified application,
+	 * creating it on first use.
+	 */
+	public Histogram getApp(String app) {
+		Histogram histogram = apps.get(app);
+		if (histogram == null) {
+			Histogram created = new Histogram();
+			histogram = apps.putIfAbsent(app, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Returns the histogram of the bytes read by each application run.
+	 */
+	public Histogram getBytesIn() {
+		return bytesIn;
+	}
+
+	/**
+	 * Returns the histogram of the bytes written by each application run.
+	 */
+	public Histogram getBytesOut() {
+		return bytesOut;
+	}
+
+	/**
+	 * Clears everything recorded so far. The applications seen so far stay in
+	 * the report with no runs.
+	 */
+	public void reset() {
+		for (int i = 0; i < phases.length; i++) {
+			phases[i].reset();
+		}
+		for (int i = 0; i < counters.length; i++) {
+			counters[i].reset();
+		}
+		Histogram[] appHistograms = apps.values().toArray(new Histogram[0]);
+		for (int i = 0; i < appHistograms.length; i++) {
+			appHistograms[i].reset();
+		}
+		bytesIn.reset();
+		bytesOut.reset();
+	}
+
+	/**
+	 * Returns a JSON object of everything recorded so far, with times in
+	 * nanoseconds and sizes in bytes.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"enabled\":").append(isEnabled).append(",\"phases\":{");
+		Phase[] phaseNames = Phase.values();
+		for (int i = 0; i < phaseNames.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('"').append(phaseNames[i]).append("\":").append(phases[i].toJson());
+		}
+		json.append("},\"apps\":{");
+		String[] appNames = getAppNames();
+		for (int i = 0; i < appNames.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			appendJsonString(json, appNames[i]);
+			json.append(':').append(apps.get(appNames[i]).toJson());
+		}
+		json.append("},\"bytesIn\":").append(bytesIn.toJson());
+		json.append(",\"bytesOut\":").append(bytesOut.toJson());
+		json.append(",\"counters\":{");
+		Counter[] counterNames = Counter.values();
+		for (int i = 0; i < counterNames.length; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('"').append(counterNames[i]).append("\":").append(counters[i].sum());
+		}
+		return json.append("}}").toString();
+	}
+
+	/**
+	 * Returns a report of everything recorded so far, one line per phase,
+	 * application, byte count and counter, with times in milliseconds.
+	 *
+	 * @param newline
+	 *            String separating the lines.
+	 */
+	public String toText(String newline) {
+		StringBuilder text = new StringBuilder();
+		text.append("metrics ").append(isEnabled ? "enabled" : "disabled");
+		Phase[] phaseNames = Phase.values();
+		for (int i = 0; i < phaseNames.length; i++) {
+			appendTimes(text.append(newline), phaseNames[i].toString(), phases[i]);
+		}
+		String[] appNames = getAppNames();
+		for (int i = 0; i < appNames.length; i++) {
+			appendTimes(text.append(newline), "app " + appNames[i], apps.get(appNames[i]));
+		}
+		appendBytes(text.append(newline), "bytes in", bytesIn);
+		appendBytes(text.append(newline), "bytes out", bytesOut);
+		Counter[] counterNames = Counter.values();
+		for (int i = 0; i < counterNames.length; i++) {
+			text.append(newline).append(counterNames[i]).append(": ").append(counters[i].sum());
+		}
+		return text.toString();
+	}
+
+	private String[] getAppNames() {
+		String[] names = apps.keySet().toArray(new String[0]);
+		Arrays.sort(names);
+		return names;
+	}
+
+	private static void appendTimes(StringBuilder text, String name, Histogram histogram) {
+		text.append(String.format("%s: count=%d total=%.3fms mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", name,
+				histogram.getCount(), toMillis(histogram.getSum()), toMillis(histogram.getMean()),
+				toMillis(histogram.getPercentile(50)), toMillis(histogram.getPercentile(99)),
+				toMillis(histogram.getMax())));
+	}
+
+	private static void appendBytes(StringBuilder text, String name, Histogram histogram) {
+		text.append(String.format("%s: count=%d total=%dB mean=%dB p50=%dB p99=%dB max=%dB", name,
+				histogram.getCount(), histogram.getSum(), histogram.getMean(), histogram.getPercentile(50),
+				histogram.getPercentile(99), histogram.getMax()));
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1000000.0;
+	}
+
+	private static void appendJsonString(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char character = value.charAt(i);
+			if (character == '"' || character == '\\') {
+				json.append('\\').append(character);
+			} else if (character < 0x20) {
+				json.append(String.format("\\u%04x", (int) character));
+			} else {
+				json.append(character);
+			}
+		}
+		json.append('"');
+	}
+}
@@ -0,0 +1,289 @@
+package sg.edu.nus.comp.cs4218.impl.optr;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import sg.edu.nus.comp.cs4218.impl.commons.CommandLexer;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandToken;
+import sg.edu.nus.comp.cs4218.impl.commons.LruCache;
+
+/**
+ * A CmdSubMemo remembers the results of read-only command substitutions, so
+ * that a script running the same substitution many times, such as `ls dir`,
+ * evaluates it only once while the files it reads do not change.
+ *
+ * <p>
+ * A result is keyed by the command and the current directory, and stored with
+ * a fingerprint of the last modified time and size of the current directory,
+ * of every path named by the command and of the entries of those that are
+ * directories. A result whose fingerprint no longer matches is evaluated again.
+ * Changes keeping both the size and the last modified time of a file, which
+ * has a granularity of up to a few seconds on some file systems, go unnoticed.
+ * </p>
+ *
+ * <p>
+ * Only commands made of the applications in READ_ONLY_APPS are remembered.
+ * Commands with output redirection, nested command substitutions, or a -R
+ * option, whose reads cannot be told from their arguments, are always
+ * evaluated. So are commands reading the standard input of the shell, such as
+ * `cat` or `grep x -`, whose input differs from one evaluation to the next.
+ * </p>
+ */
+public class CmdSubMemo {
+	public static final Set<String> READ_ONLY_APPS = new HashSet<String>(
+			Arrays.asList("cat", "cmp", "diff", "echo", "grep", "ls", "paste", "sed"));
+
+	private static final String RECURSIVE_OPTION = "-R";
+	private static final String STDIN_OPERAND = "-";
+	private static final Map<String, Integer> STDIN_APPS = createStdinApps();
+
+	private final LruCache<String, Result> cache;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            Maximum number of results remembered, where 0 disables the memo.
+	 */
+	public CmdSubMemo(int capacity) {
+		cache = new LruCache<String, Result>(capacity);
+	}
+
+	/**
+	 * Returns whether the specified command only reads files: every application
+	 * it runs is in READ_ONLY_APPS, none of them reads the standard input of the
+	 * shell, and it has no output redirection nor nested command substitution.
+	 * An application at the start of a pipeline reads the standard input if it
+	 * has a "-" operand, or no file operand and no input redirection.
+	 *
+	 * @param cmd
+	 *            String of the command substitution.
+	 */
+	public static boolean isReadOnly(String cmd) {
+		CommandString cmdString = new CommandString(cmd);
+		return isReadOnly(cmdString, CommandLexer.tokenize(cmdString));
+	}
+
+	/**
+	 * Returns the fingerprint of the files read by the specified command, or null
+	 * if its result cannot be remembered.
+	 *
+	 * @param cmd
+	 *            String of the command substitution.
+	 * @param directory
+	 *            String of the current directory the command runs in.
+	 */
+	public String getFingerprint(String cmd, String directory) {
+		if (cache.getCapacity() == 0) {
+			return null;
+		}
+		CommandString cmdString = new CommandString(cmd);
+		CommandToken[] tokens = CommandLexer.tokenize(cmdString);
+		if (!isReadOnly(cmdString, tokens)) {
+			return null;
+		}
+		StringBuilder fingerprint = new StringBuilder();
+		appendPath(fingerprint, new File(directory));
+		boolean isAppName = true;
+		for (int i = 0; i < tokens.length; i++) {
+			CommandToken.Type type = tokens[i].getType();
+			if (type == CommandToken.Type.PIPE || type == CommandToken.Type.SEMICOLON) {
+				isAppName = true;
+				continue;
+			}
+			if (type != CommandToken.Type.WORD) {
+				continue;
+			}
+			String word = getWord(cmdString, tokens[i]);
+			if (isAppName) {
+				isAppName = false;
+			} else if (RECURSIVE_OPTION.equals(word)) {
+				return null;
+			} else if (!word.isEmpty() && word.charAt(0) != '-') {
+				appendPath(fingerprint, resolve(directory, word));
+			}
+		}
+		return fingerprint.toString();
+	}
+
+	/**
+	 * Returns the result remembered for the specified command if the files it
+	 * read still have the specified fingerprint, or null otherwise.
+	 */
+	public String get(String cmd, String directory, String fingerprint) {
+		Result result = cache.get(getKey(cmd, directory));
+		if (result == null || !result.fingerprint.equals(fingerprint)) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return result.output;
+	}
+
+	/**
+	 * Remembers the result of the specified command, evaluated when the files it
+	 * read had the specified fingerprint.
+	 */
+	public void put(String cmd, String directory, String fingerprint, String output) {
+		cache.put(getKey(cmd, directory), new Result(fingerprint, output));
+	}
+
+	/**
+	 * Forgets all results and resets the counters.
+	 */
+	public void clear() {
+		cache.clear();
+		hitCount.set(0);
+		missCount.set(0);
+	}
+
+	public int getCapacity() {
+		return cache.getCapacity();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	private static boolean isReadOnly(CommandString cmdString, CommandToken[] tokens) {
+		boolean isPipelineStart = true;
+		String appName = null;
+		int operandCount = 0;
+		boolean hasStdinOperand = false;
+		boolean isInputRedir = false;
+		for (int i = 0; i <= tokens.length; i++) {
+			CommandToken.Type type = i < tokens.length ? tokens[i].getType() : CommandToken.Type.SEMICOLON;
+			if (type == CommandToken.Type.BACKQUOTE || type == CommandToken.Type.OUTPUT_REDIR) {
+				return false;
+			}
+			if (type == CommandToken.Type.PIPE || type == CommandToken.Type.SEMICOLON) {
+				if (isPipelineStart && !isInputRedir && isReadingStdin(appName, operandCount, hasStdinOperand)) {
+					return false;
+				}
+				isPipelineStart = type == CommandToken.Type.SEMICOLON;
+				appName = null;
+				operandCount = 0;
+				hasStdinOperand = isInputRedir = false;
+			} else if (type == CommandToken.Type.INPUT_REDIR) {
+				isInputRedir = true;
+			} else if (type == CommandToken.Type.WORD && appName == null) {
+				appName = getWord(cmdString, tokens[i]);
+				if (!READ_ONLY_APPS.contains(appName)) {
+					return false;
+				}
+			} else if (type == CommandToken.Type.WORD) {
+				String word = getWord(cmdString, tokens[i]);
+				if (STDIN_OPERAND.equals(word)) {
+					hasStdinOperand = true;
+				} else if (word.isEmpty() || word.charAt(0) != '-') {
+					operandCount++;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the applications reading their standard input when they have no
+	 * file operand, with the number of operands they take before the files.
+	 */
+	private static Map<String, Integer> createStdinApps() {
+		Map<String, Integer> apps = new HashMap<String, Integer>();
+		apps.put("cat", 0);
+		apps.put("cmp", 0);
+		apps.put("diff", 0);
+		apps.put("paste", 0);
+		apps.put("grep", 1);
+		apps.put("sed", 1);
+		return apps;
+	}
+
+	/**
+	 * Returns whether the specified application reads its standard input given
+	 * the number of its operands other than "-" and whether one of them is "-".
+	 */
+	private static boolean isReadingStdin(String appName, int operandCount, boolean hasStdinOperand) {
+		Integer nonFileCount = appName == null ? null : STDIN_APPS.get(appName);
+		return nonFileCount != null && (hasStdinOperand || operandCount <= nonFileCount);
+	}
+
+	private static String getWord(CommandString cmdString, CommandToken token) {
+		return stripQuotes(cmdString.substring(token.getBeginIndex(), token.getEndIndex()).toString());
+	}
+
+	private static String getKey(String cmd, String directory) {
+		return directory + '\0' + cmd;
+	}
+
+	/**
+	 * Returns the file named by the specified argument, or by the directory part
+	 * before the first wildcard if it is a glob pattern.
+	 */
+	private static File resolve(String directory, String word) {
+		String path = word;
+		int wildcard = path.indexOf('*');
+		if (wildcard >= 0) {
+			int separator = Math.max(path.lastIndexOf('/', wildcard), path.lastIndexOf(File.separatorChar, wildcard));
+			path = separator < 0 ? "" : path.substring(0, separator + 1);
+		}
+		File file = new File(path);
+		return file.isAbsolute() ? file : new File(directory, path);
+	}
+
+	private static String stripQuotes(String word) {
+		return word.replace("'", "").replace("\"", "");
+	}
+
+	/**
+	 * Appends the last modified time and size of the specified file, and of its
+	 * entries if it is a directory.
+	 */
+	private static void appendPath(StringBuilder fingerprint, File file) {
+		appendFile(fingerprint, file);
+		File[] entries = file.listFiles();
+		if (entries == null) {
+			return;
+		}
+		Arrays.sort(entries);
+		for (int i = 0; i < entries.length; i++) {
+			appendFile(fingerprint, entries[i]);
+		}
+	}
+
+	private static void appendFile(StringBuilder fingerprint, File file) {
+		fingerprint.append(file.getPath()).append('|');
+		if (file.exists()) {
+			fingerprint.append(file.lastModified()).append('|').append(file.length());
+		} else {
+			fingerprint.append('-');
+		}
+		fingerprint.append('\n');
+	}
+
+	/**
+	 * The output of a command together with the fingerprint of the files it read.
+	 */
+	private static class Result {
+		private final String fingerprint;
+		private final String output;
+
+		Result(String fingerprint, String output) {
+			this.fingerprint = fingerprint;
+			this.output = output;
+		}
+	}
+}
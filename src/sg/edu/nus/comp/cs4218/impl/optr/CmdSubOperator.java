@@ -1,32 +1,95 @@
 package sg.edu.nus.comp.cs4218.impl.optr;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
+import sg.edu.nus.comp.cs4218.CommandExecutor;
+import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.Operator;
 import sg.edu.nus.comp.cs4218.Shell;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandLexer;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandToken;
 import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.SpillBuffer;
+import sg.edu.nus.comp.cs4218.impl.jfr.ShellEvents;
 
 /**
  * A Command Substitution is a call-command surrounded by backquotes (`) if the
  * backquotes are not surrounded by single quotes (if any).
  **/
 public class CmdSubOperator implements Operator {
+	public static final String EXP_OUTPUT_TOO_LARGE = "Command substitution output too large";
+	public static final String MEMO_SIZE_PROPERTY = "cs4218.cmdsub.memo.size";
+	public static final String OUTPUT_LIMIT_PROPERTY = "cs4218.cmdsub.output.limit";
+	public static final long DEFAULT_OUTPUT_LIMIT = 16L * 1024 * 1024;
+
+	private static final long MAX_OUTPUT_SIZE = Integer.MAX_VALUE - 8;
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private static volatile CmdSubMemo memo = new CmdSubMemo(Integer.getInteger(MEMO_SIZE_PROPERTY, 0));
+	private static volatile long outputLimit = Long.getLong(OUTPUT_LIMIT_PROPERTY, DEFAULT_OUTPUT_LIMIT);
+
 	private final Shell shell;
 
 	public CmdSubOperator(Shell shell) {
 		this.shell = shell;
 	}
 
+	/**
+	 * Returns the memo of read-only command substitution results shared by all
+	 * shells. It is disabled unless its capacity is set by the
+	 * "cs4218.cmdsub.memo.size" system property or setMemoCapacity.
+	 */
+	public static CmdSubMemo getMemo() {
+		return memo;
+	}
+
+	/**
+	 * Replaces the memo of command substitution results by an empty one of the
+	 * specified capacity, where 0 disables it.
+	 */
+	public static void setMemoCapacity(int capacity) {
+		memo = new CmdSubMemo(capacity);
+	}
+
+	/**
+	 * Returns the largest output in bytes of a command substitution, beyond which
+	 * it fails instead of being decoded into the command line. It is set by the
+	 * "cs4218.cmdsub.output.limit" system property.
+	 */
+	public static long getOutputLimit() {
+		return outputLimit;
+	}
+
+	public static void setOutputLimit(long size) {
+		outputLimit = size;
+	}
+
 	/**
 	 * Searches for and processes the commands enclosed by back quotes for command
 	 * substitution. The commands enclosed by back quotes will be replaced by the
 	 * command substitution results with newline replaced with a space. The replaced
 	 * string are not escaped.
 	 * 
+	 * <p>
+	 * Several command substitutions are evaluated at the same time if all of them
+	 * only read files (see CmdSubMemo.isReadOnly), and otherwise one at a time
+	 * from right to left, since the effect of one writing files or changing the
+	 * directory would be seen by the others depending on timing, as would the
+	 * split of the standard input between several reading it. If some of them
+	 * fail, the exception of the rightmost one failing is thrown once all of them
+	 * have finished.
+	 * </p>
+	 * 
 	 * @param cmd
 	 *            CommandString containing the commands enclosed by back quotes for
 	 *            command substitution.
@@ -39,37 +102,128 @@ public class CmdSubOperator implements Operator {
 	 *             quotes.
 	 */
 	public void evaluate(CommandString cmd) throws AbstractApplicationException, ShellException {
+		evaluate(cmd, System.in);
+	}
+
+	/**
+	 * Processes the command substitutions of the specified CommandString like
+	 * evaluate(CommandString), with the specified stream as the stdin of their
+	 * commands, such as the stdin of the command line being evaluated.
+	 * 
+	 * @param cmd
+	 *            CommandString containing the commands enclosed by back quotes for
+	 *            command substitution.
+	 * @param stdin
+	 *            InputStream for the commands to read stdin from.
+	 * 
+	 * @throws AbstractApplicationException
+	 *             If an exception happens while processing the application in the
+	 *             back quotes.
+	 * @throws ShellException
+	 *             If an exception happens while processing the content in the back
+	 *             quotes.
+	 */
+	public void evaluate(CommandString cmd, InputStream stdin) throws AbstractApplicationException, ShellException {
 		if (cmd == null) {
 			throw new ShellException("Null Pointer Exception");
 		}
 
-		Integer[] bqIndices = cmd.getIndicesOfCharNotEscaped('`');
-		if (bqIndices.length == 0) {
-			// no command sub present
-			return;
+		CommandToken[] tokens = CommandLexer.tokenize(cmd);
+		Vector<CommandToken> cmdSubTokens = new Vector<CommandToken>();
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokens[i].getType() != CommandToken.Type.BACKQUOTE) {
+				continue;
+			}
+			if (!tokens[i].isClosed()) {
+				throw new ShellException("Back Quotes not closed");
+			}
+			cmdSubTokens.add(tokens[i]);
 		}
 
-		if (bqIndices.length % 2 != 0) {
-			throw new ShellException("Back Quotes not closed");
+		String[] cmdSubCmds = new String[cmdSubTokens.size()];
+		int cmdSubCount = 0;
+		boolean isReadOnly = true;
+		for (int i = 0; i < cmdSubCmds.length; i++) {
+			int beginIndex = cmdSubTokens.get(i).getBeginIndex();
+			int endIndex = cmdSubTokens.get(i).getEndIndex();
+			if (beginIndex + 2 < endIndex) {
+				cmdSubCmds[i] = cmd.substring(beginIndex + 1, endIndex - 1).toString();
+				cmdSubCount++;
+				isReadOnly &= CmdSubMemo.isReadOnly(cmdSubCmds[i]);
+			}
 		}
+		String[] cmdSubResults = cmdSubCount > 1 && isReadOnly ? performCmdSubs(stdin, cmdSubCmds) : null;
 
-		Arrays.sort(bqIndices);
-		for (int i = bqIndices.length - 2; i >= 0; i -= 2) {
-			if (bqIndices[i] + 1 == bqIndices[i + 1]) {
-				cmd.removeRange(bqIndices[i], bqIndices[i + 1] + 1);
+		for (int i = cmdSubCmds.length - 1; i >= 0; i--) {
+			int beginIndex = cmdSubTokens.get(i).getBeginIndex();
+			int endIndex = cmdSubTokens.get(i).getEndIndex();
+			if (cmdSubCmds[i] == null) {
+				cmd.removeRange(beginIndex, endIndex);
 				continue;
 			}
-			String cmdSubCmd = cmd.substring(bqIndices[i] + 1, bqIndices[i + 1]).toString();
-			String cmdSubResult = performCmdSub(cmdSubCmd);
-			cmd.replaceRange(bqIndices[i], bqIndices[i + 1] + 1, cmdSubResult);
+			String cmdSubResult = cmdSubResults == null ? performCmdSub(cmdSubCmds[i], stdin) : cmdSubResults[i];
+			cmd.replaceRange(beginIndex, endIndex, cmdSubResult);
 		}
 	}
 
+	/**
+	 * Evaluates the specified commands at the same time, each in a sub-shell on a
+	 * thread of the shell's executor, and returns their results in the same
+	 * order.
+	 * 
+	 * @param stdin
+	 *            InputStream for the commands to read stdin from.
+	 * @param cmds
+	 *            String array of the commands, where null elements are skipped.
+	 * 
+	 * @throws AbstractApplicationException
+	 *             If an application of the rightmost failing command throws one.
+	 * @throws ShellException
+	 *             If the rightmost failing command fails in the shell.
+	 */
+	private String[] performCmdSubs(InputStream stdin, String... cmds) throws AbstractApplicationException, ShellException {
+		CommandExecutor executor = shell.getExecutor();
+		Vector<Future<String>> futures = new Vector<Future<String>>();
+		for (int i = 0; i < cmds.length; i++) {
+			futures.add(cmds[i] == null ? null : executor.submit(new SubShellTask(cmds[i], stdin)));
+		}
+
+		String[] results = new String[cmds.length];
+		AbstractApplicationException appException = null;
+		ShellException shellException = null;
+		for (int i = cmds.length - 1; i >= 0; i--) {
+			if (futures.get(i) == null) {
+				continue;
+			}
+			try {
+				results[i] = executor.await(futures.get(i));
+			} catch (AbstractApplicationException e) {
+				if (appException == null && shellException == null) {
+					appException = e;
+				}
+			} catch (ShellException e) {
+				if (appException == null && shellException == null) {
+					shellException = e;
+				}
+			}
+		}
+		if (appException != null) {
+			throw appException;
+		}
+		if (shellException != null) {
+			throw shellException;
+		}
+		return results;
+	}
+
 	/**
 	 * Returns the result of processing the command specified in a single line.
+	 * The sub-shell runs on a thread of the shell's executor.
 	 * 
 	 * @param cmd
 	 *            String of the specified command.
+	 * @param stdin
+	 *            InputStream for the command to read stdin from.
 	 * 
 	 * @return String Result of processing the command appended into a single line.
 	 * 
@@ -80,12 +234,104 @@ public class CmdSubOperator implements Operator {
 	 *             If an exception happens while processing the content in the back
 	 *             quotes.
 	 */
-	private String performCmdSub(String cmd) throws AbstractApplicationException, ShellException {
-		ByteArrayOutputStream bqOutputStream = new ByteArrayOutputStream();
-		Shell newShell = shell.newInstance();
-		newShell.parseAndEvaluate(cmd, bqOutputStream);
+	private String performCmdSub(String cmd, InputStream stdin) throws AbstractApplicationException, ShellException {
+		CommandExecutor executor = shell.getExecutor();
+		Future<String> result = executor.submit(new SubShellTask(cmd, stdin));
+		return executor.await(result);
+	}
+
+	/**
+	 * Evaluates the specified command in a new shell and returns its output in a
+	 * single line. The output is collected in a SpillBuffer, which moves to disk
+	 * once it holds more than Environment.pipeBufferLimit bytes. If the memo is
+	 * enabled, the result of a read-only command is reused while the files it
+	 * reads do not change (see CmdSubMemo).
+	 * 
+	 * @param cmd
+	 *            String of the specified command.
+	 * @param stdin
+	 *            InputStream for the command to read stdin from.
+	 * 
+	 * @throws AbstractApplicationException
+	 *             If an exception happens while processing the application in the
+	 *             back quotes.
+	 * @throws ShellException
+	 *             If an exception happens while processing the content in the back
+	 *             quotes, or if the output is larger than the output limit.
+	 */
+	private String runSubShell(String cmd, InputStream stdin) throws AbstractApplicationException, ShellException {
+		CmdSubMemo currentMemo = memo;
+		String directory = shell.getContext().getCurrentDirectory();
+		String fingerprint = currentMemo.getFingerprint(cmd, directory);
+		if (fingerprint != null) {
+			String result = currentMemo.get(cmd, directory, fingerprint);
+			if (result != null) {
+				return result;
+			}
+		}
+
+		SpillBuffer bqOutputStream = new SpillBuffer(Environment.pipeBufferLimit);
+		try {
+			Shell newShell = shell.newInstance();
+			ShellEvents.CmdSubRecord event = ShellEvents.newCmdSubEvent();
+			event.begin();
+			boolean isFailed = true;
+			try {
+				newShell.parseAndEvaluate(cmd, stdin, bqOutputStream);
+				isFailed = false;
+			} finally {
+				event.end(cmd, bqOutputStream.size(), isFailed);
+			}
+
+			String result = readSingleLine(bqOutputStream);
+			if (fingerprint != null) {
+				currentMemo.put(cmd, directory, fingerprint, result);
+			}
+			return result;
+		} finally {
+			bqOutputStream.delete();
+		}
+	}
+
+	/**
+	 * Returns the text of the specified buffer with newlines replaced by spaces
+	 * and leading and trailing whitespace removed.
+	 * 
+	 * @throws ShellException
+	 *             If the buffer cannot be read or holds more than the output limit.
+	 */
+	private static String readSingleLine(SpillBuffer buffer) throws ShellException {
+		if (buffer.size() > Math.min(outputLimit, MAX_OUTPUT_SIZE)) {
+			throw new ShellException(EXP_OUTPUT_TOO_LARGE);
+		}
+		StringBuilder text = new StringBuilder();
+		try (Reader reader = new InputStreamReader(buffer.getInputStream(), Charset.defaultCharset())) {
+			char[] chars = new char[READ_BUFFER_SIZE];
+			int length;
+			while ((length = reader.read(chars)) != -1) {
+				text.append(chars, 0, length);
+			}
+		} catch (IOException e) {
+			throw new ShellException(e.getMessage());
+		}
+		return text.toString().replace(OSUtil.NEWLINE, " ").replace("\r", " ").trim();
+	}
 
-		byte[] byteArray = bqOutputStream.toByteArray();
-		return new String(byteArray).replace(OSUtil.NEWLINE, " ").replace("\r", " ").trim();
+	/**
+	 * Evaluates a command substitution in a sub-shell.
+	 */
+	private class SubShellTask implements Callable<String> {
+		private final String cmd;
+		private final InputStream stdin;
+
+		SubShellTask(String cmd, InputStream stdin) {
+			this.cmd = cmd;
+			this.stdin = stdin;
+		}
+
+		@Override
+		public String call() throws AbstractApplicationException, ShellException {
+			return runSubShell(cmd, stdin);
+		}
 	}
 }
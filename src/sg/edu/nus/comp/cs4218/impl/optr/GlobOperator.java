@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.StringJoiner;
 import java.util.Vector;
+import java.util.regex.Matcher;
 
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.Operator;
@@ -13,6 +14,10 @@ import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
 import sg.edu.nus.comp.cs4218.impl.commons.FileUtil;
 import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.commons.PatternCache;
+import sg.edu.nus.comp.cs4218.impl.jfr.ShellEvents;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Counter;
 
 /**
  * A glob operator is used to evaluate wildcards specified in the path to a
@@ -57,7 +62,16 @@ public class GlobOperator implements Operator {
 				}
 			}
 
-			String[] globResult = evaluate(regexArg.toString());
+			ShellEvents.GlobRecord event = ShellEvents.newGlobEvent();
+			event.begin();
+			DirectoryCount scanned = new DirectoryCount();
+			String[] globResult = evaluate(regexArg.toString(), scanned);
+			MetricsRegistry.count(Counter.GLOB_PATTERNS, 1);
+			MetricsRegistry.count(Counter.GLOB_DIRECTORIES, scanned.count);
+			MetricsRegistry.count(Counter.GLOB_MATCHES, globResult.length);
+			if (event.shouldCommit()) {
+				event.end(cmd.substring(beginIndex, endIndex).toString(), scanned.count, globResult.length);
+			}
 			if (globResult.length == 0) {
 				iterIndex = endIndex;
 				continue;
@@ -126,12 +140,14 @@ public class GlobOperator implements Operator {
 	 * 
 	 * @param fileName
 	 *            String of the file path regex.
+	 * @param scanned
+	 *            DirectoryCount counting the directories listed.
 	 * @return String Array paths that matches the wildcard fileName.
 	 * 
 	 * @throws IOException
 	 *             If the specified path is null.
 	 */
-	private String[] evaluate(String fileName) throws ShellException {
+	private String[] evaluate(String fileName, DirectoryCount scanned) throws ShellException {
 		if (fileName == null) {
 			throw new ShellException("Null Pointer Exception");
 		}
@@ -158,16 +174,16 @@ public class GlobOperator implements Operator {
 				dirList.add("");
 			}
 		} else {
-			dirList.add(Environment.currentDirectory);
-			dirList = getMatchedDirs(dirList, splitedDir[0]);
+			dirList.add(Environment.getCurrentDirectory());
+			dirList = getMatchedDirs(dirList, splitedDir[0], scanned);
 			for (int i = 0; i < dirList.size(); i++) {
-				dirList.set(i, dirList.get(i).replace(Environment.currentDirectory + File.separator, ""));
+				dirList.set(i, dirList.get(i).replace(Environment.getCurrentDirectory() + File.separator, ""));
 			}
 		}
 
 		// append directories to path
 		for (int i = 1; i < splitedDir.length; i++) {
-			dirList = getMatchedDirs(dirList, splitedDir[i]);
+			dirList = getMatchedDirs(dirList, splitedDir[i], scanned);
 		}
 
 		removeFilesFromList(fileName, dirList);
@@ -215,8 +231,10 @@ public class GlobOperator implements Operator {
 	 *            Vector of string containing the file paths.
 	 * @param nextDir
 	 *            String of the file/folder to append.
+	 * @param scanned
+	 *            DirectoryCount counting the directories listed.
 	 */
-	private Vector<String> getMatchedDirs(Vector<String> dirList, String nextDir) {
+	private Vector<String> getMatchedDirs(Vector<String> dirList, String nextDir, DirectoryCount scanned) {
 		Vector<String> newList = new Vector<String>();
 
 		for (int i = 0; i < dirList.size(); i++) {
@@ -226,7 +244,7 @@ public class GlobOperator implements Operator {
 			}
 
 			if (nextDir.contains(REGEX_WILDCARD)) {
-				appendMatchedPath(newList, dirList.get(i), nextDir);
+				appendMatchedPath(newList, dirList.get(i), nextDir, scanned);
 			} else {
 				appendPath(newList, dirList.get(i), nextDir);
 			}
@@ -245,8 +263,11 @@ public class GlobOperator implements Operator {
 	 *            String of the parent directory.
 	 * @param wildCardName
 	 *            String of file or folder in the parent directory.
+	 * @param scanned
+	 *            DirectoryCount counting the directories listed.
 	 */
-	private void appendMatchedPath(Vector<String> paths, String parent, String wildCardName) {
+	private void appendMatchedPath(Vector<String> paths, String parent, String wildCardName,
+			DirectoryCount scanned) {
 		String regex = wildCardName.replaceAll("[\\<\\(\\[\\{\\\\\\^\\-\\=\\$\\!\\|\\]\\}\\)\\?\\*\\+\\.\\>]",
 				"\\\\$0");
 		regex = regex.replace("\\.\\*\\?", REGEX_WILDCARD);
@@ -256,8 +277,10 @@ public class GlobOperator implements Operator {
 		} catch (IOException e) {
 			return;
 		}
+		scanned.count++;
+		Matcher matcher = PatternCache.compile(regex).matcher("");
 		for (int k = 0; k < filesInDir.length; k++) {
-			if (filesInDir[k].matches(regex)) {
+			if (matcher.reset(filesInDir[k]).matches()) {
 				appendPath(paths, parent, filesInDir[k]);
 			}
 		}
@@ -286,4 +309,11 @@ public class GlobOperator implements Operator {
 			paths.add(parent + File.separator + current);
 		}
 	}
+
+	/**
+	 * Number of directories listed while expanding one path.
+	 */
+	private static class DirectoryCount {
+		int count;
+	}
 }
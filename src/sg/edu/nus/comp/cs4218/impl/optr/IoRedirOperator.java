@@ -2,21 +2,21 @@ package sg.edu.nus.comp.cs4218.impl.optr;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.HashSet;
 
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.Shell;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.commons.BufferedFileOutputStream;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandLexer;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
+import sg.edu.nus.comp.cs4218.impl.commons.CommandToken;
 import sg.edu.nus.comp.cs4218.impl.commons.FileUtil;
 
 /**
@@ -48,38 +48,11 @@ public class IoRedirOperator {
 		if (cmd == null) {
 			return null;
 		}
-		Integer[] indices = cmd.getIndicesOfCharNotEscaped('<');
-		if (indices.length > 1) {
-			throw new ShellException("only 1 inputstream can be specified");
-		} else if (indices.length == 0) {
+		CommandString fileString = extractRedirFile(cmd, CommandToken.Type.INPUT_REDIR,
+				"only 1 inputstream can be specified", "no input file specified");
+		if (fileString == null) {
 			return null;
 		}
-		HashSet<Integer> set = new HashSet<Integer>(Arrays.asList(cmd.getIndicesOfCharNotEscaped(' ')));
-		set.addAll(Arrays.asList(cmd.getIndicesOfCharNotEscaped('\t')));
-		String command = cmd.toString(), arg = "";
-		int endIndex;
-		for (endIndex = indices[0] + 1; endIndex < command.length(); endIndex++) {
-			if (command.charAt(endIndex) != '\t' && command.charAt(endIndex) != ' ') {
-				break;
-			}
-		}
-		int startIndex = endIndex;
-		for (; endIndex < command.length(); endIndex++) {
-			if (((command.charAt(endIndex) == '>' || command.charAt(endIndex) == ' '
-					|| command.charAt(endIndex) == '\t')) && set.contains(endIndex)) {
-				break;
-			}
-			arg += command.charAt(endIndex);
-		}
-		if (arg.isEmpty()) {
-			throw new ShellException("no input file specified");
-		}
-
-		CommandString fileString = cmd.substring(startIndex, endIndex);
-		shell.performCmdSub(fileString);
-		setAsteriskFalse(fileString);
-		shell.performGlob(fileString);
-		cmd.removeRange(indices[0], endIndex);
 		try {
 			return new FileInputStream(FileUtil.getFileFromPath(fileString.toString()));
 		} catch (IOException e) {
@@ -88,7 +61,9 @@ public class IoRedirOperator {
 	}
 	
 	/**
-	 * Scans the arguments and sets the output stream
+	 * Scans the arguments and sets the output stream, which collects writes in a
+	 * buffer of Environment.redirBufferSize bytes and has to be closed for them
+	 * to reach the file.
 	 * @param args 
 	 *            	String array of the individual arguments.
 	 * @return OutputStream
@@ -101,46 +76,77 @@ public class IoRedirOperator {
 		if (cmd == null) {
 			return null;
 		}
-		Integer[] indices = cmd.getIndicesOfCharNotEscaped('>');
-		if (indices.length > 1) {
-			throw new ShellException("only 1 outputstream can be specified");
-		} else if (indices.length == 0) {
+		CommandString fileString = extractRedirFile(cmd, CommandToken.Type.OUTPUT_REDIR,
+				"only 1 outputstream can be specified", "no output file specified");
+		if (fileString == null) {
 			return null;
 		}
-		HashSet<Integer> set = new HashSet<Integer>(Arrays.asList(cmd.getIndicesOfCharNotEscaped(' ')));
-		set.addAll(Arrays.asList(cmd.getIndicesOfCharNotEscaped('\t')));
-		String command = cmd.toString(), arg = "";
-		int endIndex;
-		for (endIndex = indices[0] + 1; endIndex < command.length(); endIndex++) {
-			if (command.charAt(endIndex) != '\t' && command.charAt(endIndex) != ' ') {
-				break;
+		try {
+			Path path = Paths.get(Environment.getCurrentDirectory()).resolve(fileString.toString());
+			return new BufferedFileOutputStream(new File(path.toString()), Environment.redirBufferSize,
+					Environment.isRedirSync);
+		} catch (IOException e) {
+			throw new ShellException(e.getMessage());
+		} catch (InvalidPathException pathE) {
+			throw new ShellException("invalid file specified");
+		}
+	}
+
+	/**
+	 * Removes the redirection operator of the specified type and the file argument
+	 * following it from the command, and returns the file argument with command
+	 * substitution and globbing performed.
+	 * 
+	 * @param cmd
+	 *            CommandString containing the redirection.
+	 * @param type
+	 *            Type of the redirection operator token.
+	 * @param multipleMsg
+	 *            String message if the operator appears more than once.
+	 * @param missingMsg
+	 *            String message if the operator is not followed by a file.
+	 * @return CommandString The file argument, or null if the command has no such
+	 *         redirection.
+	 * @throws ShellException
+	 *             If the operator appears more than once or has no file argument.
+	 * @throws AbstractApplicationException
+	 */
+	private CommandString extractRedirFile(CommandString cmd, CommandToken.Type type, String multipleMsg,
+			String missingMsg) throws ShellException, AbstractApplicationException {
+		CommandToken[] tokens = CommandLexer.tokenize(cmd);
+		int redirIndex = -1;
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokens[i].getType() != type) {
+				continue;
 			}
+			if (redirIndex != -1) {
+				throw new ShellException(multipleMsg);
+			}
+			redirIndex = i;
+		}
+		if (redirIndex == -1) {
+			return null;
 		}
-		int startIndex = endIndex;
-		for (; endIndex < command.length(); endIndex++) {
-			if (((command.charAt(endIndex) == '<' || command.charAt(endIndex) == ' '
-					|| command.charAt(endIndex) == '\t')) && set.contains(endIndex)) {
+
+		// the file argument is made up of the adjacent non operator tokens after it
+		int argIndex = redirIndex + 1;
+		if (argIndex == tokens.length || tokens[argIndex].isOperator()) {
+			throw new ShellException(missingMsg);
+		}
+		int endIndex = tokens[argIndex].getEndIndex();
+		for (int i = argIndex + 1; i < tokens.length; i++) {
+			if (tokens[i].isOperator() || tokens[i].getBeginIndex() != endIndex) {
 				break;
 			}
-			arg += command.charAt(endIndex);
-		}
-		if (arg.isEmpty()) {
-			throw new ShellException("no output file specified");
+			endIndex = tokens[i].getEndIndex();
 		}
 
-		CommandString fileString = cmd.substring(startIndex, endIndex);
+		CommandString fileString = cmd.substring(tokens[argIndex].getBeginIndex(), endIndex);
 		shell.performCmdSub(fileString);
 		setAsteriskFalse(fileString);
 		shell.performGlob(fileString);
-		cmd.removeRange(indices[0], endIndex);
-		try {
-			Path path = Paths.get(Environment.currentDirectory).resolve(fileString.toString());
-			return new FileOutputStream(new File(path.toString()));
-		} catch (IOException e) {
-			throw new ShellException(e.getMessage());
-		} catch (InvalidPathException pathE) {
-			throw new ShellException("invalid file specified");
-		}
+		cmd.removeRange(tokens[redirIndex].getBeginIndex(), endIndex);
+		return fileString;
 	}
 
 	/**
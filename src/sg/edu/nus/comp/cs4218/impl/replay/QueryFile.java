@@ -0,0 +1,174 @@
+package sg.edu.nus.comp.cs4218.impl.replay;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Vector;
+
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+
+/**
+ * A QueryFile is a list of queries in the format of the AutoTester query files
+ * (see system_test/README.txt): each query is a comment line starting with
+ * "//", followed by the command line, followed by the lines of its expected
+ * output up to the next comment line.
+ */
+public class QueryFile {
+	public static final String COMMENT = "//";
+	public static final String PREFIX = "query";
+	public static final String TEST_SYSTEM_SUFFIX = "_test_system";
+
+	private final String name;
+	private final Query[] queries;
+
+	public QueryFile(String name, Query... queries) {
+		this.name = name;
+		this.queries = queries;
+	}
+
+	/**
+	 * Reads the queries of the specified file.
+	 *
+	 * @param file
+	 *            File in the query file format.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public static QueryFile read(File file) throws IOException {
+		Reader reader = new FileReader(file);
+		try {
+			return parse(file.getName(), reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Parses the queries read from the reader. Lines before the first comment
+	 * line are ignored, and a comment line with no command line after it is not a
+	 * query.
+	 *
+	 * @param name
+	 *            String naming the queries in reports.
+	 * @param reader
+	 *            Reader of the queries.
+	 * @throws IOException
+	 *             If the queries cannot be read.
+	 */
+	public static QueryFile parse(String name, Reader reader) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		Vector<Query> queries = new Vector<Query>();
+		String comment = null;
+		String cmdline = null;
+		StringBuilder expected = new StringBuilder();
+		String line;
+		while ((line = lines.readLine()) != null) {
+			if (line.startsWith(COMMENT)) {
+				addQuery(queries, comment, cmdline, expected);
+				comment = line.substring(COMMENT.length()).trim();
+				cmdline = null;
+				expected.setLength(0);
+			} else if (comment != null && cmdline == null) {
+				cmdline = line;
+			} else if (cmdline != null) {
+				if (expected.length() > 0) {
+					expected.append(OSUtil.NEWLINE);
+				}
+				expected.append(line);
+			}
+		}
+		addQuery(queries, comment, cmdline, expected);
+		return new QueryFile(name, queries.toArray(new Query[queries.size()]));
+	}
+
+	private static void addQuery(Vector<Query> queries, String comment, String cmdline, StringBuilder expected) {
+		if (comment != null && cmdline != null) {
+			queries.add(new Query(comment, cmdline, expected.toString()));
+		}
+	}
+
+	/**
+	 * Returns the name of the test system folder of the specified query file
+	 * following the naming of test_suite_1, such as "cat_test_system" for
+	 * "query-cat.txt", or null if the file name does not follow it.
+	 */
+	public static String getTestSystemName(String fileName) {
+		if (!fileName.startsWith(PREFIX + "-") || !fileName.endsWith(".txt")) {
+			return null;
+		}
+		return fileName.substring(PREFIX.length() + 1, fileName.length() - ".txt".length()) + TEST_SYSTEM_SUFFIX;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Query[] getQueries() {
+		return queries.clone();
+	}
+
+	/**
+	 * A command line of a query file with its expected output.
+	 */
+	public static class Query {
+		private final String comment;
+		private final String cmdline;
+		private final String expected;
+
+		public Query(String comment, String cmdline, String expected) {
+			this.comment = comment;
+			this.cmdline = cmdline;
+			this.expected = expected;
+		}
+
+		public String getComment() {
+			return comment;
+		}
+
+		public String getCommandLine() {
+			return cmdline;
+		}
+
+		public String getExpectedOutput() {
+			return expected;
+		}
+
+		/**
+		 * Returns the kind of the command line reported on: its first word, which
+		 * is the application run first.
+		 */
+		public String getType() {
+			String trimmed = cmdline.trim();
+			int index = 0;
+			while (index < trimmed.length() && !Character.isWhitespace(trimmed.charAt(index))
+					&& ";|<>".indexOf(trimmed.charAt(index)) == -1) {
+				index++;
+			}
+			return index == 0 ? trimmed : trimmed.substring(0, index);
+		}
+
+		/**
+		 * Returns true if the actual output is the expected output, ignoring line
+		 * separators, empty lines at the start of the output and whitespace at the
+		 * end of it.
+		 */
+		public boolean matches(String actual) {
+			return normalize(expected).equals(normalize(actual));
+		}
+
+		private static String normalize(String output) {
+			String normalized = output.replace("\r\n", "\n").replace('\r', '\n');
+			int begin = 0;
+			while (begin < normalized.length() && normalized.charAt(begin) == '\n') {
+				begin++;
+			}
+			int end = normalized.length();
+			while (end > begin && Character.isWhitespace(normalized.charAt(end - 1))) {
+				end--;
+			}
+			return normalized.substring(begin, end);
+		}
+	}
+}
@@ -0,0 +1,555 @@
+package sg.edu.nus.comp.cs4218.impl.replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import sg.edu.nus.comp.cs4218.CommandExecutor;
+import sg.edu.nus.comp.cs4218.ShellContext;
+import sg.edu.nus.comp.cs4218.impl.ApplicationRegistry;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.replay.QueryFile.Query;
+import sg.edu.nus.comp.cs4218.impl.server.ShellServer;
+
+/**
+ * A ReplayHarness evaluates the command lines of query files in-process, on a
+ * number of threads and a number of times, and reports the latency of the
+ * command lines per type and the overall throughput. Optionally, the output of
+ * the first evaluation of each command line is checked against the expected
+ * output of the query, so that one run gives both a correctness regression
+ * and a performance baseline.
+ *
+ * <p>
+ * Every evaluation runs in a new shell whose current directory is the test
+ * system folder of its query file, like the AutoTester changing to the test
+ * system folder before each query. The test system folders next to the query
+ * files are copied to a temporary folder for the run, into a folder with the
+ * name of theirs, so that queries creating files, such as mkdir and split,
+ * leave the originals untouched, and queries looking at the folders around
+ * their test system folder see the same names as under the AutoTester. A test
+ * system folder missing for a query file is created empty. Within a run, queries
+ * see the files created by earlier evaluations, which is why only the first
+ * evaluation is checked. The checked evaluation of each query file runs its
+ * queries one after the other, before the other evaluations start. Commands
+ * read no stdin and "exit" does not stop the harness.
+ * </p>
+ *
+ * <p>
+ * <b>Usage:</b>
+ * <code>ReplayHarness [--threads=N] [--iterations=N] [--check] [--dir=FOLDER]
+ * QUERY_FILE_OR_FOLDER...</code>
+ * The test system folder of "query-NAME.txt" is the folder "NAME_test_system"
+ * next to it if there is one or no --dir folder is given, and otherwise the
+ * --dir folder.
+ * </p>
+ */
+public class ReplayHarness {
+	public static final String THREADS_OPTION = "--threads=";
+	public static final String ITERATIONS_OPTION = "--iterations=";
+	public static final String DIR_OPTION = "--dir=";
+	public static final String CHECK_OPTION = "--check";
+
+	private static final byte[] NO_INPUT = new byte[0];
+
+	private final CommandExecutor executor;
+	private final ApplicationRegistry registry;
+	private final int threadCount;
+	private final int iterations;
+	private final boolean isChecking;
+	private final Vector<QueryFile> files = new Vector<QueryFile>();
+	private final Vector<String> roots = new Vector<String>();
+	private final Vector<String> directories = new Vector<String>();
+
+	/**
+	 * Creates a harness evaluating every query the specified number of times on
+	 * the specified number of threads.
+	 *
+	 * @param executor
+	 *            CommandExecutor of the shells.
+	 * @param threadCount
+	 *            Number of command lines evaluated at the same time.
+	 * @param iterations
+	 *            Number of times every command line is evaluated.
+	 * @param isChecking
+	 *            True to check the output of the first evaluation of each command
+	 *            line.
+	 */
+	public ReplayHarness(CommandExecutor executor, int threadCount, int iterations, boolean isChecking) {
+		if (threadCount < 1 || iterations < 1) {
+			throw new IllegalArgumentException("replay: threads and iterations must be positive");
+		}
+		this.executor = executor;
+		this.registry = ShellServer.createSessionRegistry();
+		this.threadCount = threadCount;
+		this.iterations = iterations;
+		this.isChecking = isChecking;
+	}
+
+	/**
+	 * Adds the queries of a file, to be evaluated in a copy of the specified
+	 * directory.
+	 */
+	public void add(QueryFile file, String directory) {
+		add(file, directory, directory);
+	}
+
+	/**
+	 * Adds the queries of a file, to be evaluated in the specified directory
+	 * within a copy of the specified root folder. If the directory is not the
+	 * root itself, only the test system folders of the root are copied, and the
+	 * directory is created in the copy if it does not exist.
+	 *
+	 * @param file
+	 *            QueryFile of the queries.
+	 * @param root
+	 *            String of the folder copied for the run.
+	 * @param directory
+	 *            String of the directory the queries run in, inside the root.
+	 * @throws IllegalArgumentException
+	 *             If the directory is not inside the root.
+	 */
+	public void add(QueryFile file, String root, String directory) {
+		Path rootPath = Paths.get(root).toAbsolutePath().normalize();
+		Path directoryPath = Paths.get(directory).toAbsolutePath().normalize();
+		if (!directoryPath.startsWith(rootPath)) {
+			throw new IllegalArgumentException("replay: " + directory + " is not inside " + root);
+		}
+		files.add(file);
+		roots.add(rootPath.toString());
+		directories.add(directoryPath.toString());
+	}
+
+	/**
+	 * Evaluates all the queries added, iteration after iteration, in copies of
+	 * their root folders, and returns the report once they have all been
+	 * evaluated.
+	 *
+	 * @throws IOException
+	 *             If the root folders cannot be copied.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the evaluations.
+	 */
+	public Report run() throws IOException, InterruptedException {
+		Path sandbox = Files.createTempDirectory("replay");
+		try {
+			return run(copyDirectories(sandbox));
+		} finally {
+			deleteTree(sandbox);
+		}
+	}
+
+	private Report run(Vector<String> copies) throws InterruptedException {
+		final Report report = new Report(threadCount);
+		ExecutorService threads = Executors.newFixedThreadPool(threadCount);
+		long start = System.nanoTime();
+		try {
+			int iteration = 0;
+			if (isChecking) {
+				threads.invokeAll(createCheckedRuns(report, copies));
+				iteration++;
+			}
+			for (; iteration < iterations; iteration++) {
+				for (int i = 0; i < files.size(); i++) {
+					final QueryFile file = files.get(i);
+					final String directory = copies.get(i);
+					Query[] queries = file.getQueries();
+					for (int j = 0; j < queries.length; j++) {
+						final Query query = queries[j];
+						threads.execute(new Runnable() {
+							@Override
+							public void run() {
+								evaluate(report, file, query, directory, false);
+							}
+						});
+					}
+				}
+			}
+		} finally {
+			threads.shutdown();
+			threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		report.elapsedNanos = System.nanoTime() - start;
+		return report;
+	}
+
+	/**
+	 * Returns a task per query file evaluating and checking its queries in order,
+	 * like the AutoTester, so that the checked output of a query does not depend
+	 * on the other evaluations of its file running at the same time.
+	 */
+	private Vector<Callable<Void>> createCheckedRuns(final Report report, Vector<String> copies) {
+		Vector<Callable<Void>> runs = new Vector<Callable<Void>>();
+		for (int i = 0; i < files.size(); i++) {
+			final QueryFile file = files.get(i);
+			final String directory = copies.get(i);
+			runs.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					Query[] queries = file.getQueries();
+					for (int j = 0; j < queries.length; j++) {
+						evaluate(report, file, queries[j], directory, true);
+					}
+					return null;
+				}
+			});
+		}
+		return runs;
+	}
+
+	/**
+	 * Copies every distinct root folder of the query files into a folder of its
+	 * own in the sandbox, keeping its name, and returns the copy of the
+	 * directory of each query file, which is created if it is missing.
+	 */
+	private Vector<String> copyDirectories(Path sandbox) throws IOException {
+		HashMap<String, Path> copyOf = new HashMap<String, Path>();
+		Vector<String> copies = new Vector<String>();
+		for (int i = 0; i < directories.size(); i++) {
+			Path root = Paths.get(roots.get(i));
+			Path copy = copyOf.get(root.toString());
+			if (copy == null) {
+				Path name = root.getFileName();
+				copy = sandbox.resolve(String.valueOf(copyOf.size()));
+				copy = name == null ? copy : copy.resolve(name.toString());
+				if (root.toString().equals(directories.get(i))) {
+					copyTree(root, copy);
+				} else {
+					copyTestSystems(root, copy);
+				}
+				copyOf.put(root.toString(), copy);
+			}
+			Path directory = copy.resolve(root.relativize(Paths.get(directories.get(i))).toString());
+			Files.createDirectories(directory);
+			copies.add(directory.toString());
+		}
+		return copies;
+	}
+
+	/**
+	 * Copies the test system folders of the source folder, and nothing else, to
+	 * the target folder.
+	 */
+	private static void copyTestSystems(Path source, Path target) throws IOException {
+		Files.createDirectories(target);
+		File[] children = source.toFile().listFiles();
+		for (int i = 0; children != null && i < children.length; i++) {
+			if (children[i].isDirectory() && children[i].getName().endsWith(QueryFile.TEST_SYSTEM_SUFFIX)) {
+				copyTree(children[i].toPath(), target.resolve(children[i].getName()));
+			}
+		}
+	}
+
+	private static void copyTree(final Path source, final Path target) throws IOException {
+		Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.copy(file, target.resolve(source.relativize(file).toString()));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static void deleteTree(Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Evaluates the command line of a query in a new shell and records its
+	 * latency, and the mismatch of its output if it is checked.
+	 */
+	private void evaluate(Report report, QueryFile file, Query query, String directory, boolean isChecked) {
+		ShellImpl shell = new ShellImpl(executor, registry, new ShellContext(directory));
+		ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+		String message = null;
+		long start = System.nanoTime();
+		try {
+			shell.parseAndEvaluate(query.getCommandLine(), new ByteArrayInputStream(NO_INPUT), stdout);
+		} catch (Exception e) {
+			message = e.getMessage() == null ? e.toString() : e.getMessage();
+		}
+		report.record(query.getType(), System.nanoTime() - start);
+
+		if (isChecked) {
+			String actual = message == null ? stdout.toString() : stdout.toString() + message;
+			report.check(file, query, actual);
+		}
+	}
+
+	public static void main(String... args) {
+		int threadCount = 1;
+		int iterations = 1;
+		boolean isChecking = false;
+		String defaultDir = null;
+		Vector<File> paths = new Vector<File>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].startsWith(THREADS_OPTION)) {
+					threadCount = Integer.parseInt(args[i].substring(THREADS_OPTION.length()));
+				} else if (args[i].startsWith(ITERATIONS_OPTION)) {
+					iterations = Integer.parseInt(args[i].substring(ITERATIONS_OPTION.length()));
+				} else if (args[i].startsWith(DIR_OPTION)) {
+					defaultDir = new File(args[i].substring(DIR_OPTION.length())).getAbsolutePath();
+				} else if (CHECK_OPTION.equals(args[i])) {
+					isChecking = true;
+				} else {
+					paths.add(new File(args[i]));
+				}
+			}
+
+			ReplayHarness harness = new ReplayHarness(ShellImpl.getDefaultExecutor(), threadCount, iterations,
+					isChecking);
+			for (int i = 0; i < paths.size(); i++) {
+				File[] queryFiles = listQueryFiles(paths.get(i));
+				for (int j = 0; j < queryFiles.length; j++) {
+					String directory = getDirectory(queryFiles[j], defaultDir);
+					harness.add(QueryFile.read(queryFiles[j]), getRoot(queryFiles[j], directory), directory);
+				}
+			}
+			Report report = harness.run();
+			System.out.println(report.toText(OSUtil.NEWLINE));
+			System.exit(report.getMismatchCount() == 0 ? 0 : 1);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("replay: " + e.getMessage());
+			System.exit(2);
+		} catch (InterruptedException e) {
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Returns the query file, or the query files in the folder sorted by name.
+	 */
+	private static File[] listQueryFiles(File path) throws IOException {
+		if (!path.exists()) {
+			throw new IOException(path + ": No such file or directory");
+		}
+		if (!path.isDirectory()) {
+			return new File[] { path };
+		}
+		Vector<File> queryFiles = new Vector<File>();
+		File[] children = path.listFiles();
+		for (int i = 0; i < children.length; i++) {
+			if (children[i].isFile() && children[i].getName().startsWith(QueryFile.PREFIX)) {
+				queryFiles.add(children[i]);
+			}
+		}
+		File[] sorted = queryFiles.toArray(new File[queryFiles.size()]);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Returns the folder to copy for the query file: the folder of the query
+	 * file if its test system folder is next to it, and otherwise the directory
+	 * itself.
+	 */
+	private static String getRoot(File queryFile, String directory) {
+		File parent = queryFile.getAbsoluteFile().getParentFile();
+		return Paths.get(directory).toAbsolutePath().normalize().startsWith(parent.toPath().normalize())
+				? parent.getPath() : directory;
+	}
+
+	private static String getDirectory(File queryFile, String defaultDir) {
+		File parent = queryFile.getAbsoluteFile().getParentFile();
+		String testSystemName = QueryFile.getTestSystemName(queryFile.getName());
+		if (testSystemName != null && (defaultDir == null || new File(parent, testSystemName).isDirectory())) {
+			return new File(parent, testSystemName).getPath();
+		}
+		return defaultDir == null ? parent.getPath() : defaultDir;
+	}
+
+	/**
+	 * A Report holds the latencies of the evaluations, grouped by type of command
+	 * line, and the mismatches found.
+	 */
+	public static class Report {
+		private final int threadCount;
+		private final ConcurrentHashMap<String, Latencies> latencies = new ConcurrentHashMap<String, Latencies>();
+		private final Latencies allLatencies = new Latencies();
+		private final Vector<String> mismatches = new Vector<String>();
+		private final Vector<String> checked = new Vector<String>();
+		private volatile long elapsedNanos;
+
+		Report(int threadCount) {
+			this.threadCount = threadCount;
+		}
+
+		void record(String type, long nanos) {
+			Latencies typeLatencies = latencies.get(type);
+			if (typeLatencies == null) {
+				Latencies created = new Latencies();
+				typeLatencies = latencies.putIfAbsent(type, created);
+				if (typeLatencies == null) {
+					typeLatencies = created;
+				}
+			}
+			typeLatencies.add(nanos);
+			allLatencies.add(nanos);
+		}
+
+		void check(QueryFile file, Query query, String actual) {
+			checked.add(query.getCommandLine());
+			if (!query.matches(actual)) {
+				mismatches.add(file.getName() + ": " + query.getComment() + OSUtil.NEWLINE + "  command:  "
+						+ query.getCommandLine() + OSUtil.NEWLINE + "  expected: "
+						+ query.getExpectedOutput().replace(OSUtil.NEWLINE, "\\n") + OSUtil.NEWLINE + "  actual:   "
+						+ actual.replace(OSUtil.NEWLINE, "\\n"));
+			}
+		}
+
+		public int getCommandCount() {
+			return allLatencies.size();
+		}
+
+		public int getCheckedCount() {
+			return checked.size();
+		}
+
+		public int getMismatchCount() {
+			return mismatches.size();
+		}
+
+		/**
+		 * Returns the descriptions of the command lines whose output did not match.
+		 */
+		public String[] getMismatches() {
+			return mismatches.toArray(new String[0]);
+		}
+
+		/**
+		 * Returns the types of command lines evaluated, sorted.
+		 */
+		public String[] getTypes() {
+			String[] types = latencies.keySet().toArray(new String[0]);
+			Arrays.sort(types);
+			return types;
+		}
+
+		/**
+		 * Returns the specified percentile of the latencies of a type of command
+		 * line, or of all of them if the type is null, in nanoseconds.
+		 */
+		public long getPercentile(String type, double percentile) {
+			Latencies typeLatencies = type == null ? allLatencies : latencies.get(type);
+			return typeLatencies == null ? 0 : typeLatencies.getPercentile(percentile);
+		}
+
+		public long getElapsedMillis() {
+			return elapsedNanos / 1000000;
+		}
+
+		/**
+		 * Returns the number of command lines evaluated per second.
+		 */
+		public double getThroughput() {
+			return elapsedNanos == 0 ? 0 : getCommandCount() * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * Returns the report as text: the throughput, a line of latencies per type
+		 * and the mismatches, if any.
+		 *
+		 * @param newline
+		 *            String separating the lines.
+		 */
+		public String toText(String newline) {
+			StringBuilder text = new StringBuilder();
+			text.append(String.format("replay: %d commands in %d ms on %d threads, %.1f commands/s",
+					getCommandCount(), getElapsedMillis(), threadCount, getThroughput()));
+			text.append(newline).append(String.format("%-12s %8s %10s %10s %10s %10s", "type", "count", "p50 ms",
+					"p99 ms", "mean ms", "max ms"));
+			String[] types = getTypes();
+			for (int i = 0; i < types.length; i++) {
+				appendLatencies(text.append(newline), types[i], latencies.get(types[i]));
+			}
+			appendLatencies(text.append(newline), "all", allLatencies);
+			if (!checked.isEmpty()) {
+				text.append(newline).append(String.format("checked: %d commands, %d mismatches", checked.size(),
+						mismatches.size()));
+				String[] descriptions = getMismatches();
+				for (int i = 0; i < descriptions.length; i++) {
+					text.append(newline).append(descriptions[i]);
+				}
+			}
+			return text.toString();
+		}
+
+		private static void appendLatencies(StringBuilder text, String type, Latencies typeLatencies) {
+			text.append(String.format("%-12s %8d %10.3f %10.3f %10.3f %10.3f", type, typeLatencies.size(),
+					typeLatencies.getPercentile(50) / 1e6, typeLatencies.getPercentile(99) / 1e6,
+					typeLatencies.getMean() / 1e6, typeLatencies.getPercentile(100) / 1e6));
+		}
+	}
+
+	/**
+	 * The latencies of a type of command line, kept exactly so that the
+	 * percentiles of a baseline are not approximated.
+	 */
+	private static class Latencies {
+		private long[] values = new long[16];
+		private int size;
+
+		synchronized void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		synchronized long getMean() {
+			long sum = 0;
+			for (int i = 0; i < size; i++) {
+				sum += values[i];
+			}
+			return size == 0 ? 0 : sum / size;
+		}
+
+		synchronized long getPercentile(double percentile) {
+			if (size == 0) {
+				return 0;
+			}
+			long[] sorted = Arrays.copyOf(values, size);
+			Arrays.sort(sorted);
+			int rank = (int) Math.ceil(size * percentile / 100);
+			return sorted[Math.max(0, Math.min(size, rank) - 1)];
+		}
+	}
+}
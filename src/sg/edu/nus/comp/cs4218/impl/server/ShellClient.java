@@ -0,0 +1,162 @@
+package sg.edu.nus.comp.cs4218.impl.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.server.ShellProtocol.Frame;
+
+/**
+ * A ShellClient forwards command lines to a ShellServer and streams their
+ * output back. Run from the command line, it evaluates its arguments as one
+ * command line, or every line of stdin if there are no arguments, in a session
+ * starting in the directory of the client. The exit status is 1 if any command
+ * line failed and 2 if the server cannot be reached.
+ *
+ * <p>
+ * <b>Usage:</b> <code>ShellClient [--socket=PATH] [COMMAND]...</code>
+ * </p>
+ */
+public class ShellClient implements Closeable {
+	public static final String SOCKET_OPTION = "--socket=";
+
+	private final SocketChannel channel;
+	private final DataInputStream input;
+	private final DataOutputStream output;
+
+	/**
+	 * Connects to the server listening on the specified socket file and starts a
+	 * session in the specified directory.
+	 *
+	 * @throws IOException
+	 *             If the server cannot be reached.
+	 */
+	public ShellClient(Path socketPath, String currentDir) throws IOException {
+		channel = UnixSockets.openChannel();
+		try {
+			channel.connect(UnixSockets.getAddress(socketPath));
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+		ShellProtocol.writeFrame(output, ShellProtocol.DIRECTORY, currentDir);
+	}
+
+	/**
+	 * Evaluates the command line on the server, writing its output to stdout as
+	 * it arrives.
+	 *
+	 * @param cmdline
+	 *            String of the command line.
+	 * @param stdout
+	 *            OutputStream to write the output of the command line to.
+	 * @return String The error message of the command line, or null if it
+	 *         succeeded.
+	 * @throws IOException
+	 *             If the connection to the server is lost.
+	 */
+	public String evaluate(String cmdline, OutputStream stdout) throws IOException {
+		ShellProtocol.writeFrame(output, ShellProtocol.COMMAND, cmdline);
+		output.flush();
+
+		Frame frame;
+		while ((frame = ShellProtocol.readFrame(input)) != null) {
+			switch (frame.getType()) {
+			case ShellProtocol.OUTPUT:
+				stdout.write(frame.getPayload());
+				break;
+			case ShellProtocol.SUCCESS:
+				return null;
+			case ShellProtocol.FAILURE:
+				return frame.getText();
+			default:
+				throw new IOException("Unexpected frame type " + frame.getType());
+			}
+		}
+		throw new IOException("Connection closed by the server");
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	public static void main(String... args) {
+		Path socketPath = Paths.get(ShellServer.DEFAULT_SOCKET);
+		StringBuilder cmdline = new StringBuilder();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].startsWith(SOCKET_OPTION)) {
+				socketPath = Paths.get(args[i].substring(SOCKET_OPTION.length()));
+				continue;
+			}
+			if (cmdline.length() > 0) {
+				cmdline.append(' ');
+			}
+			cmdline.append(args[i]);
+		}
+
+		OutputStream stdout = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out));
+		int status;
+		try {
+			status = run(socketPath, cmdline.toString(), stdout);
+		} catch (IOException | UnsupportedOperationException e) {
+			System.err.println("shell: " + socketPath + ": " + e.getMessage());
+			status = 2;
+		}
+		System.exit(status);
+	}
+
+	/**
+	 * Evaluates the command line, or the lines of stdin if it is empty, and
+	 * returns the exit status.
+	 */
+	private static int run(Path socketPath, String cmdline, OutputStream stdout) throws IOException {
+		int status = 0;
+		ShellClient client = new ShellClient(socketPath, System.getProperty("user.dir"));
+		try {
+			if (!cmdline.isEmpty()) {
+				return evaluateLine(client, cmdline, stdout);
+			}
+			BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty() && evaluateLine(client, line, stdout) != 0) {
+					status = 1;
+				}
+			}
+			return status;
+		} finally {
+			client.close();
+			stdout.flush();
+		}
+	}
+
+	/**
+	 * Evaluates a line like the interactive shell does, with its output or error
+	 * message followed by a newline.
+	 */
+	private static int evaluateLine(ShellClient client, String cmdline, OutputStream stdout) throws IOException {
+		String message = client.evaluate(cmdline, stdout);
+		if (message != null) {
+			stdout.write(message.getBytes());
+		}
+		stdout.write(OSUtil.NEWLINE.getBytes());
+		stdout.flush();
+		return message == null ? 0 : 1;
+	}
+}
@@ -0,0 +1,485 @@
+package sg.edu.nus.comp.cs4218.impl.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import sg.edu.nus.comp.cs4218.CommandExecutor;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
+import sg.edu.nus.comp.cs4218.exception.ExitException;
+import sg.edu.nus.comp.cs4218.impl.ApplicationRegistry;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+
+/**
+ * A ShellHost runs command lines submitted by many callers in one JVM, on a
+ * fixed number of worker threads. Callers open sessions, each with its own
+ * shell and ShellContext, and submit command lines to them. The command lines
+ * of a session run one at a time, in the order they were submitted, while the
+ * command lines of different sessions run in parallel on the workers.
+ *
+ * <p>
+ * The host admits at most a fixed number of waiting command lines across all
+ * sessions. A command line submitted while the host is full is rejected with a
+ * RejectedExecutionException instead of waiting, so that a burst of callers
+ * cannot pile up unbounded work. The time command lines wait for a worker, the
+ * time they run and the number of rejections are recorded in the host Metrics.
+ * As in the ShellServer, "exit" closes the session and commands read no stdin.
+ * </p>
+ */
+public class ShellHost implements Closeable {
+	public static final String EXP_QUEUE_FULL = "host: queue is full";
+	public static final String EXP_HOST_CLOSED = "host: host is closed";
+	public static final String EXP_SESSION_CLOSED = "host: session is closed";
+
+	private final int maxQueued;
+	private final CommandExecutor executor;
+	private final ApplicationRegistry registry;
+	private final ThreadPoolExecutor workers;
+
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger sessionCount = new AtomicInteger();
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder queueWaitNanos = new LongAdder();
+	private final LongAdder executionNanos = new LongAdder();
+	private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+	private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+	private volatile boolean isClosed;
+
+	/**
+	 * Creates a host running command lines on the specified number of workers.
+	 *
+	 * @param workerCount
+	 *            Number of command lines run at the same time.
+	 * @param maxQueued
+	 *            Number of command lines allowed to wait for a worker before
+	 *            further ones are rejected.
+	 * @param executor
+	 *            CommandExecutor running the commands of the sessions.
+	 */
+	public ShellHost(int workerCount, int maxQueued, CommandExecutor executor) {
+		if (workerCount < 1 || maxQueued < 0) {
+			throw new IllegalArgumentException("Invalid host size: " + workerCount + " workers, " + maxQueued
+					+ " queued");
+		}
+		this.maxQueued = maxQueued;
+		this.executor = executor;
+		registry = ShellServer.createSessionRegistry();
+		workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "shell-host-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Returns the registry of the applications run by the sessions, where
+	 * embedders may register more applications before opening sessions.
+	 */
+	public ApplicationRegistry getApplicationRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Opens a session whose current directory starts as the specified directory.
+	 *
+	 * @param currentDir
+	 *            String of the directory, or null for Environment.currentDirectory.
+	 */
+	public Session openSession(String currentDir) {
+		if (isClosed) {
+			throw new RejectedExecutionException(EXP_HOST_CLOSED);
+		}
+		sessionCount.incrementAndGet();
+		return new Session(new ShellContext(currentDir == null ? Environment.currentDirectory : currentDir));
+	}
+
+	/**
+	 * Returns a snapshot of the host counters.
+	 */
+	public Metrics getMetrics() {
+		return new Metrics(this);
+	}
+
+	/**
+	 * Rejects further command lines, cancels the waiting ones and interrupts the
+	 * running ones.
+	 */
+	@Override
+	public void close() {
+		isClosed = true;
+		List<Runnable> waiting = workers.shutdownNow();
+		for (int i = 0; i < waiting.size(); i++) {
+			if (waiting.get(i) instanceof Drain) {
+				((Drain) waiting.get(i)).session.cancelPending();
+			}
+		}
+	}
+
+	public boolean isClosed() {
+		return isClosed;
+	}
+
+	/**
+	 * Takes a place in the queue for a command line, or records a rejection.
+	 */
+	private void admit(Session session) {
+		if (isClosed) {
+			rejected.increment();
+			throw new RejectedExecutionException(EXP_HOST_CLOSED);
+		}
+		if (session.isClosed.get()) {
+			rejected.increment();
+			throw new RejectedExecutionException(EXP_SESSION_CLOSED);
+		}
+		while (true) {
+			int current = queued.get();
+			if (current >= maxQueued) {
+				rejected.increment();
+				throw new RejectedExecutionException(EXP_QUEUE_FULL);
+			}
+			if (queued.compareAndSet(current, current + 1)) {
+				submitted.increment();
+				return;
+			}
+		}
+	}
+
+	private void record(Result result) {
+		completed.increment();
+		if (!result.isSuccessful()) {
+			failed.increment();
+		}
+		queueWaitNanos.add(result.getQueueWaitNanos());
+		executionNanos.add(result.getExecutionNanos());
+		updateMax(maxQueueWaitNanos, result.getQueueWaitNanos());
+		updateMax(maxExecutionNanos, result.getExecutionNanos());
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current;
+		while (value > (current = max.get())) {
+			if (max.compareAndSet(current, value)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * A Session is a shell of the host. Its command lines are queued in a FIFO of
+	 * its own, and at most one task draining that FIFO is on the workers at any
+	 * time, which runs one command line before yielding the worker to the other
+	 * sessions.
+	 */
+	public final class Session {
+		private final ShellContext context;
+		private final ShellImpl shell;
+		private final ConcurrentLinkedQueue<Command> pending = new ConcurrentLinkedQueue<Command>();
+		private final AtomicBoolean isScheduled = new AtomicBoolean();
+		private final AtomicBoolean isClosed = new AtomicBoolean();
+		private final Drain drain = new Drain(this);
+
+		private Session(ShellContext context) {
+			this.context = context;
+			shell = new ShellImpl(executor, registry, context);
+		}
+
+		public ShellContext getContext() {
+			return context;
+		}
+
+		public boolean isClosed() {
+			return isClosed.get();
+		}
+
+		/**
+		 * Queues the command line to run after the command lines submitted before it
+		 * in this session.
+		 *
+		 * @param cmdline
+		 *            String of the command line.
+		 * @return Future of the Result of the command line.
+		 * @throws RejectedExecutionException
+		 *             If the host queue is full or the host or session is closed.
+		 */
+		public Future<Result> submit(String cmdline) {
+			admit(this);
+			Command command = new Command(this, cmdline);
+			pending.add(command);
+			schedule();
+			if (ShellHost.this.isClosed) {
+				// the host closed after admitting the command line
+				cancelPending();
+			}
+			return command.task;
+		}
+
+		/**
+		 * Closes the session once the command lines already submitted have run.
+		 */
+		public void close() {
+			if (isClosed.compareAndSet(false, true)) {
+				sessionCount.decrementAndGet();
+			}
+		}
+
+		private void schedule() {
+			if (!pending.isEmpty() && isScheduled.compareAndSet(false, true)) {
+				try {
+					workers.execute(drain);
+				} catch (RejectedExecutionException e) {
+					cancelPending();
+				}
+			}
+		}
+
+		private void runNext() {
+			Command command = pending.poll();
+			try {
+				if (command != null) {
+					queued.decrementAndGet();
+					command.task.run();
+				}
+			} finally {
+				isScheduled.set(false);
+				if (ShellHost.this.isClosed) {
+					cancelPending();
+				} else {
+					schedule();
+				}
+			}
+		}
+
+		private void cancelPending() {
+			Command command;
+			while ((command = pending.poll()) != null) {
+				queued.decrementAndGet();
+				command.task.cancel(false);
+			}
+		}
+
+		private Result evaluate(String cmdline, long submitTime) {
+			long startTime = System.nanoTime();
+			ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+			String message = null;
+			try {
+				shell.parseAndEvaluate(cmdline, new ByteArrayInputStream(ShellServer.NO_INPUT), stdout);
+			} catch (ExitException e) {
+				close();
+			} catch (Exception e) {
+				message = e.getMessage() == null ? e.toString() : e.getMessage();
+			}
+			Result result = new Result(stdout.toByteArray(), message, startTime - submitTime, System.nanoTime()
+					- startTime);
+			record(result);
+			return result;
+		}
+	}
+
+	/**
+	 * The task running the next command line of a session on a worker. Drains
+	 * still waiting for a worker when the host is closed cancel the command
+	 * lines of their session.
+	 */
+	private static final class Drain implements Runnable {
+		private final Session session;
+
+		Drain(Session session) {
+			this.session = session;
+		}
+
+		@Override
+		public void run() {
+			session.runNext();
+		}
+	}
+
+	/**
+	 * A command line waiting in the FIFO of its session.
+	 */
+	private static final class Command {
+		private final FutureTask<Result> task;
+
+		Command(final Session session, final String cmdline) {
+			final long submitTime = System.nanoTime();
+			task = new FutureTask<Result>(new Callable<Result>() {
+				@Override
+				public Result call() {
+					return session.evaluate(cmdline, submitTime);
+				}
+			});
+		}
+	}
+
+	/**
+	 * A Result is the output of a command line run by the host, with its error
+	 * message and timings.
+	 */
+	public static final class Result {
+		private final byte[] output;
+		private final String message;
+		private final long queueWaitNanos;
+		private final long executionNanos;
+
+		Result(byte[] output, String message, long queueWaitNanos, long executionNanos) {
+			this.output = output;
+			this.message = message;
+			this.queueWaitNanos = queueWaitNanos;
+			this.executionNanos = executionNanos;
+		}
+
+		public byte[] getOutput() {
+			return output.clone();
+		}
+
+		public String getOutputString() {
+			return new String(output);
+		}
+
+		/**
+		 * Returns the error message of the command line, or null if it succeeded.
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		public boolean isSuccessful() {
+			return message == null;
+		}
+
+		/**
+		 * Returns the time between the submission of the command line and the start
+		 * of its evaluation, in nanoseconds.
+		 */
+		public long getQueueWaitNanos() {
+			return queueWaitNanos;
+		}
+
+		/**
+		 * Returns the time spent evaluating the command line, in nanoseconds.
+		 */
+		public long getExecutionNanos() {
+			return executionNanos;
+		}
+	}
+
+	/**
+	 * Metrics is a snapshot of the counters of a host. The counters are read one
+	 * by one without stopping the host, so a snapshot taken while command lines
+	 * run may be off by the command lines completing meanwhile.
+	 */
+	public static final class Metrics {
+		private final int sessions;
+		private final int queued;
+		private final int active;
+		private final long submitted;
+		private final long rejected;
+		private final long completed;
+		private final long failed;
+		private final long queueWaitNanos;
+		private final long executionNanos;
+		private final long maxQueueWaitNanos;
+		private final long maxExecutionNanos;
+
+		Metrics(ShellHost host) {
+			sessions = host.sessionCount.get();
+			queued = host.queued.get();
+			active = host.workers.getActiveCount();
+			submitted = host.submitted.sum();
+			rejected = host.rejected.sum();
+			completed = host.completed.sum();
+			failed = host.failed.sum();
+			queueWaitNanos = host.queueWaitNanos.sum();
+			executionNanos = host.executionNanos.sum();
+			maxQueueWaitNanos = host.maxQueueWaitNanos.get();
+			maxExecutionNanos = host.maxExecutionNanos.get();
+		}
+
+		public int getSessionCount() {
+			return sessions;
+		}
+
+		/**
+		 * Returns the number of command lines waiting for a worker.
+		 */
+		public int getQueuedCount() {
+			return queued;
+		}
+
+		/**
+		 * Returns the number of workers running a command line.
+		 */
+		public int getActiveCount() {
+			return active;
+		}
+
+		public long getSubmittedCount() {
+			return submitted;
+		}
+
+		public long getRejectedCount() {
+			return rejected;
+		}
+
+		public long getCompletedCount() {
+			return completed;
+		}
+
+		public long getFailedCount() {
+			return failed;
+		}
+
+		public long getTotalQueueWaitNanos() {
+			return queueWaitNanos;
+		}
+
+		public long getTotalExecutionNanos() {
+			return executionNanos;
+		}
+
+		public long getMaxQueueWaitNanos() {
+			return maxQueueWaitNanos;
+		}
+
+		public long getMaxExecutionNanos() {
+			return maxExecutionNanos;
+		}
+
+		/**
+		 * Returns a one line report of the counters.
+		 */
+		@Override
+		public String toString() {
+			double averageWait = completed == 0 ? 0 : (double) queueWaitNanos / completed / 1000000;
+			double averageExecution = completed == 0 ? 0 : (double) executionNanos / completed / 1000000;
+			return String.format("host: %d sessions, %d queued, %d active, %d submitted, %d rejected, "
+					+ "%d completed, %d failed, wait %.3f ms avg %.3f ms max, run %.3f ms avg %.3f ms max",
+					sessions, queued, active, submitted, rejected, completed, failed, averageWait,
+					maxQueueWaitNanos / 1000000.0, averageExecution, maxExecutionNanos / 1000000.0);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package sg.edu.nus.comp.cs4218.impl.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * The framing used between the shell server and its clients. Every message is
+ * a frame made up of a type byte, the length of its payload as an int, then
+ * the payload.
+ *
+ * <p>
+ * A client sends a DIRECTORY frame to set the current directory of its
+ * session, then COMMAND frames each holding a command line. For each command
+ * line the server replies with any number of OUTPUT frames holding its output,
+ * followed by one SUCCESS frame, or a FAILURE frame holding the error message.
+ * The session ends when either side closes the connection.
+ * </p>
+ */
+final class ShellProtocol {
+	static final byte DIRECTORY = 'D';
+	static final byte COMMAND = 'C';
+	static final byte OUTPUT = 'O';
+	static final byte SUCCESS = 'S';
+	static final byte FAILURE = 'F';
+
+	static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private static final int MAX_PAYLOAD = 64 * 1024 * 1024;
+
+	private ShellProtocol() {
+	}
+
+	/**
+	 * Writes a frame without flushing the stream.
+	 */
+	static void writeFrame(DataOutputStream out, byte type, byte[] payload, int offset, int length)
+			throws IOException {
+		out.writeByte(type);
+		out.writeInt(length);
+		out.write(payload, offset, length);
+	}
+
+	static void writeFrame(DataOutputStream out, byte type, String payload) throws IOException {
+		byte[] bytes = payload.getBytes(CHARSET);
+		writeFrame(out, type, bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Reads the next frame, or returns null if the stream ends before it.
+	 *
+	 * @throws IOException
+	 *             If the stream ends in the middle of a frame or the frame is
+	 *             malformed.
+	 */
+	static Frame readFrame(DataInputStream in) throws IOException {
+		int type = in.read();
+		if (type == -1) {
+			return null;
+		}
+		int length = in.readInt();
+		if (length < 0 || length > MAX_PAYLOAD) {
+			throw new IOException("Invalid frame length " + length);
+		}
+		byte[] payload = new byte[length];
+		try {
+			in.readFully(payload);
+		} catch (EOFException e) {
+			throw new IOException("Connection closed in the middle of a frame", e);
+		}
+		return new Frame((byte) type, payload);
+	}
+
+	/**
+	 * A frame read from a stream.
+	 */
+	static final class Frame {
+		private final byte type;
+		private final byte[] payload;
+
+		Frame(byte type, byte[] payload) {
+			this.type = type;
+			this.payload = payload;
+		}
+
+		byte getType() {
+			return type;
+		}
+
+		byte[] getPayload() {
+			return payload;
+		}
+
+		String getText() {
+			return new String(payload, CHARSET);
+		}
+	}
+
+	/**
+	 * An OutputStream sending what is written to it as OUTPUT frames of at most
+	 * BUFFER_SIZE bytes. Data is collected until the buffer is full or the stream
+	 * is flushed, so that small writes do not each become a frame, and large
+	 * writes are split. Closing the stream only flushes it, as the connection
+	 * outlives every command.
+	 */
+	static final class FrameOutputStream extends OutputStream {
+		static final int BUFFER_SIZE = 8192;
+
+		private final DataOutputStream out;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int count;
+
+		FrameOutputStream(DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public synchronized void write(int byteValue) throws IOException {
+			if (count == buffer.length) {
+				sendBuffer();
+			}
+			buffer[count++] = (byte) byteValue;
+		}
+
+		@Override
+		public synchronized void write(byte[] bytes, int off, int len) throws IOException {
+			if (len >= buffer.length) {
+				sendBuffer();
+				for (int sent = 0; sent < len; sent += buffer.length) {
+					writeFrame(out, OUTPUT, bytes, off + sent, Math.min(buffer.length, len - sent));
+				}
+				return;
+			}
+			if (len > buffer.length - count) {
+				sendBuffer();
+			}
+			System.arraycopy(bytes, off, buffer, count, len);
+			count += len;
+		}
+
+		/**
+		 * Sends the buffered data without flushing the connection.
+		 */
+		synchronized void sendBuffer() throws IOException {
+			if (count > 0) {
+				writeFrame(out, OUTPUT, buffer, 0, count);
+				count = 0;
+			}
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			sendBuffer();
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package sg.edu.nus.comp.cs4218.impl.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sg.edu.nus.comp.cs4218.CommandExecutor;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
+import sg.edu.nus.comp.cs4218.exception.ExitException;
+import sg.edu.nus.comp.cs4218.impl.ApplicationRegistry;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+import sg.edu.nus.comp.cs4218.impl.app.ExitApplication;
+import sg.edu.nus.comp.cs4218.impl.server.ShellProtocol.Frame;
+import sg.edu.nus.comp.cs4218.impl.server.ShellProtocol.FrameOutputStream;
+
+/**
+ * A ShellServer is a long-running shell that evaluates command lines sent by
+ * clients over a Unix domain socket, so that a client does not pay for JVM
+ * startup and class loading on every command. Each connection is a session
+ * with its own shell and its own ShellContext, whose current directory starts
+ * as the directory sent by the client. Sessions run at the same time without
+ * affecting each other. The "exit" application ends the session instead of
+ * the server. Commands read no stdin.
+ */
+public class ShellServer implements Closeable {
+	public static final String DEFAULT_SOCKET = System.getProperty("java.io.tmpdir") + File.separator
+			+ "cs4218-shell.sock";
+
+	static final String EXP_SESSION_CLOSED = "session closed";
+	static final String EXP_ADDRESS_IN_USE = "address in use";
+	static final byte[] NO_INPUT = new byte[0];
+
+	private static final int S_IFMT = 0170000;
+	private static final int S_IFSOCK = 0140000;
+
+	private final Path socketPath;
+	private final CommandExecutor executor;
+	private final ApplicationRegistry registry;
+	private final ExecutorService sessionThreads;
+
+	private volatile ServerSocketChannel serverChannel;
+
+	public ShellServer(Path socketPath, CommandExecutor executor) {
+		this.socketPath = socketPath;
+		this.executor = executor;
+		registry = createSessionRegistry();
+		sessionThreads = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "shell-session-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns a registry of the built-in applications where "exit" throws an
+	 * ExitException ending the session instead of exiting the JVM.
+	 */
+	public static ApplicationRegistry createSessionRegistry() {
+		ApplicationRegistry registry = ApplicationRegistry.createBuiltInRegistry();
+		registry.register("exit", new ExitApplication() {
+			@Override
+			public void terminateExecution() throws ExitException {
+				throw new ExitException(EXP_SESSION_CLOSED);
+			}
+		});
+		return registry;
+	}
+
+	/**
+	 * Returns the registry of the applications run by the sessions, where
+	 * embedders may register more applications before starting the server.
+	 */
+	public ApplicationRegistry getApplicationRegistry() {
+		return registry;
+	}
+
+	public Path getSocketPath() {
+		return socketPath;
+	}
+
+	/**
+	 * Binds the server to its socket file, replacing a stale socket file left
+	 * by a server that did not shut down cleanly. Any other file, and the socket
+	 * of a server still accepting connections, are left in place.
+	 *
+	 * @throws IOException
+	 *             If the socket cannot be bound, or a BindException if the path
+	 *             is in use by another file or a running server.
+	 * @throws UnsupportedOperationException
+	 *             If the JVM does not support Unix domain sockets.
+	 */
+	public void start() throws IOException {
+		deleteStaleSocket();
+		ServerSocketChannel channel = UnixSockets.openServerChannel();
+		try {
+			channel.bind(UnixSockets.getAddress(socketPath));
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		serverChannel = channel;
+	}
+
+	/**
+	 * Accepts connections until the server is closed, running each session on a
+	 * thread of its own.
+	 *
+	 * @throws IOException
+	 *             If accepting a connection fails for another reason than the
+	 *             server being closed.
+	 */
+	public void serve() throws IOException {
+		ServerSocketChannel channel = serverChannel;
+		if (channel == null) {
+			throw new IllegalStateException("Server is not started");
+		}
+		while (true) {
+			final SocketChannel connection;
+			try {
+				connection = channel.accept();
+			} catch (ClosedChannelException e) {
+				return;
+			}
+			sessionThreads.execute(new Runnable() {
+				@Override
+				public void run() {
+					runSession(connection);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stops accepting connections, ends the running sessions and deletes the
+	 * socket file if this server bound it.
+	 */
+	@Override
+	public void close() throws IOException {
+		ServerSocketChannel channel = serverChannel;
+		serverChannel = null;
+		if (channel != null) {
+			channel.close();
+		}
+		sessionThreads.shutdownNow();
+		if (channel != null) {
+			Files.deleteIfExists(socketPath);
+		}
+	}
+
+	/**
+	 * Deletes the socket file if it is a socket no server accepts connections
+	 * on.
+	 *
+	 * @throws BindException
+	 *             If the path is another kind of file or a server accepts
+	 *             connections on it.
+	 */
+	private void deleteStaleSocket() throws IOException {
+		if (!Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)) {
+			return;
+		}
+		if (!isSocketFile(socketPath)) {
+			throw new BindException(socketPath + ": " + EXP_ADDRESS_IN_USE);
+		}
+		try (SocketChannel probe = UnixSockets.openChannel()) {
+			probe.connect(UnixSockets.getAddress(socketPath));
+		} catch (ConnectException e) {
+			// refused: the server that bound it is gone
+			Files.deleteIfExists(socketPath);
+			return;
+		}
+		throw new BindException(socketPath + ": " + EXP_ADDRESS_IN_USE);
+	}
+
+	/**
+	 * Returns true if the file at the specified path is a socket, or on file
+	 * systems without Unix file modes, neither a regular file nor a directory.
+	 */
+	private static boolean isSocketFile(Path path) throws IOException {
+		try {
+			Object mode = Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+			return (((Integer) mode).intValue() & S_IFMT) == S_IFSOCK;
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return !Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)
+					&& !Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+		}
+	}
+
+	/**
+	 * Evaluates the command lines sent over the connection until the client
+	 * disconnects or runs "exit".
+	 */
+	private void runSession(SocketChannel connection) {
+		ShellContext context = new ShellContext(Environment.currentDirectory);
+		ShellImpl shell = new ShellImpl(executor, registry, context);
+		try {
+			DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+			DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Channels.newOutputStream(connection)));
+			FrameOutputStream stdout = new FrameOutputStream(output);
+
+			Frame frame;
+			while ((frame = ShellProtocol.readFrame(input)) != null) {
+				if (frame.getType() == ShellProtocol.DIRECTORY) {
+					context.setCurrentDirectory(resolveDirectory(context.getCurrentDirectory(), frame.getText()));
+					continue;
+				}
+				if (frame.getType() != ShellProtocol.COMMAND) {
+					throw new IOException("Unexpected frame type " + frame.getType());
+				}
+
+				String message = null;
+				boolean isExit = false;
+				try {
+					shell.parseAndEvaluate(frame.getText(), new ByteArrayInputStream(NO_INPUT), stdout);
+				} catch (ExitException e) {
+					isExit = true;
+				} catch (Exception e) {
+					message = e.getMessage() == null ? e.toString() : e.getMessage();
+				}
+
+				stdout.sendBuffer();
+				if (message == null) {
+					ShellProtocol.writeFrame(output, ShellProtocol.SUCCESS, "");
+				} else {
+					ShellProtocol.writeFrame(output, ShellProtocol.FAILURE, message);
+				}
+				output.flush();
+				if (isExit) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			// the client went away, nothing left to report to
+		} finally {
+			try {
+				connection.close();
+			} catch (IOException e) {
+				// already closed
+			}
+		}
+	}
+
+	private static String resolveDirectory(String currentDir, String directory) {
+		return Paths.get(currentDir).resolve(directory).normalize().toString();
+	}
+}
@@ -0,0 +1,96 @@
+package sg.edu.nus.comp.cs4218.impl.server;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Opens Unix domain socket channels. Unix domain sockets are only available
+ * through java.nio from Java 16, so the factory methods are looked up
+ * reflectively to keep the shell buildable on older JDKs.
+ */
+final class UnixSockets {
+	private static final String EXP_UNSUPPORTED = "Unix domain sockets are not supported by this JVM";
+
+	private static final ProtocolFamily UNIX_FAMILY = findUnixFamily();
+	private static final Method ADDRESS_FACTORY = findAddressFactory();
+	private static final Method SERVER_FACTORY = findOpenMethod(ServerSocketChannel.class);
+	private static final Method CLIENT_FACTORY = findOpenMethod(SocketChannel.class);
+
+	private UnixSockets() {
+	}
+
+	/**
+	 * Returns true if the running JVM supports Unix domain socket channels.
+	 */
+	static boolean isSupported() {
+		return UNIX_FAMILY != null && ADDRESS_FACTORY != null && SERVER_FACTORY != null && CLIENT_FACTORY != null;
+	}
+
+	/**
+	 * Returns the address of the socket file at the specified path.
+	 */
+	static SocketAddress getAddress(Path path) throws IOException {
+		return (SocketAddress) invoke(ADDRESS_FACTORY, path);
+	}
+
+	/**
+	 * Returns a new unbound server channel for Unix domain sockets.
+	 */
+	static ServerSocketChannel openServerChannel() throws IOException {
+		return (ServerSocketChannel) invoke(SERVER_FACTORY, UNIX_FAMILY);
+	}
+
+	/**
+	 * Returns a new unconnected channel for Unix domain sockets.
+	 */
+	static SocketChannel openChannel() throws IOException {
+		return (SocketChannel) invoke(CLIENT_FACTORY, UNIX_FAMILY);
+	}
+
+	private static Object invoke(Method method, Object argument) throws IOException {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException(EXP_UNSUPPORTED);
+		}
+		try {
+			return method.invoke(null, argument);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new UnsupportedOperationException(EXP_UNSUPPORTED, e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new UnsupportedOperationException(EXP_UNSUPPORTED, e);
+		}
+	}
+
+	private static ProtocolFamily findUnixFamily() {
+		try {
+			return StandardProtocolFamily.valueOf("UNIX");
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static Method findAddressFactory() {
+		try {
+			return Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static Method findOpenMethod(Class<?> channelClass) {
+		try {
+			return channelClass.getMethod("open", ProtocolFamily.class);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
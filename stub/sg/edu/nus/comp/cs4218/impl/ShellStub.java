@@ -4,7 +4,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import sg.edu.nus.comp.cs4218.CommandExecutor;
 import sg.edu.nus.comp.cs4218.Shell;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
@@ -20,6 +22,16 @@ public class ShellStub implements Shell {
 		return new ShellStub();
 	}
 
+	@Override
+	public CommandExecutor getExecutor() {
+		return ShellImpl.getDefaultExecutor();
+	}
+
+	@Override
+	public ShellContext getContext() {
+		return ShellContext.global();
+	}
+
 	@Override
 	public void runApp(String app, String[] argsArray, InputStream inputStream, OutputStream outputStream)
 			throws AbstractApplicationException, ShellException {
@@ -37,6 +49,12 @@ public class ShellStub implements Shell {
 		}
 	}
 
+	@Override
+	public void parseAndEvaluate(String cmdline, InputStream stdin, OutputStream stdout)
+			throws AbstractApplicationException, ShellException {
+		parseAndEvaluate(cmdline, stdout);
+	}
+
 	@Override
 	public void processQuotes(CommandString cmd) {
 		// TODO Auto-generated method stub
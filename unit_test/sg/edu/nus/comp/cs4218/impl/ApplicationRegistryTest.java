@@ -0,0 +1,114 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sg.edu.nus.comp.cs4218.Application;
+import sg.edu.nus.comp.cs4218.ApplicationFactory;
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.EchoException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.app.EchoApplication;
+
+public class ApplicationRegistryTest {
+	private static final String ECHO = "echo";
+	private static final String HELLO = "hello";
+
+	private ApplicationRegistry registry;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Before
+	public void setUp() {
+		registry = ApplicationRegistry.createBuiltInRegistry();
+	}
+
+	@Test
+	public void testGetApplicationToReturnSharedInstanceUsingBuiltInApp() {
+		Application echo = registry.getApplication(ECHO);
+
+		assertTrue(echo instanceof EchoApplication);
+		assertSame(echo, registry.getApplication(ECHO));
+	}
+
+	@Test
+	public void testGetApplicationToReturnNewInstancesUsingFactory() {
+		registry.registerFactory(HELLO, new ApplicationFactory() {
+			@Override
+			public Application createApplication() {
+				return new HelloApplication();
+			}
+		});
+
+		assertNotSame(registry.getApplication(HELLO), registry.getApplication(HELLO));
+	}
+
+	@Test
+	public void testGetApplicationToReturnNullUsingUnknownOrNullName() {
+		assertNull(registry.getApplication(HELLO));
+		assertNull(registry.getApplication(null));
+	}
+
+	@Test
+	public void testUnregisterToRemoveAppUsingBuiltInApp() {
+		registry.unregister(ECHO);
+
+		assertFalse(registry.contains(ECHO));
+	}
+
+	@Test
+	public void testRegisterToThrowsIllegalArgExpUsingNullApp() {
+		thrown.expect(IllegalArgumentException.class);
+		registry.register(HELLO, null);
+	}
+
+	@Test
+	public void testRunAppToRunRegisteredAppUsingShellWithRegistry()
+			throws AbstractApplicationException, ShellException {
+		registry.register(HELLO, new HelloApplication());
+		ShellImpl shell = new ShellImpl(ShellImpl.getDefaultExecutor(), registry);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		shell.newInstance().parseAndEvaluate(HELLO + " | cat", output);
+		assertEquals(HELLO, output.toString());
+	}
+
+	@Test
+	public void testRunAppToThrowsShellExpUsingUnregisteredApp() throws AbstractApplicationException, ShellException {
+		registry.unregister(ECHO);
+		ShellImpl shell = new ShellImpl(ShellImpl.getDefaultExecutor(), registry);
+
+		thrown.expect(ShellException.class);
+		thrown.expectMessage("shell: echo: Invalid app.");
+		shell.runApp(ECHO, new String[0], System.in, new ByteArrayOutputStream());
+	}
+
+	/**
+	 * Application printing "hello" used to test registering applications.
+	 */
+	private static class HelloApplication implements Application {
+		@Override
+		public void run(String[] args, InputStream stdin, OutputStream stdout) throws AbstractApplicationException {
+			try {
+				stdout.write(HELLO.getBytes());
+			} catch (IOException e) {
+				throw new EchoException(e.getMessage());
+			}
+		}
+	}
+}
@@ -6,8 +6,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -126,4 +129,32 @@ public class CatApplicationTest {
 		app.run(args, inputStream, outputStream);
 		assertEquals(expected, outputStream.toString());
 	}
+
+	@Test
+	public void testRunToTransferFilesUsingFileOutputStream() throws CatException, IOException {
+		File outputFile = File.createTempFile("cat", ".txt");
+		expected = FILE1_CONTENT + NEWLINE + "qwer";
+		String[] args = { FILE1_TXT, "file2.txt" };
+
+		try (FileOutputStream fileOutput = new FileOutputStream(outputFile)) {
+			app.run(args, System.in, fileOutput);
+		}
+		output = new String(Files.readAllBytes(outputFile.toPath()));
+		outputFile.delete();
+		assertEquals(expected, output);
+	}
+
+	@Test
+	public void testRunToTransferStdinUsingFileStreams() throws CatException, IOException {
+		File outputFile = File.createTempFile("cat", ".txt");
+		expected = FILE1_CONTENT;
+
+		try (FileInputStream fileInput = new FileInputStream(currentDir + FILE1_TXT);
+				FileOutputStream fileOutput = new FileOutputStream(outputFile)) {
+			app.run(new String[0], fileInput, fileOutput);
+		}
+		output = new String(Files.readAllBytes(outputFile.toPath()));
+		outputFile.delete();
+		assertEquals(expected, output);
+	}
 }
@@ -1,6 +1,7 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -8,6 +9,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -69,6 +71,7 @@ public class GrepApplicationTest {
 	private String expected, result;
 	private OutputStream stdout;
 	private InputStream stdin;
+	private int parallelFiles;
 
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
@@ -80,6 +83,12 @@ public class GrepApplicationTest {
 		stdout = new ByteArrayOutputStream();
 		stdin = new ByteArrayInputStream(
 				(STREAM_LINE1 + STREAM_LINE2 + STREAM_LINE3 + STREAM_LINE4 + STREAM_LINEA).getBytes());
+		parallelFiles = GrepApplication.getParallelFiles();
+	}
+
+	@After
+	public void tearDown() {
+		GrepApplication.setParallelFiles(parallelFiles);
 	}
 
 	@Test
@@ -390,4 +399,52 @@ public class GrepApplicationTest {
 		String[] strArr = { PATTERN_FILE, FILE_1 };
 		grepApp.run(strArr, stdin, null);
 	}
+
+	@Test
+	public void testRunToWriteTrimmedLinesUsingStdinWithBlankLines() throws GrepException {
+		String input = OSUtil.NEWLINE + "  first " + OSUtil.NEWLINE + OSUtil.NEWLINE + "second  " + OSUtil.NEWLINE
+				+ "  " + OSUtil.NEWLINE;
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		grepApp.run(new String[] { PATTERN_EMPTY }, new ByteArrayInputStream(input.getBytes()), output);
+		assertEquals(input.trim(), output.toString());
+		assertEquals(input.trim(), grepApp.grepFromStdin(PATTERN_EMPTY, false,
+				new ByteArrayInputStream(input.getBytes())));
+	}
+
+	@Test
+	public void testMutiFileToGrepLinesInArgumentOrderUsingParallelFiles() throws GrepException {
+		String[] fileNames = new String[40];
+		for (int i = 0; i < fileNames.length; i++) {
+			fileNames[i] = i % 3 == 0 ? ABS_FILE2 : FILE_1;
+		}
+		GrepApplication.setParallelFiles(1);
+		expected = grepApp.grepFromMultipleFiles(PATTERN_DIGIT, false, fileNames);
+
+		GrepApplication.setParallelFiles(4);
+		assertEquals(expected, grepApp.grepFromMultipleFiles(PATTERN_DIGIT, false, fileNames));
+		String file1Lines = FILE_1 + STR_COLON + FILE1_LINE1 + FILE_1 + STR_COLON + FILE1_LINE2;
+		assertEquals((file1Lines + file1Lines).trim(),
+				grepApp.grepFromMultipleFiles(PATTERN_FILE, false, FILE_1, FILE_EMPTY, FILE_1));
+	}
+
+	@Test
+	public void testMutiFileToThrowsFirstFailureInArgumentOrderUsingParallelFiles() throws GrepException {
+		GrepApplication.setParallelFiles(4);
+		try {
+			grepApp.grepFromMultipleFiles(PATTERN_FILE, false, FILE_1, FILE_NONEXISTENT, ABS_FILE2, FOLDER_1);
+			fail();
+		} catch (GrepException e) {
+			assertEquals(STR_GREP + FILE_NONEXISTENT + ": No such file or directory", e.getMessage());
+		}
+		try {
+			grepApp.grepFromMultipleFiles("[", false, FILE_EMPTY, FILE_1, FILE_NONEXISTENT);
+			fail();
+		} catch (GrepException e) {
+			GrepApplication.setParallelFiles(1);
+			thrown.expect(GrepException.class);
+			thrown.expectMessage(e.getMessage());
+		}
+		grepApp.grepFromMultipleFiles("[", false, FILE_EMPTY, FILE_1, FILE_NONEXISTENT);
+	}
 }
@@ -0,0 +1,149 @@
+package sg.edu.nus.comp.cs4218.impl.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sg.edu.nus.comp.cs4218.exception.GrepException;
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+
+public class MappedFileGrepTest {
+	private static final String TEST_FILE = System.getProperty("user.dir") + File.separator + "test_system"
+			+ File.separator + "mappedGrepTest.txt";
+	private static final String PREFIX = "big.txt: ";
+	private static final int CHUNK_SIZE = 1000;
+	private static final int THREAD_COUNT = 4;
+
+	private static ExecutorService pool;
+
+	private long threshold;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws IOException {
+		pool = Executors.newFixedThreadPool(THREAD_COUNT);
+		Random random = new Random(4218);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			int length = random.nextInt(i % 700 == 0 ? 3000 : 30);
+			for (int j = 0; j < length; j++) {
+				text.append((char) ('a' + random.nextInt(4)));
+			}
+			text.append(random.nextBoolean() ? "\n" : "\r\n");
+		}
+		text.append("abcd without newline");
+		try (OutputStream output = new FileOutputStream(TEST_FILE)) {
+			output.write(text.toString().getBytes(Charset.defaultCharset()));
+		}
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		pool.shutdown();
+		new File(TEST_FILE).delete();
+	}
+
+	@Before
+	public void setUp() {
+		threshold = MappedFileGrep.getThreshold();
+	}
+
+	@After
+	public void tearDown() {
+		MappedFileGrep.setThreshold(threshold);
+	}
+
+	@Test
+	public void testGrepToWriteSameLinesAsSequentialUsingLiteral() throws IOException {
+		assertEquals(grepSequentially("abcd", false), grepInParallel("abcd", false));
+	}
+
+	@Test
+	public void testGrepToWriteSameLinesAsSequentialUsingRegex() throws IOException {
+		assertEquals(grepSequentially("^a+b[cd]", false), grepInParallel("^a+b[cd]", false));
+	}
+
+	@Test
+	public void testGrepToWriteSameLinesAsSequentialUsingInvert() throws IOException {
+		assertEquals(grepSequentially("a", true), grepInParallel("a", true));
+	}
+
+	@Test
+	public void testGrepFromMultipleFilesToReturnSameLinesUsingParallelThreshold() throws GrepException {
+		GrepApplication grep = new GrepApplication();
+		String[] fileNames = { TEST_FILE, TEST_FILE };
+		String expectedLiteral = grep.grepFromMultipleFiles("dcba", false, fileNames);
+		String expectedRegex = grep.grepFromMultipleFiles("c.d$", false, fileNames);
+
+		MappedFileGrep.setThreshold(0);
+		assertEquals(expectedLiteral, grep.grepFromMultipleFiles("dcba", false, fileNames));
+		assertEquals(expectedRegex, grep.grepFromMultipleFiles("c.d$", false, fileNames));
+	}
+
+	@Test
+	public void testGrepFromMultipleFilesToThrowExceptionUsingInvalidRegexAndParallelThreshold()
+			throws GrepException {
+		MappedFileGrep.setThreshold(0);
+		thrown.expect(GrepException.class);
+
+		new GrepApplication().grepFromMultipleFiles("[a", false, new String[] { TEST_FILE });
+	}
+
+	@Test
+	public void testGrepToThrowInterruptedIOExpUsingInterruptedThread() throws IOException {
+		thrown.expect(InterruptedIOException.class);
+		Thread.currentThread().interrupt();
+		try {
+			grepInParallel("abcd", false);
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	private String grepInParallel(String pattern, boolean isInvert) throws IOException {
+		StringWriter output = new StringWriter();
+		new MappedFileGrep(pattern, isInvert, Charset.defaultCharset(), CHUNK_SIZE, pool, THREAD_COUNT)
+				.grep(new File(TEST_FILE), PREFIX, output);
+		return output.toString();
+	}
+
+	private static String grepSequentially(String pattern, boolean isInvert) throws IOException {
+		Pattern regex = Pattern.compile(pattern);
+		StringBuilder expected = new StringBuilder();
+		int count = 0;
+		try (BufferedReader reader = new BufferedReader(new FileReader(TEST_FILE))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (regex.matcher(line).find() != isInvert) {
+					expected.append(PREFIX).append(line).append(OSUtil.NEWLINE);
+					count++;
+				}
+			}
+		}
+		assertTrue(count > 10);
+		return expected.toString();
+	}
+}
@@ -0,0 +1,84 @@
+package sg.edu.nus.comp.cs4218.impl.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sg.edu.nus.comp.cs4218.exception.StatsException;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry;
+import sg.edu.nus.comp.cs4218.impl.metrics.MetricsRegistry.Phase;
+
+public class StatsApplicationTest {
+
+	private StatsApplication statsApp;
+	private ByteArrayOutputStream stdout;
+	private boolean wasEnabled;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Before
+	public void setUp() {
+		statsApp = new StatsApplication();
+		stdout = new ByteArrayOutputStream();
+		wasEnabled = MetricsRegistry.isEnabled();
+		MetricsRegistry.getDefault().reset();
+	}
+
+	@After
+	public void tearDown() {
+		MetricsRegistry.setEnabled(wasEnabled);
+	}
+
+	@Test
+	public void testRunToWriteReportUsingNoArg() throws StatsException {
+		statsApp.run(new String[0], null, stdout);
+
+		assertTrue(stdout.toString().contains("runApp: count=0"));
+		assertTrue(stdout.toString().contains("glob.matches: 0"));
+	}
+
+	@Test
+	public void testRunToWriteJsonUsingJsonFlag() throws StatsException {
+		MetricsRegistry.getDefault().getPhase(Phase.GLOB).record(2000);
+		statsApp.run(new String[] { "-j" }, null, stdout);
+
+		String json = stdout.toString();
+		assertTrue(json.startsWith("{\"enabled\":"));
+		assertTrue(json.contains("\"glob\":{\"count\":1,\"sum\":2000,"));
+	}
+
+	@Test
+	public void testRunToClearMetricsUsingResetFlag() throws StatsException {
+		MetricsRegistry.getDefault().getPhase(Phase.QUOTE).record(10);
+		statsApp.run(new String[] { "-r" }, null, stdout);
+
+		assertTrue(stdout.toString().contains("quote: count=1"));
+		assertEquals(0, MetricsRegistry.getDefault().getPhase(Phase.QUOTE).getCount());
+	}
+
+	@Test
+	public void testRunToToggleRecordingUsingOnAndOff() throws StatsException {
+		statsApp.run(new String[] { StatsApplication.ON }, null, stdout);
+		assertTrue(MetricsRegistry.isEnabled());
+
+		statsApp.run(new String[] { StatsApplication.OFF }, null, stdout);
+		assertFalse(MetricsRegistry.isEnabled());
+	}
+
+	@Test
+	public void testRunToThrowsStatsExpUsingInvalidArg() throws StatsException {
+		thrown.expect(StatsException.class);
+		thrown.expectMessage("stats: " + StatsApplication.EXP_INVALID_ARG + "-x");
+
+		statsApp.run(new String[] { "-x" }, null, stdout);
+	}
+}
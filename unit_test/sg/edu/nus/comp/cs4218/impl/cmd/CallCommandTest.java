@@ -3,11 +3,16 @@ package sg.edu.nus.comp.cs4218.impl.cmd;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayOutputStream;
+
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.mockito.internal.util.reflection.Whitebox;
 
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.GrepException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.ShellImpl;
 import sg.edu.nus.comp.cs4218.impl.commons.CommandString;
@@ -21,6 +26,9 @@ public class CallCommandTest {
 	private static final String ABC = "abc";
 	private String expected, cmdLine;
 
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
 	@Before
 	public void setUp() throws Exception {
 		cmdLine = expected = "";
@@ -76,4 +84,29 @@ public class CallCommandTest {
 		assertArrayEquals(expectedArgs, (String[]) Whitebox.getInternalState(callCommand, ARGS_ARRAY));
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testEvalToThrowsShellExpUsingTerminatedCmd() throws ShellException, AbstractApplicationException {
+		cmdLine = "echo abc";
+		CallCommand callCommand = new CallCommand(new ShellImpl(), new CommandString(cmdLine));
+		callCommand.parse();
+		callCommand.terminate();
+
+		thrown.expect(ShellException.class);
+		thrown.expectMessage("shell: Terminated");
+
+		callCommand.evaluate(System.in, new ByteArrayOutputStream());
+	}
+
+	@Test
+	public void testEvalToThrowsAppExpUsingStoppedCmdWithAppExp() throws ShellException, AbstractApplicationException {
+		cmdLine = "grep abc nonExistentFile";
+		CallCommand callCommand = new CallCommand(new ShellImpl(), new CommandString(cmdLine));
+		callCommand.parse();
+		callCommand.stop();
+
+		thrown.expect(GrepException.class);
+		thrown.expectMessage("grep: nonExistentFile: No such file or directory");
+
+		callCommand.evaluate(System.in, new ByteArrayOutputStream());
+	}
+}
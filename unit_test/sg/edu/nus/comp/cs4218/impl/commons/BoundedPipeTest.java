@@ -0,0 +1,132 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class BoundedPipeTest {
+	private static final int CAPACITY = 16;
+	private static final String TEXT = "bounded pipe";
+
+	private BoundedPipe pipe;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Before
+	public void setUp() {
+		pipe = new BoundedPipe(CAPACITY);
+	}
+
+	@Test
+	public void testReadToReturnWrittenBytesUsingClosedWriter() throws IOException {
+		pipe.getOutputStream().write(TEXT.getBytes());
+		pipe.getOutputStream().close();
+
+		byte[] result = new byte[TEXT.length()];
+		assertEquals(TEXT.length(), pipe.getInputStream().read(result));
+		assertArrayEquals(TEXT.getBytes(), result);
+		assertEquals(-1, pipe.getInputStream().read());
+	}
+
+	@Test
+	public void testReadToReturnAllBytesUsingDataLargerThanCapacity() throws Exception {
+		final byte[] data = new byte[CAPACITY * 100 + 3];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try (OutputStream outputStream = pipe.getOutputStream()) {
+					outputStream.write(data);
+				} catch (IOException e) {
+					// reader closed early
+				}
+			}
+		});
+		writer.start();
+
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		InputStream inputStream = pipe.getInputStream();
+		byte[] chunk = new byte[7];
+		int count;
+		while ((count = inputStream.read(chunk)) != -1) {
+			result.write(chunk, 0, count);
+		}
+		writer.join();
+		assertArrayEquals(data, result.toByteArray());
+	}
+
+	@Test
+	public void testWriteToThrowsIOExpUsingClosedReader() throws IOException {
+		pipe.getInputStream().close();
+
+		thrown.expect(IOException.class);
+		thrown.expectMessage(BoundedPipe.EXP_BROKEN_PIPE);
+
+		pipe.getOutputStream().write(TEXT.getBytes());
+	}
+
+	@Test
+	public void testIsWriteRefusedToReturnTrueOnlyAfterWriteToClosedReader() throws IOException {
+		pipe.getInputStream().close();
+		assertFalse(pipe.isWriteRefused());
+
+		try {
+			pipe.getOutputStream().write(TEXT.getBytes());
+		} catch (IOException e) {
+			assertEquals(BoundedPipe.EXP_BROKEN_PIPE, e.getMessage());
+		}
+		assertTrue(pipe.isWriteRefused());
+	}
+
+	@Test
+	public void testCloseToRunReaderClosedListenerOnceUsingReaderClosedTwice() throws IOException {
+		final int[] runCount = new int[1];
+		pipe.setReaderClosedListener(new Runnable() {
+			@Override
+			public void run() {
+				runCount[0]++;
+			}
+		});
+
+		pipe.getInputStream().close();
+		pipe.getInputStream().close();
+		assertEquals(1, runCount[0]);
+	}
+
+	@Test
+	public void testIsReadInterruptedToReturnTrueOnlyAfterInterruptedRead() throws IOException {
+		assertFalse(pipe.isReadInterrupted());
+
+		Thread.currentThread().interrupt();
+		try {
+			pipe.getInputStream().read();
+		} catch (InterruptedIOException e) {
+			assertTrue(pipe.isReadInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+		assertTrue(pipe.isReadInterrupted());
+	}
+
+	@Test
+	public void testConstructorToThrowsIllegalArgExpUsingZeroCapacity() {
+		thrown.expect(IllegalArgumentException.class);
+		new BoundedPipe(0);
+	}
+}
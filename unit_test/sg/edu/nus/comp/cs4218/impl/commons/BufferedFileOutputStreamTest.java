@@ -0,0 +1,94 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class BufferedFileOutputStreamTest {
+	private static final File TEST_FILE = new File(System.getProperty("user.dir") + File.separator + "test_system"
+			+ File.separator + "buffered_output.txt");
+	private static final int BUFFER_SIZE = 8;
+	private static final String TEXT = "text";
+
+	private BufferedFileOutputStream outputStream;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Before
+	public void setUp() throws IOException {
+		outputStream = new BufferedFileOutputStream(TEST_FILE, BUFFER_SIZE, false);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		outputStream.close();
+		Files.deleteIfExists(TEST_FILE.toPath());
+	}
+
+	@Test
+	public void testWriteToKeepBytesInBufferUsingSmallWrites() throws IOException {
+		outputStream.write(TEXT.getBytes());
+		outputStream.write('!');
+		assertEquals(0, TEST_FILE.length());
+
+		outputStream.close();
+		assertEquals(TEXT + "!", readFile());
+	}
+
+	@Test
+	public void testWriteToWriteFileUsingWritesLargerThanBuffer() throws IOException {
+		String text = "";
+		for (int i = 0; i < 10; i++) {
+			outputStream.write(TEXT.getBytes());
+			text += TEXT;
+		}
+		byte[] large = new byte[BUFFER_SIZE * 3];
+		outputStream.write(large);
+
+		assertEquals(text.length() + large.length, TEST_FILE.length());
+	}
+
+	@Test
+	public void testGetChannelToWriteBufferFirstUsingBufferedBytes() throws IOException {
+		outputStream.write(TEXT.getBytes());
+		outputStream.getChannel().write(ByteBuffer.wrap("channel".getBytes()));
+		outputStream.write(TEXT.getBytes());
+		outputStream.close();
+
+		assertEquals(TEXT + "channel" + TEXT, readFile());
+	}
+
+	@Test
+	public void testCloseToWriteBytesUsingSync() throws IOException {
+		outputStream.close();
+		outputStream = new BufferedFileOutputStream(TEST_FILE, BUFFER_SIZE, true);
+		outputStream.write(TEXT.getBytes());
+		outputStream.close();
+
+		assertArrayEquals(TEXT.getBytes(), Files.readAllBytes(TEST_FILE.toPath()));
+	}
+
+	@Test
+	public void testWriteToThrowsIOExpUsingClosedStream() throws IOException {
+		outputStream.close();
+
+		thrown.expect(IOException.class);
+		thrown.expectMessage(BufferedFileOutputStream.EXP_STREAM_CLOSED);
+		outputStream.write(TEXT.getBytes());
+	}
+
+	private static String readFile() throws IOException {
+		return new String(Files.readAllBytes(TEST_FILE.toPath()));
+	}
+}
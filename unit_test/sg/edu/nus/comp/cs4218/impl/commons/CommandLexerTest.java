@@ -0,0 +1,57 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import sg.edu.nus.comp.cs4218.impl.commons.CommandToken.Type;
+
+public class CommandLexerTest {
+
+	@Test
+	public void testTokenizeToReturnNoTokensUsingBlankCmd() {
+		CommandToken[] expected = {};
+		assertArrayEquals(expected, CommandLexer.tokenize(new CommandString(" \t ")));
+	}
+
+	@Test
+	public void testTokenizeToSplitOperatorsUsingUnspacedCmd() {
+		CommandToken[] expected = { new CommandToken(Type.WORD, 0, 3), new CommandToken(Type.INPUT_REDIR, 3, 4),
+				new CommandToken(Type.WORD, 4, 5), new CommandToken(Type.PIPE, 5, 6),
+				new CommandToken(Type.WORD, 6, 9), new CommandToken(Type.OUTPUT_REDIR, 10, 11),
+				new CommandToken(Type.WORD, 11, 12), new CommandToken(Type.SEMICOLON, 12, 13),
+				new CommandToken(Type.WORD, 14, 16) };
+		assertArrayEquals(expected, CommandLexer.tokenize(new CommandString("cat<a|cat >b; ls")));
+	}
+
+	@Test
+	public void testTokenizeToKeepWordUsingEscapedOperatorsAndSpaces() {
+		CommandString cmd = new CommandString("echo a;b c");
+		cmd.setCharEscapedRange(5, 10, true);
+
+		CommandToken[] expected = { new CommandToken(Type.WORD, 0, 4), new CommandToken(Type.WORD, 5, 10) };
+		assertArrayEquals(expected, CommandLexer.tokenize(cmd));
+	}
+
+	@Test
+	public void testTokenizeToKeepBackquoteSpanUsingOperatorsInBackquotes() {
+		CommandToken[] expected = { new CommandToken(Type.WORD, 0, 4), new CommandToken(Type.WORD, 5, 6),
+				new CommandToken(Type.BACKQUOTE, 6, 18), new CommandToken(Type.WORD, 18, 19) };
+		assertArrayEquals(expected, CommandLexer.tokenize(new CommandString("echo a`echo b; ls`c")));
+	}
+
+	@Test
+	public void testTokenizeToReturnUnclosedSpanUsingUnclosedBackquote() {
+		CommandToken[] expected = { new CommandToken(Type.WORD, 0, 4),
+				new CommandToken(Type.BACKQUOTE, 5, 11, false) };
+		assertArrayEquals(expected, CommandLexer.tokenize(new CommandString("echo `a | b")));
+	}
+
+	@Test
+	public void testSubTokensToShiftIndicesUsingMiddleTokens() {
+		CommandToken[] tokens = CommandLexer.tokenize(new CommandString("ls;  cat a"));
+
+		CommandToken[] expected = { new CommandToken(Type.WORD, 0, 3), new CommandToken(Type.WORD, 4, 5) };
+		assertArrayEquals(expected, CommandLexer.subTokens(tokens, 2, 4));
+	}
+}
@@ -231,4 +231,31 @@ public class CommandStringTest {
 		assertEquals(actualCmd, expectedCmd);
 	}
 
+	@Test
+	public void testInsertStringAtToShiftEscapeStates() {
+		testString.setCharEscaped(4, true);
+		testString.insertStringAt(2, "xx");
+		assertFalse(testString.isCharEscaped(4));
+		assertTrue(testString.isCharEscaped(6));
+		assertFalse(testString.isCharEscaped(2));
+	}
+
+	@Test
+	public void testRemoveRangeBeforeLastCharToKeepLastChar() {
+		testString.setCharEscaped(9, true);
+		testString.removeRange(4, 9);
+		expectedCmd = new CommandString("Testg");
+		expectedCmd.setCharEscaped(4, true);
+		assertEquals(expectedCmd, testString);
+	}
+
+	@Test
+	public void testReplaceRangeToGrowBufferUsingLongReplacement() {
+		String longStr = new String(new char[1000]).replace('\0', 'a');
+		testString.setCharEscaped(9, true);
+		testString.replaceRange(0, 4, longStr);
+		assertEquals(longStr + "String", testString.toString());
+		assertTrue(testString.isCharEscaped(longStr.length() + 5));
+	}
+
 }
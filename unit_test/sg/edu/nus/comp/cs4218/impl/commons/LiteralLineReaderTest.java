@@ -0,0 +1,90 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Test;
+
+public class LiteralLineReaderTest {
+	private static final Charset UTF_8 = StandardCharsets.UTF_8;
+
+	@Test
+	public void testReadLineToReturnMatchingLinesUsingAllLineTerminators() throws IOException {
+		String text = "no\nerror one\r\nerror two\rskip\r\n\nlast error";
+		LiteralLineReader reader = new LiteralLineReader(new ByteArrayInputStream(text.getBytes(UTF_8)), "error",
+				UTF_8);
+
+		assertEquals("error one", reader.readLine());
+		assertEquals("error two", reader.readLine());
+		assertEquals("last error", reader.readLine());
+		assertNull(reader.readLine());
+	}
+
+	@Test
+	public void testReadLineToReturnSameLinesAsRegexUsingLargeRandomInput() throws IOException {
+		Random random = new Random(4218);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			int length = random.nextInt(i % 500 == 0 ? 100000 : 40);
+			for (int j = 0; j < length; j++) {
+				text.append((char) ('a' + random.nextInt(4)));
+			}
+			text.append(random.nextBoolean() ? "\n" : "\r\n");
+		}
+		byte[] bytes = text.toString().getBytes(UTF_8);
+
+		Vector<String> expected = new Vector<String>();
+		BufferedReader lines = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), UTF_8));
+		String line;
+		while ((line = lines.readLine()) != null) {
+			if (line.contains("abcd")) {
+				expected.add(line);
+			}
+		}
+
+		Vector<String> result = new Vector<String>();
+		LiteralLineReader reader = new LiteralLineReader(new ByteArrayInputStream(bytes), "abcd", UTF_8);
+		while ((line = reader.readLine()) != null) {
+			result.add(line);
+		}
+		assertTrue(expected.size() > 100);
+		assertEquals(expected, result);
+	}
+
+	@Test
+	public void testReadLineToDecodeLineUsingMultiByteChars() throws IOException {
+		String text = "caf\u00e9 ok\nna\u00efve caf\u00e9\n";
+		LiteralLineReader reader = new LiteralLineReader(new ByteArrayInputStream(text.getBytes(UTF_8)),
+				"\u00efve", UTF_8);
+
+		assertEquals("na\u00efve caf\u00e9", reader.readLine());
+		assertNull(reader.readLine());
+	}
+
+	@Test
+	public void testIsSupportedToReturnTrueUsingLiteral() {
+		assertTrue(LiteralLineReader.isSupported("REQ-4218 failed", UTF_8));
+		assertTrue(LiteralLineReader.isSupported("error", StandardCharsets.ISO_8859_1));
+	}
+
+	@Test
+	public void testIsSupportedToReturnFalseUsingRegexOrUnsupportedCharset() {
+		assertFalse(LiteralLineReader.isSupported("", UTF_8));
+		assertFalse(LiteralLineReader.isSupported("a.b", UTF_8));
+		assertFalse(LiteralLineReader.isSupported("[0-9]", UTF_8));
+		assertFalse(LiteralLineReader.isSupported("a\nb", UTF_8));
+		assertFalse(LiteralLineReader.isSupported("error", StandardCharsets.UTF_16));
+		assertFalse(LiteralLineReader.isSupported("caf\u00e9", StandardCharsets.US_ASCII));
+	}
+}
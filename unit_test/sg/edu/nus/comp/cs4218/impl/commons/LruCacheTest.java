@@ -0,0 +1,63 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class LruCacheTest {
+	private static final String KEY_A = "a";
+	private static final String KEY_B = "b";
+	private static final String KEY_C = "c";
+
+	private LruCache<String, String> cache;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Before
+	public void setUp() {
+		cache = new LruCache<String, String>(2);
+	}
+
+	@Test
+	public void testGetToCountHitsAndMissesUsingCachedAndUncachedKeys() {
+		cache.put(KEY_A, KEY_A);
+
+		assertEquals(KEY_A, cache.get(KEY_A));
+		assertNull(cache.get(KEY_B));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testPutToEvictLeastRecentlyUsedUsingFullCache() {
+		cache.put(KEY_A, KEY_A);
+		cache.put(KEY_B, KEY_B);
+		cache.get(KEY_A);
+		cache.put(KEY_C, KEY_C);
+
+		assertEquals(2, cache.size());
+		assertEquals(KEY_A, cache.get(KEY_A));
+		assertNull(cache.get(KEY_B));
+		assertEquals(KEY_C, cache.get(KEY_C));
+	}
+
+	@Test
+	public void testPutToStoreNothingUsingZeroCapacity() {
+		cache = new LruCache<String, String>(0);
+		cache.put(KEY_A, KEY_A);
+
+		assertEquals(0, cache.size());
+		assertNull(cache.get(KEY_A));
+	}
+
+	@Test
+	public void testConstructorToThrowIllegalArgExpUsingNegativeCapacity() {
+		thrown.expect(IllegalArgumentException.class);
+		cache = new LruCache<String, String>(-1);
+	}
+}
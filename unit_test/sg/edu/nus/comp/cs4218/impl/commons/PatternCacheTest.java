@@ -0,0 +1,32 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class PatternCacheTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void testCompileToReturnCachedPatternUsingSameRegex() {
+		Pattern pattern = PatternCache.compile("pattern[0-9]+cache");
+
+		assertSame(pattern, PatternCache.compile("pattern[0-9]+cache"));
+		assertEquals("pattern[0-9]+cache", pattern.pattern());
+		assertTrue(pattern.matcher("pattern42cache").matches());
+	}
+
+	@Test
+	public void testCompileToThrowsPatternSyntaxExpUsingInvalidRegex() {
+		thrown.expect(PatternSyntaxException.class);
+		PatternCache.compile("[unclosed");
+	}
+}
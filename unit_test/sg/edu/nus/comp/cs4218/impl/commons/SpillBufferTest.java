@@ -0,0 +1,99 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class SpillBufferTest {
+	private static final int LIMIT = 16;
+	private static final String TEXT = "spill buffer";
+
+	private SpillBuffer buffer;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Before
+	public void setUp() {
+		buffer = new SpillBuffer(LIMIT);
+	}
+
+	@After
+	public void tearDown() {
+		buffer.delete();
+	}
+
+	@Test
+	public void testGetInputStreamToReadWrittenBytesUsingDataWithinLimit() throws IOException {
+		buffer.write(TEXT.getBytes());
+
+		assertFalse(buffer.isSpilled());
+		assertEquals(TEXT.length(), buffer.size());
+		assertArrayEquals(TEXT.getBytes(), readAll(buffer.getInputStream()));
+	}
+
+	@Test
+	public void testGetInputStreamToReadAllBytesUsingDataLargerThanLimit() throws IOException {
+		byte[] data = new byte[LIMIT * 100 + 3];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		buffer.write(data, 0, 10);
+		buffer.write(data[10]);
+		buffer.write(data, 11, data.length - 11);
+		buffer.close();
+
+		assertTrue(buffer.isSpilled());
+		assertEquals(data.length, buffer.size());
+		assertArrayEquals(data, readAll(buffer.getInputStream()));
+		assertArrayEquals(data, readAll(buffer.getInputStream()));
+	}
+
+	@Test
+	public void testWriteToToCopyBytesUsingSpilledBuffer() throws IOException {
+		String text = TEXT + TEXT + TEXT;
+		buffer.write(text.getBytes());
+
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		buffer.writeTo(result);
+		assertTrue(buffer.isSpilled());
+		assertEquals(text, result.toString());
+	}
+
+	@Test
+	public void testGetInputStreamToReadNothingUsingEmptyBuffer() throws IOException {
+		assertEquals(-1, buffer.getInputStream().read());
+	}
+
+	@Test
+	public void testWriteToThrowsIOExpUsingDeletedBuffer() throws IOException {
+		buffer.write(TEXT.getBytes());
+		buffer.delete();
+
+		thrown.expect(IOException.class);
+		thrown.expectMessage(SpillBuffer.EXP_DELETED);
+		buffer.write(TEXT.getBytes());
+	}
+
+	private static byte[] readAll(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] bytes = new byte[7];
+		int length;
+		while ((length = inputStream.read(bytes)) != -1) {
+			result.write(bytes, 0, length);
+		}
+		inputStream.close();
+		return result.toByteArray();
+	}
+}
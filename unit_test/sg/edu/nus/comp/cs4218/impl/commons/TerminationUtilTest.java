@@ -0,0 +1,46 @@
+package sg.edu.nus.comp.cs4218.impl.commons;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sg.edu.nus.comp.cs4218.exception.CatException;
+
+public class TerminationUtilTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@After
+	public void tearDown() {
+		Thread.interrupted();
+	}
+
+	@Test
+	public void testCheckTerminatedToDoNothingUsingRunningThread() throws CatException {
+		TerminationUtil.checkTerminated(CatException.class);
+	}
+
+	@Test
+	public void testCheckTerminatedToThrowAppExpUsingInterruptedThread() throws CatException {
+		thrown.expect(CatException.class);
+		thrown.expectMessage("cat: " + TerminationUtil.EXP_TERMINATED);
+
+		Thread.currentThread().interrupt();
+		TerminationUtil.checkTerminated(CatException.class);
+	}
+
+	@Test
+	public void testCheckTerminatedToKeepInterruptUsingInterruptedThread() {
+		Thread.currentThread().interrupt();
+		try {
+			TerminationUtil.checkTerminated(CatException.class);
+			fail();
+		} catch (CatException e) {
+			assertTrue(Thread.currentThread().isInterrupted());
+		}
+	}
+}
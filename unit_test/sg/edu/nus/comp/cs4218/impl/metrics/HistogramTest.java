@@ -0,0 +1,64 @@
+package sg.edu.nus.comp.cs4218.impl.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HistogramTest {
+
+	private Histogram histogram;
+
+	@Before
+	public void setUp() {
+		histogram = new Histogram();
+	}
+
+	@Test
+	public void testRecordToKeepExactCountSumAndMaxUsingSeveralValues() {
+		histogram.record(1);
+		histogram.record(10);
+		histogram.record(100);
+
+		assertEquals(3, histogram.getCount());
+		assertEquals(111, histogram.getSum());
+		assertEquals(37, histogram.getMean());
+		assertEquals(100, histogram.getMax());
+	}
+
+	@Test
+	public void testGetPercentileToReturnBucketUpperBoundUsingSpreadValues() {
+		for (int i = 0; i < 99; i++) {
+			histogram.record(5);
+		}
+		histogram.record(1000);
+
+		assertEquals(7, histogram.getPercentile(50));
+		assertEquals(7, histogram.getPercentile(99));
+		assertEquals(1000, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testGetPercentileToReturnZeroUsingNoValues() {
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getMean());
+	}
+
+	@Test
+	public void testResetToClearValuesUsingRecordedValues() {
+		histogram.record(42);
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals("{\"count\":0,\"sum\":0,\"mean\":0,\"p50\":0,\"p90\":0,\"p99\":0,\"max\":0}", histogram.toJson());
+	}
+
+	@Test
+	public void testRecordToClampToZeroUsingNegativeValue() {
+		histogram.record(-5);
+
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getSum());
+	}
+}
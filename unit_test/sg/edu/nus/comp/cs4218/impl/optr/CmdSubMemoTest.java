@@ -0,0 +1,114 @@
+package sg.edu.nus.comp.cs4218.impl.optr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CmdSubMemoTest {
+	private static final String TEST_DIR = System.getProperty("user.dir") + File.separator + "test_system"
+			+ File.separator + "cmdsub_memo_test_system";
+	private static final String FILE_NAME = "file.txt";
+	private static final String CAT_CMD = "cat " + FILE_NAME;
+	private static final String RESULT = "content";
+
+	private CmdSubMemo memo;
+	private Path filePath;
+
+	@Before
+	public void setUp() throws IOException {
+		memo = new CmdSubMemo(4);
+		Files.createDirectories(Paths.get(TEST_DIR));
+		filePath = Paths.get(TEST_DIR, FILE_NAME);
+		Files.write(filePath, RESULT.getBytes());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		File[] files = new File(TEST_DIR).listFiles();
+		for (int i = 0; i < files.length; i++) {
+			Files.delete(files[i].toPath());
+		}
+		Files.delete(Paths.get(TEST_DIR));
+	}
+
+	@Test
+	public void testGetToReturnResultUsingUnchangedFiles() {
+		String fingerprint = memo.getFingerprint(CAT_CMD, TEST_DIR);
+		memo.put(CAT_CMD, TEST_DIR, fingerprint, RESULT);
+
+		assertEquals(RESULT, memo.get(CAT_CMD, TEST_DIR, memo.getFingerprint(CAT_CMD, TEST_DIR)));
+		assertEquals(1, memo.getHitCount());
+	}
+
+	@Test
+	public void testGetToReturnNullUsingModifiedFile() throws IOException {
+		String fingerprint = memo.getFingerprint(CAT_CMD, TEST_DIR);
+		memo.put(CAT_CMD, TEST_DIR, fingerprint, RESULT);
+		Files.write(filePath, (RESULT + RESULT).getBytes());
+
+		assertNull(memo.get(CAT_CMD, TEST_DIR, memo.getFingerprint(CAT_CMD, TEST_DIR)));
+		assertEquals(1, memo.getMissCount());
+	}
+
+	@Test
+	public void testGetFingerprintToChangeUsingNewFileInGlobDir() throws IOException {
+		String fingerprint = memo.getFingerprint("ls *.txt", TEST_DIR);
+		Files.write(Paths.get(TEST_DIR, "new.txt"), RESULT.getBytes());
+
+		assertFalse(fingerprint.equals(memo.getFingerprint("ls *.txt", TEST_DIR)));
+	}
+
+	@Test
+	public void testGetFingerprintToReturnFingerprintUsingReadOnlyPipe() {
+		assertNotNull(memo.getFingerprint("cat file.txt | grep c | sed s/c/d/", TEST_DIR));
+	}
+
+	@Test
+	public void testGetFingerprintToReturnNullUsingCmdsWithSideEffects() {
+		assertNull(memo.getFingerprint("mkdir folder", TEST_DIR));
+		assertNull(memo.getFingerprint("echo text > " + FILE_NAME, TEST_DIR));
+		assertNull(memo.getFingerprint("ls -R", TEST_DIR));
+		assertNull(memo.getFingerprint("cat file.txt; cd ..", TEST_DIR));
+		assertNull(new CmdSubMemo(0).getFingerprint(CAT_CMD, TEST_DIR));
+	}
+
+	@Test
+	public void testIsReadOnlyToReturnFalseOnlyUsingCmdsWithSideEffects() {
+		assertTrue(CmdSubMemo.isReadOnly("ls -R | grep c"));
+		assertFalse(CmdSubMemo.isReadOnly("ls; mkdir d"));
+		assertFalse(CmdSubMemo.isReadOnly("echo text > " + FILE_NAME));
+		assertFalse(CmdSubMemo.isReadOnly("cd .."));
+	}
+
+	@Test
+	public void testIsReadOnlyToReturnFalseUsingCmdsReadingStdin() {
+		assertFalse(CmdSubMemo.isReadOnly("cat"));
+		assertFalse(CmdSubMemo.isReadOnly("grep x"));
+		assertFalse(CmdSubMemo.isReadOnly("sed s/a/b/"));
+		assertFalse(CmdSubMemo.isReadOnly("paste -"));
+		assertFalse(CmdSubMemo.isReadOnly("cat " + FILE_NAME + " - | grep x"));
+		assertFalse(CmdSubMemo.isReadOnly("ls; grep -i x"));
+		assertNull(memo.getFingerprint("cat", TEST_DIR));
+	}
+
+	@Test
+	public void testIsReadOnlyToReturnTrueUsingCmdsReadingFilesOrPipe() {
+		assertTrue(CmdSubMemo.isReadOnly(CAT_CMD + " | grep x | sed s/x/y/"));
+		assertTrue(CmdSubMemo.isReadOnly("grep x " + FILE_NAME));
+		assertTrue(CmdSubMemo.isReadOnly("cat < " + FILE_NAME));
+		assertTrue(CmdSubMemo.isReadOnly("ls | paste -"));
+		assertTrue(CmdSubMemo.isReadOnly("echo"));
+	}
+}
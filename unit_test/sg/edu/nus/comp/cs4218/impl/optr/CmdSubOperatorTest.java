@@ -2,7 +2,10 @@ package sg.edu.nus.comp.cs4218.impl.optr;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -113,11 +116,12 @@ public class CmdSubOperatorTest {
 		Mockito.doAnswer(new Answer<Object>() {
 			@Override
 			public Object answer(InvocationOnMock invocation) throws Throwable {
-				OutputStream output = (OutputStream) invocation.getArguments()[1];
+				OutputStream output = (OutputStream) invocation.getArguments()[2];
 				output.write(("Rline1." + OSUtil.NEWLINE + "Rline2.").getBytes());
 				return null;
 			}
-		}).when(mockShell).parseAndEvaluate(Mockito.anyString(), Mockito.any(OutputStream.class));
+		}).when(mockShell).parseAndEvaluate(Mockito.anyString(), Mockito.any(InputStream.class),
+				Mockito.any(OutputStream.class));
 
 		cmd = new CommandString(CMDSUB_STR);
 		cmd.setCharEscaped(1, true, true, true);
@@ -126,6 +130,32 @@ public class CmdSubOperatorTest {
 		assertEquals(expected, cmd);
 	}
 
+	@Test
+	public void testEvalToThrowsShellExpUsingCmdSubOutputOverLimit()
+			throws AbstractApplicationException, ShellException {
+		Shell mockShell = Mockito.mock(Shell.class);
+		Mockito.when(spyShell.newInstance()).thenReturn(mockShell);
+		Mockito.doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				OutputStream output = (OutputStream) invocation.getArguments()[2];
+				output.write("more than eight bytes".getBytes());
+				return null;
+			}
+		}).when(mockShell).parseAndEvaluate(Mockito.anyString(), Mockito.any(InputStream.class),
+				Mockito.any(OutputStream.class));
+
+		long outputLimit = CmdSubOperator.getOutputLimit();
+		CmdSubOperator.setOutputLimit(8);
+		try {
+			thrown.expect(ShellException.class);
+			thrown.expectMessage(CmdSubOperator.EXP_OUTPUT_TOO_LARGE);
+			cmdSubOptr.evaluate(new CommandString(CMDSUB_STR));
+		} finally {
+			CmdSubOperator.setOutputLimit(outputLimit);
+		}
+	}
+
 	@Test
 	public void testEvalToThrowsShellExpUsingNullStr() throws AbstractApplicationException, ShellException {
 		thrown.expect(ShellException.class);
@@ -148,7 +178,7 @@ public class CmdSubOperatorTest {
 		Shell mockShell = Mockito.mock(Shell.class);
 		Mockito.when(spyShell.newInstance()).thenReturn(mockShell);
 		Mockito.doThrow(ShellException.class).when(mockShell).parseAndEvaluate(Mockito.anyString(),
-				Mockito.any(OutputStream.class));
+				Mockito.any(InputStream.class), Mockito.any(OutputStream.class));
 
 		thrown.expect(ShellException.class);
 		cmd = new CommandString(CMDSUB_STR);
@@ -160,10 +190,148 @@ public class CmdSubOperatorTest {
 		Shell mockShell = Mockito.mock(Shell.class);
 		Mockito.when(spyShell.newInstance()).thenReturn(mockShell);
 		Mockito.doThrow(LsException.class).when(mockShell).parseAndEvaluate(Mockito.anyString(),
-				Mockito.any(OutputStream.class));
+				Mockito.any(InputStream.class), Mockito.any(OutputStream.class));
 
 		thrown.expect(LsException.class);
 		cmd = new CommandString(CMDSUB_STR);
 		cmdSubOptr.evaluate(cmd);
 	}
+
+	@Test(timeout = 10000)
+	public void testEvalToRunCmdSubsConcurrentlyUsingMultiCmdSubInStr()
+			throws AbstractApplicationException, ShellException {
+		expected = new CommandString("echo first echo second");
+		final CountDownLatch started = new CountDownLatch(2);
+
+		Shell mockShell = Mockito.mock(Shell.class);
+		Mockito.when(spyShell.newInstance()).thenReturn(mockShell);
+		Mockito.doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				started.countDown();
+				started.await();
+				OutputStream output = (OutputStream) invocation.getArguments()[2];
+				output.write(((String) invocation.getArguments()[0]).getBytes());
+				return null;
+			}
+		}).when(mockShell).parseAndEvaluate(Mockito.anyString(), Mockito.any(InputStream.class),
+				Mockito.any(OutputStream.class));
+
+		cmd = new CommandString("`echo first` `echo second`");
+		cmdSubOptr.evaluate(cmd);
+		assertEquals(expected, cmd);
+	}
+
+	@Test
+	public void testEvalToThrowsExpOfRightmostCmdSubUsingMultiFailingCmdSubs()
+			throws AbstractApplicationException, ShellException {
+		Shell mockShell = Mockito.mock(Shell.class);
+		Mockito.when(spyShell.newInstance()).thenReturn(mockShell);
+		Mockito.doThrow(LsException.class).when(mockShell).parseAndEvaluate(Mockito.eq("ls"),
+				Mockito.any(InputStream.class), Mockito.any(OutputStream.class));
+		Mockito.doThrow(ShellException.class).when(mockShell).parseAndEvaluate(Mockito.eq("cat"),
+				Mockito.any(InputStream.class), Mockito.any(OutputStream.class));
+
+		thrown.expect(ShellException.class);
+		cmd = new CommandString("`ls` `cat`");
+		cmdSubOptr.evaluate(cmd);
+	}
+
+	@Test
+	public void testEvalToRunCmdSubsInTurnUsingCmdSubWithCd() throws AbstractApplicationException, ShellException {
+		final Vector<String> evaluated = new Vector<String>();
+		Shell mockShell = Mockito.mock(Shell.class);
+		Mockito.when(spyShell.newInstance()).thenReturn(mockShell);
+		Mockito.doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				evaluated.add((String) invocation.getArguments()[0]);
+				return null;
+			}
+		}).when(mockShell).parseAndEvaluate(Mockito.anyString(), Mockito.any(InputStream.class),
+				Mockito.any(OutputStream.class));
+
+		cmd = new CommandString("`ls` `cd dir; ls` `echo`");
+		cmdSubOptr.evaluate(cmd);
+		assertEquals(3, evaluated.size());
+		assertEquals("echo", evaluated.get(0));
+		assertEquals("cd dir; ls", evaluated.get(1));
+		assertEquals("ls", evaluated.get(2));
+	}
+
+	@Test
+	public void testEvalToRunCmdSubsInTurnUsingCmdSubWithMkdir() throws AbstractApplicationException, ShellException {
+		final Vector<String> evaluated = new Vector<String>();
+		Shell mockShell = Mockito.mock(Shell.class);
+		Mockito.when(spyShell.newInstance()).thenReturn(mockShell);
+		Mockito.doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				evaluated.add((String) invocation.getArguments()[0]);
+				return null;
+			}
+		}).when(mockShell).parseAndEvaluate(Mockito.anyString(), Mockito.any(InputStream.class),
+				Mockito.any(OutputStream.class));
+
+		cmd = new CommandString("`ls` `mkdir d`");
+		cmdSubOptr.evaluate(cmd);
+		assertEquals(2, evaluated.size());
+		assertEquals("mkdir d", evaluated.get(0));
+		assertEquals("ls", evaluated.get(1));
+	}
+
+	@Test
+	public void testEvalToRunCmdSubsInTurnUsingCmdSubsReadingStdin()
+			throws AbstractApplicationException, ShellException {
+		final Vector<String> evaluated = new Vector<String>();
+		Shell mockShell = Mockito.mock(Shell.class);
+		Mockito.when(spyShell.newInstance()).thenReturn(mockShell);
+		Mockito.doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				evaluated.add((String) invocation.getArguments()[0]);
+				return null;
+			}
+		}).when(mockShell).parseAndEvaluate(Mockito.anyString(), Mockito.any(InputStream.class),
+				Mockito.any(OutputStream.class));
+
+		cmd = new CommandString("`cat` `grep x`");
+		cmdSubOptr.evaluate(cmd);
+		assertEquals(2, evaluated.size());
+		assertEquals("grep x", evaluated.get(0));
+		assertEquals("cat", evaluated.get(1));
+	}
+
+	@Test
+	public void testEvalToReuseResultUsingEnabledMemoAndRepeatedCmdSub()
+			throws AbstractApplicationException, ShellException {
+		CmdSubOperator.setMemoCapacity(4);
+		try {
+			expected = new CommandString(ShellStub.SHELL_RESULT);
+			for (int i = 0; i < 3; i++) {
+				cmd = new CommandString("`echo memo`");
+				cmdSubOptr.evaluate(cmd);
+				assertEquals(expected, cmd);
+			}
+			Mockito.verify(spyShell, Mockito.times(1)).newInstance();
+			assertEquals(2, CmdSubOperator.getMemo().getHitCount());
+		} finally {
+			CmdSubOperator.setMemoCapacity(0);
+		}
+	}
+
+	@Test
+	public void testEvalToEvalAgainUsingEnabledMemoAndCmdSubReadingStdin()
+			throws AbstractApplicationException, ShellException {
+		CmdSubOperator.setMemoCapacity(4);
+		try {
+			for (int i = 0; i < 2; i++) {
+				cmdSubOptr.evaluate(new CommandString("`cat`"));
+			}
+			Mockito.verify(spyShell, Mockito.times(2)).newInstance();
+			assertEquals(0, CmdSubOperator.getMemo().getHitCount());
+		} finally {
+			CmdSubOperator.setMemoCapacity(0);
+		}
+	}
 }
@@ -0,0 +1,61 @@
+package sg.edu.nus.comp.cs4218.impl.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import sg.edu.nus.comp.cs4218.impl.commons.OSUtil;
+import sg.edu.nus.comp.cs4218.impl.replay.QueryFile.Query;
+
+public class QueryFileTest {
+	private static final String NEW_LINE = OSUtil.NEWLINE;
+
+	@Test
+	public void testParseToSplitQueriesUsingCommentLines() throws IOException {
+		String text = "//1. cat file\ncat a.txt b.txt\nasdf\nqwer\n//2. echo empty\necho\n//3. no command\n";
+		Query[] queries = QueryFile.parse("query-cat.txt", new StringReader(text)).getQueries();
+
+		assertEquals(2, queries.length);
+		assertEquals("1. cat file", queries[0].getComment());
+		assertEquals("cat a.txt b.txt", queries[0].getCommandLine());
+		assertEquals("asdf" + NEW_LINE + "qwer", queries[0].getExpectedOutput());
+		assertEquals("echo", queries[1].getCommandLine());
+		assertEquals("", queries[1].getExpectedOutput());
+	}
+
+	@Test
+	public void testParseToIgnoreLinesUsingLinesBeforeFirstComment() throws IOException {
+		Query[] queries = QueryFile.parse("query", new StringReader("stray\n//1\necho a\na")).getQueries();
+
+		assertEquals(1, queries.length);
+		assertEquals("a", queries[0].getExpectedOutput());
+	}
+
+	@Test
+	public void testGetTypeToReturnFirstWordUsingPipeAndSeq() {
+		assertEquals("cat", new Query("", "cat < number.txt | grep 1", "").getType());
+		assertEquals("cd", new Query("", "  cd folderA; ls", "").getType());
+		assertEquals("echo", new Query("", "echo", "").getType());
+	}
+
+	@Test
+	public void testMatchesToIgnoreLineEndsUsingCrLfAndLeadingEmptyLine() {
+		Query query = new Query("", "ls", "\na\tb" + NEW_LINE + "c");
+
+		assertTrue(query.matches("a\tb\r\nc\n"));
+		assertFalse(query.matches("a b\nc"));
+	}
+
+	@Test
+	public void testGetTestSystemNameToReturnFolderUsingQueryFileName() {
+		assertEquals("cat_test_system", QueryFile.getTestSystemName("query-cat.txt"));
+		assertNull(QueryFile.getTestSystemName("query.txt"));
+		assertNull(QueryFile.getTestSystemName("notes-cat.txt"));
+	}
+}
@@ -0,0 +1,44 @@
+package sg.edu.nus.comp.cs4218.impl.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class ShellProtocolTest {
+	private static final int BUFFER_SIZE = ShellProtocol.FrameOutputStream.BUFFER_SIZE;
+
+	@Test
+	public void testWriteToSplitIntoBufferSizedFramesUsingLargeWrite() throws IOException {
+		byte[] bytes = new byte[3 * BUFFER_SIZE + 5];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		ByteArrayOutputStream sent = new ByteArrayOutputStream();
+		ShellProtocol.FrameOutputStream output = new ShellProtocol.FrameOutputStream(new DataOutputStream(sent));
+		output.write(bytes);
+		output.flush();
+
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(sent.toByteArray()));
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		int frameCount = 0;
+		ShellProtocol.Frame frame;
+		while ((frame = ShellProtocol.readFrame(input)) != null) {
+			assertEquals(ShellProtocol.OUTPUT, frame.getType());
+			assertTrue(frame.getPayload().length <= BUFFER_SIZE);
+			received.write(frame.getPayload());
+			frameCount++;
+		}
+		assertEquals(4, frameCount);
+		assertArrayEquals(bytes, received.toByteArray());
+		assertNull(ShellProtocol.readFrame(input));
+	}
+}